@@ -17,22 +17,39 @@ package org.scion.jpan;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.*;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import org.scion.jpan.internal.*;
 import org.scion.jpan.internal.bootstrap.LocalAS;
 import org.scion.jpan.internal.header.ExtensionHeader;
 import org.scion.jpan.internal.header.HeaderConstants;
+import org.scion.jpan.internal.header.HeaderTemplateCache;
+import org.scion.jpan.internal.header.PacketValidator;
+import org.scion.jpan.internal.header.PathMtuTracker;
 import org.scion.jpan.internal.header.PathRawParserLight;
+import org.scion.jpan.internal.header.ReplyPathCache;
 import org.scion.jpan.internal.header.ScionHeaderParser;
 import org.scion.jpan.internal.header.ScmpParser;
+import org.scion.jpan.internal.util.BufferPool;
 import org.scion.jpan.internal.util.ByteUtil;
 import org.scion.jpan.internal.util.Config;
+import org.scion.jpan.internal.util.Threads;
 import org.scion.jpan.selectors.PathSelector;
 import org.scion.jpan.selectors.PathSelectorFactory;
 import org.scion.jpan.selectors.PathSelectorFixed;
@@ -40,26 +57,89 @@ import org.scion.jpan.selectors.PathSelectorFixed;
 abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implements Closeable {
 
   protected static final int DEFAULT_BUFFER_SIZE = 2000;
+  // Pause of the background SCMP reader after a readiness event without a valid packet.
+  private static final int SCMP_READER_BACKOFF_MS = 10;
   private final java.nio.channels.DatagramChannel channel;
+  // Buffers are borrowed from the shared pool and returned when the channel is closed.
+  private final BufferPool bufferPool = BufferPool.getDefault();
   private ByteBuffer bufferReceive;
   private ByteBuffer bufferSend;
+  private ByteBuffer[] bufferReceiveBatch = new ByteBuffer[0];
+  private ByteBuffer[] bufferSendBatch = new ByteBuffer[0];
 
+  // Precomputed headers, thread-safe
+  private final HeaderTemplateCache headerTemplates = new HeaderTemplateCache(16);
+  // MTUs reported by SCMP "packet too big" errors, thread-safe
+  private final PathMtuTracker mtuTracker = new PathMtuTracker();
+
+  // The stateLock serializes updates of `state`. Reading `state` does not require the lock.
   private final Object stateLock = new Object();
   private final ReentrantLock readLock = new ReentrantLock();
   private final ReentrantLock writeLock = new ReentrantLock();
 
-  private boolean isConnected = false;
-  private InetAddress localAddress;
-  private boolean cfgReportFailedValidation = false;
+  private volatile State state = new State();
+  private final AtomicLongArray dropCounters = new AtomicLongArray(PacketValidator.REASON_COUNT);
   private final ScionService service;
-  private int cfgExpirationSafetyMargin = Config.getPathExpiryMarginSeconds();
-  private int cfgTrafficClass;
-  private Consumer<Scmp.ErrorMessage> errorListener;
-  private InetSocketAddress overrideExternalAddress = null;
-  private NatMapping natMapping = null;
   private final PathSelector pathSelectorForConnect;
-  private PathSelector pathSelectorForConnectPath;
   private final PathSelectorFactory pathSelectorFactory;
+  // Background SCMP reader, guarded by stateLock. A reader stops when this is not its own thread.
+  private volatile Thread scmpReader = null;
+  // Set once the application receives packets. This permanently stops the background SCMP reader.
+  private volatile boolean isReceiving = false;
+  // Selector of the background SCMP reader, guarded by stateLock.
+  private Selector scmpSelector = null;
+  // Written under readLock. Source address of a user datagram that was received ahead of the
+  // application. The datagram itself is stored in the receive buffer.
+  private volatile InetSocketAddress pendingSrcAddress;
+  // Set once the underlying channel has been switched to non-blocking mode for good, guarded by
+  // stateLock. Blocking mode is then emulated with the Selectors below.
+  private volatile boolean isUnderlayNonBlocking = false;
+  // Blocking mode of this channel if isUnderlayNonBlocking is set, guarded by stateLock.
+  private volatile boolean blockingMode = true;
+  // Selectors for waiting in emulated blocking mode, created on demand.
+  private volatile Selector readSelector = null;
+  private volatile Selector writeSelector = null;
+
+  /**
+   * Snapshot of the channel state. A State is never modified after it has been published via
+   * `state`, so it can be read without locking. Updates are performed under `stateLock` by
+   * publishing a modified copy.
+   */
+  private static final class State {
+    private boolean isConnected = false;
+    private InetAddress localAddress;
+    private NatMapping natMapping = null;
+    private PathSelector pathSelectorForConnectPath;
+    private boolean cfgReportFailedValidation = false;
+    private boolean cfgWriteToUserBuffer = false;
+    private boolean cfgScmpBackgroundReader = false;
+    private int cfgExpirationSafetyMargin = Config.getPathExpiryMarginSeconds();
+    private int cfgTrafficClass;
+    private int cfgUnresolvedQueueSize = -1;
+    private Consumer<Scmp.ErrorMessage> errorListener;
+    private InetSocketAddress overrideExternalAddress = null;
+    private ReplyPathCache replyPathCache = null;
+    private UnderlayConnections underlayConnections = null;
+
+    private State copy() {
+      State s = new State();
+      s.isConnected = isConnected;
+      s.localAddress = localAddress;
+      s.natMapping = natMapping;
+      s.pathSelectorForConnectPath = pathSelectorForConnectPath;
+      s.cfgReportFailedValidation = cfgReportFailedValidation;
+      s.cfgWriteToUserBuffer = cfgWriteToUserBuffer;
+      s.cfgScmpBackgroundReader = cfgScmpBackgroundReader;
+      s.cfgExpirationSafetyMargin = cfgExpirationSafetyMargin;
+      s.cfgTrafficClass = cfgTrafficClass;
+      s.cfgUnresolvedQueueSize = cfgUnresolvedQueueSize;
+      s.errorListener = errorListener;
+      s.overrideExternalAddress = overrideExternalAddress;
+      s.replyPathCache = replyPathCache;
+      s.underlayConnections = underlayConnections;
+      return s;
+    }
+  }
 
   protected AbstractScionChannel(
       ScionService service,
@@ -68,24 +148,110 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
       PathSelectorFactory pathSelectorFactory) {
     this.channel = channel;
     this.service = service;
-    this.bufferReceive = ByteBuffer.allocateDirect(2000);
-    this.bufferSend = ByteBuffer.allocateDirect(2000);
+    this.bufferReceive = bufferPool.acquire(DEFAULT_BUFFER_SIZE);
+    this.bufferSend = bufferPool.acquire(DEFAULT_BUFFER_SIZE);
     this.pathSelectorForConnect = connectSelector;
     this.pathSelectorFactory = pathSelectorFactory;
   }
 
   protected void configureBlocking(boolean block) throws IOException {
     synchronized (stateLock) {
-      channel.configureBlocking(block);
+      if (isUnderlayNonBlocking) {
+        blockingMode = block;
+      } else {
+        channel.configureBlocking(block);
+      }
     }
   }
 
   public boolean isBlocking() {
+    return isUnderlayNonBlocking ? blockingMode : channel.isBlocking();
+  }
+
+  /**
+   * Switches the underlying channel to non-blocking mode for good. Blocking mode is then emulated
+   * by waiting on a Selector, see {@link #awaitReady(int)}. This allows receiving without
+   * blocking, e.g. to drain a batch, without switching the mode of the underlying channel every
+   * time.
+   *
+   * @throws IOException If an I/O error occurs
+   */
+  protected void configureUnderlayNonBlocking() throws IOException {
     synchronized (stateLock) {
-      return channel.isBlocking();
+      if (!isUnderlayNonBlocking) {
+        blockingMode = channel.isBlocking();
+        channel.configureBlocking(false);
+        isUnderlayNonBlocking = true;
+      }
     }
   }
 
+  /**
+   * Waits until the underlying channel is ready for reading or writing. This is only used in
+   * emulated blocking mode, see {@link #configureUnderlayNonBlocking()}. As with a blocking
+   * DatagramChannel, the channel is closed if the thread is interrupted.
+   *
+   * @param op {@link SelectionKey#OP_READ} or {@link SelectionKey#OP_WRITE}
+   * @throws IOException If the channel is closed or an I/O error occurs
+   */
+  private void awaitReady(int op) throws IOException {
+    Selector selector = op == SelectionKey.OP_READ ? readSelector : writeSelector;
+    if (selector == null) {
+      selector = openSelector(op);
+    }
+    try {
+      selector.select();
+      selector.selectedKeys().clear();
+    } catch (ClosedSelectorException e) {
+      // The channel has been closed.
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      channel.close();
+      throw new ClosedByInterruptException();
+    }
+    if (!channel.isOpen()) {
+      throw new AsynchronousCloseException();
+    }
+  }
+
+  private Selector openSelector(int op) throws IOException {
+    synchronized (stateLock) {
+      Selector selector = op == SelectionKey.OP_READ ? readSelector : writeSelector;
+      if (selector != null) {
+        return selector;
+      }
+      // This fails if the channel has been closed.
+      selector = channel.provider().openSelector();
+      try {
+        channel.register(selector, op);
+      } catch (IOException | RuntimeException e) {
+        selector.close();
+        throw e;
+      }
+      if (op == SelectionKey.OP_READ) {
+        readSelector = selector;
+      } else {
+        writeSelector = selector;
+      }
+      return selector;
+    }
+  }
+
+  /** Close the Selectors of the emulated blocking mode. This wakes up waiting threads. */
+  private void closeWaitSelectors() {
+    for (Selector selector : new Selector[] {readSelector, writeSelector}) {
+      if (selector != null) {
+        try {
+          selector.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+    readSelector = null;
+    writeSelector = null;
+  }
+
   /**
    * Get the path policy.
    *
@@ -123,6 +289,7 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    * @return the path selector
    */
   public PathSelector getPathSelector() {
+    PathSelector pathSelectorForConnectPath = state.pathSelectorForConnectPath;
     if (pathSelectorForConnectPath != null) {
       return pathSelectorForConnectPath;
     }
@@ -148,35 +315,43 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    * @return the service or 'null'.
    */
   public ScionService getService() {
-    synchronized (stateLock) {
-      return this.service;
-    }
+    return this.service;
   }
 
   protected DatagramChannel channel() {
-    synchronized (stateLock) {
-      return channel;
-    }
+    return channel;
   }
 
   @SuppressWarnings("unchecked")
   public C bind(InetSocketAddress address) throws IOException {
     synchronized (stateLock) {
       channel.bind(address);
-      localAddress = ((InetSocketAddress) channel.getLocalAddress()).getAddress();
+      State s = state.copy();
+      s.localAddress = ((InetSocketAddress) channel.getLocalAddress()).getAddress();
+      state = s;
       if (service != null) {
         getNatMapping();
       }
+      startScmpReader();
       return (C) this;
     }
   }
 
   private NatMapping getNatMapping() {
-    checkService();
-    if (natMapping == null) {
-      natMapping = getService().getNatMapping(channel);
+    NatMapping natMapping = state.natMapping;
+    if (natMapping != null) {
+      return natMapping;
+    }
+    synchronized (stateLock) {
+      checkService();
+      State s = state;
+      if (s.natMapping == null) {
+        s = s.copy();
+        s.natMapping = getService().getNatMapping(channel);
+        state = s;
+      }
+      return s.natMapping;
     }
-    return natMapping;
   }
 
   private void ensureNatMapping() {
@@ -186,8 +361,11 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
   }
 
   protected void ensureBound() throws IOException {
+    if (state.localAddress != null) {
+      return;
+    }
     synchronized (stateLock) {
-      if (localAddress == null) {
+      if (state.localAddress == null) {
         LocalAS.DispatcherPortRange ports = getService().getLocalPortRange();
         if (ports.hasPortRange()) {
           // This is a bit ugly, we iterate through all ports to find a free one.
@@ -218,13 +396,12 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    * @throws IOException If an I/O error occurs
    */
   public InetSocketAddress getLocalAddress() throws IOException {
-    synchronized (stateLock) {
-      if (localAddress == null) {
-        return null;
-      }
-      int port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
-      return new InetSocketAddress(localAddress, port);
+    InetAddress localAddress = state.localAddress;
+    if (localAddress == null) {
+      return null;
     }
+    int port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    return new InetSocketAddress(localAddress, port);
   }
 
   /**
@@ -237,7 +414,7 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    * @throws IOException If an I/O error occurs
    */
   public InetSocketAddress getRemoteAddress() throws IOException {
-    if (!isConnected) {
+    if (!state.isConnected) {
       return null;
     }
     return getPathSelector().getRemoteSocketAddress();
@@ -245,39 +422,83 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
 
   public void disconnect() throws IOException {
     synchronized (stateLock) {
-      isConnected = false;
+      State s = state.copy();
+      s.isConnected = false;
       if (pathSelectorForConnect != null) {
         pathSelectorForConnect.close();
       }
-      if (pathSelectorForConnectPath != null) {
-        pathSelectorForConnectPath.close();
-        pathSelectorForConnectPath = null;
+      if (s.pathSelectorForConnectPath != null) {
+        s.pathSelectorForConnectPath.close();
+        s.pathSelectorForConnectPath = null;
       }
+      state = s;
     }
   }
 
   public boolean isOpen() {
-    synchronized (stateLock) {
-      return channel.isOpen();
-    }
+    return channel.isOpen();
   }
 
   @Override
   public void close() throws IOException {
     synchronized (stateLock) {
-      isConnected = false;
-      if (natMapping != null) {
-        natMapping.close();
+      State s = state.copy();
+      s.isConnected = false;
+      if (s.natMapping != null) {
+        s.natMapping.close();
       }
+      if (s.underlayConnections != null) {
+        s.underlayConnections.close();
+        s.underlayConnections = null;
+      }
+      headerTemplates.clear();
+      mtuTracker.clear();
       if (pathSelectorForConnect != null) {
         pathSelectorForConnect.close();
       }
-      if (pathSelectorForConnectPath != null) {
-        pathSelectorForConnectPath.close();
-        pathSelectorForConnectPath = null;
+      if (s.pathSelectorForConnectPath != null) {
+        s.pathSelectorForConnectPath.close();
+        s.pathSelectorForConnectPath = null;
       }
+      state = s;
+      stopScmpReader();
       channel.disconnect();
       channel.close();
+      closeWaitSelectors();
+    }
+    releaseBuffers();
+  }
+
+  /**
+   * Return buffers to the pool. Ongoing send/receive operations fail quickly once the channel is
+   * closed. If they do not release their lock in time, the buffers are left to the garbage
+   * collector.
+   */
+  private void releaseBuffers() {
+    try {
+      // Buffers must not be released if close() is called while a buffer is in use by the caller.
+      if (!readLock.isHeldByCurrentThread() && readLock.tryLock(100, TimeUnit.MILLISECONDS)) {
+        try {
+          bufferPool.release(bufferReceive);
+          bufferReceive = null;
+          Arrays.stream(bufferReceiveBatch).forEach(bufferPool::release);
+          bufferReceiveBatch = new ByteBuffer[0];
+        } finally {
+          readLock.unlock();
+        }
+      }
+      if (!writeLock.isHeldByCurrentThread() && writeLock.tryLock(100, TimeUnit.MILLISECONDS)) {
+        try {
+          bufferPool.release(bufferSend);
+          bufferSend = null;
+          Arrays.stream(bufferSendBatch).forEach(bufferPool::release);
+          bufferSendBatch = new ByteBuffer[0];
+        } finally {
+          writeLock.unlock();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
@@ -327,35 +548,38 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
     // We still need to make getLocalAddress() return a local IP after connect() so
     // we call bind(null). We have to do it here, and not lazily during getLocalAddress(),
     // because bind() may block when a concurrent receive() is on progress.
-    synchronized (stateLock) {
-      checkConnected(false);
-      if (!(addr instanceof InetSocketAddress)) {
-        throw new IllegalArgumentException(
-            "connect() requires an InetSocketAddress or a ScionSocketAddress.");
-      }
+    checkConnected(false);
+    if (!(addr instanceof InetSocketAddress)) {
+      throw new IllegalArgumentException(
+          "connect() requires an InetSocketAddress or a ScionSocketAddress.");
+    }
 
-      ScionSocketAddress destination;
-      if (addr instanceof ScionSocketAddress) {
-        destination = (ScionSocketAddress) addr;
-      } else {
-        destination = service.lookup((InetSocketAddress) addr);
-      }
+    // The lookup may block on DNS, so we do it without holding the state lock.
+    ScionSocketAddress destination;
+    if (addr instanceof ScionSocketAddress) {
+      destination = (ScionSocketAddress) addr;
+    } else {
+      destination = service.lookup((InetSocketAddress) addr);
+    }
 
-      synchronized (stateLock) {
-        checkConnected(false);
-        ensureBound();
-        if (localAddress.isAnyLocalAddress()) {
-          // Do we really need this?
-          // - It ensures that after connect we have a proper local address for getLocalAddress(),
-          //   this is what connect() should do.
-          // - It allows us to have an ANY address underneath which could help with interface
-          //   switching.
-          localAddress = getNatMapping().getExternalIP();
-        }
-        pathSelectorForConnect.open(destination);
-        isConnected = true;
-        return (C) this;
+    synchronized (stateLock) {
+      checkConnected(false);
+      ensureBound();
+      InetAddress localAddress = state.localAddress;
+      if (localAddress.isAnyLocalAddress()) {
+        // Do we really need this?
+        // - It ensures that after connect we have a proper local address for getLocalAddress(),
+        //   this is what connect() should do.
+        // - It allows us to have an ANY address underneath which could help with interface
+        //   switching.
+        localAddress = getNatMapping().getExternalIP();
       }
+      pathSelectorForConnect.open(destination);
+      State s = state.copy();
+      s.localAddress = localAddress;
+      s.isConnected = true;
+      state = s;
+      return (C) this;
     }
   }
 
@@ -391,6 +615,7 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
     synchronized (stateLock) {
       checkConnected(false);
       ensureBound();
+      InetAddress localAddress = state.localAddress;
       if (localAddress.isAnyLocalAddress()) {
         // Do we really need this?
         // - It ensures that after connect we have a proper local address for getLocalAddress(),
@@ -399,9 +624,13 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
         //   switching.
         localAddress = getNatMapping().getExternalIP();
       }
-      pathSelectorForConnectPath = PathSelectorFixed.create(path);
+      PathSelector pathSelectorForConnectPath = PathSelectorFixed.create(path);
       pathSelectorForConnectPath.open(path.getRemoteSocketAddress());
-      isConnected = true;
+      State s = state.copy();
+      s.localAddress = localAddress;
+      s.pathSelectorForConnectPath = pathSelectorForConnectPath;
+      s.isConnected = true;
+      state = s;
       return (C) this;
     }
   }
@@ -413,20 +642,17 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    * @return the current Path or `null` if not path is connected.
    */
   public Path getConnectionPath() {
-    synchronized (stateLock) {
-      return isConnected ? getPathSelector().getPath() : null;
-    }
+    return state.isConnected ? getPathSelector().getPath() : null;
   }
 
   protected Path getConnectedPathOrThrow() throws IOException {
-    synchronized (stateLock) {
-      Path path = getPathSelector().getPath();
-      if (path == null) {
-        ScionSocketAddress remote = getPathSelector().getRemoteSocketAddress();
-        throw new IOException("No path found to destination: " + remote);
-      }
-      return path;
+    PathSelector pathSelector = getPathSelector();
+    Path path = pathSelector.nextPath();
+    if (path == null) {
+      ScionSocketAddress remote = pathSelector.getRemoteSocketAddress();
+      throw new IOException("No path found to destination: " + remote);
     }
+    return path;
   }
 
   /**
@@ -437,11 +663,84 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    */
   protected ResponsePath receiveFromChannel(ByteBuffer buffer, int expectedHdrTypeId)
       throws IOException {
+    prepareReceive();
+    return receiveFromChannelPrepared(buffer, expectedHdrTypeId);
+  }
+
+  /**
+   * Ensures that the channel is ready for receiving. Callers that receive several packets in a row,
+   * e.g. in a batch, should call this once followed by {@link
+   * #receiveFromChannelPrepared(ByteBuffer, int)} for each packet.
+   *
+   * @throws IOException In case of error.
+   */
+  protected void prepareReceive() throws IOException {
+    if (!isReceiving) {
+      // From now on, SCMP errors are processed by the application's receive calls.
+      isReceiving = true;
+      synchronized (stateLock) {
+        stopScmpReader();
+      }
+    }
     ensureBound();
     ensureNatMapping(); // This can be necessary after having called disconnect()
+  }
+
+  /**
+   * Same as {@link #receiveFromChannel(ByteBuffer, int)} but requires a preceding call to {@link
+   * #prepareReceive()}.
+   *
+   * @param buffer Buffer that can take the data of the incoming packet
+   * @param expectedHdrTypeId E.g. SCMP(202) or UDP (17)
+   * @return Path that can be used for responding to the packet
+   * @throws IOException In case of error, including SCMP errors.
+   */
+  protected ResponsePath receiveFromChannelPrepared(ByteBuffer buffer, int expectedHdrTypeId)
+      throws IOException {
+    InetSocketAddress srcAddress = receiveRawFromChannel(buffer, expectedHdrTypeId);
+    if (srcAddress == null) {
+      return null;
+    }
+    return extractResponsePath(buffer, srcAddress);
+  }
+
+  /**
+   * Same as {@link #receiveFromChannelPrepared(ByteBuffer, int)} but without extracting the
+   * response path. The response path can be extracted later with {@link
+   * #extractResponsePath(ByteBuffer, InetSocketAddress)}, as long as the buffer is not modified.
+   * This avoids copying and reversing the path for packets that are never responded to.
+   *
+   * @param buffer Buffer that can take the data of the incoming packet
+   * @param expectedHdrTypeId E.g. SCMP(202) or UDP (17)
+   * @return The underlay source address or 'null' if no packet was available.
+   * @throws IOException In case of error, including SCMP errors.
+   */
+  protected InetSocketAddress receiveRawFromChannel(ByteBuffer buffer, int expectedHdrTypeId)
+      throws IOException {
+    return receiveRawFromChannel(buffer, expectedHdrTypeId, isBlocking());
+  }
+
+  /**
+   * Same as {@link #receiveRawFromChannel(ByteBuffer, int)}, but waits for a packet only if `block`
+   * is set.
+   *
+   * @param buffer Buffer that can take the data of the incoming packet
+   * @param expectedHdrTypeId E.g. SCMP(202) or UDP (17)
+   * @param block Whether to wait for a packet. 'false' requires that the channel is in non-blocking
+   *     mode or that {@link #configureUnderlayNonBlocking()} has been called.
+   * @return The underlay source address or 'null' if no packet was available.
+   * @throws IOException In case of error, including SCMP errors.
+   */
+  protected InetSocketAddress receiveRawFromChannel(
+      ByteBuffer buffer, int expectedHdrTypeId, boolean block) throws IOException {
     while (true) {
       buffer.clear();
       InetSocketAddress srcAddress = (InetSocketAddress) channel.receive(buffer);
+      while (srcAddress == null && block && !channel.isBlocking()) {
+        // Emulated blocking mode
+        awaitReady(SelectionKey.OP_READ);
+        srcAddress = (InetSocketAddress) channel.receive(buffer);
+      }
       if (srcAddress == null) {
         // this indicates nothing is available - non-blocking mode
         return null;
@@ -450,11 +749,12 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
 
       // Update NAT mapping timer. We do this before validating the packet because _any_ packet
       // is sufficient to keep the mapping alive.
+      NatMapping natMapping = state.natMapping;
       if (natMapping != null) {
         natMapping.touch(srcAddress);
       }
 
-      if (!validate(buffer.asReadOnlyBuffer())) {
+      if (!validate(buffer)) {
         continue;
       }
 
@@ -466,20 +766,41 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
       // in extensions headers.
       hdrType = receiveExtensionHeader(buffer, hdrType);
 
-      InetSocketAddress firstHopAddress = getFirstHopAddress(buffer, srcAddress);
-      ResponsePath path = ScionHeaderParser.extractResponsePath(buffer, firstHopAddress);
       if (hdrType.code() == expectedHdrTypeId) {
-        return path;
+        return srcAddress;
       } else if (hdrType == HeaderConstants.HdrTypes.SCMP) {
-        receiveScmp(buffer, path);
+        receiveScmp(buffer, extractResponsePath(buffer, srcAddress));
       } else {
         // drop silently
       }
     }
   }
 
+  /**
+   * Extract the response path without changing the buffer's position.
+   *
+   * @param buffer The packet
+   * @param srcAddress The underlay source address of the packet
+   * @return The response path
+   */
+  protected ResponsePath extractResponsePath(ByteBuffer buffer, InetSocketAddress srcAddress) {
+    ReplyPathCache cache = state.replyPathCache;
+    if (cache != null) {
+      ResponsePath path = cache.get(buffer, srcAddress);
+      if (path != null) {
+        return path;
+      }
+    }
+    InetSocketAddress firstHopAddress = getFirstHopAddress(buffer, srcAddress);
+    ResponsePath path = ScionHeaderParser.extractResponsePath(buffer, firstHopAddress);
+    if (cache != null) {
+      cache.put(buffer, srcAddress, path);
+    }
+    return path;
+  }
+
   protected InetSocketAddress getFirstHopAddress(ByteBuffer buffer, InetSocketAddress srcAddress) {
-    if (getService() != null) {
+    if (service != null) {
       int oldPos = buffer.position();
       int pathPos = ScionHeaderParser.extractPathHeaderPosition(buffer);
       // If we have a path we need to use it to get the return address.
@@ -519,46 +840,235 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
     /*
      * Behavior:
      * Error 1: Destination Unreachable -> throw NoRouteToHost or PortUnreachable
-     * Error 2: PacketTooBig -> throw ProtocolException?
+     * Error 2: PacketTooBig -> record MTU of the path, throw ProtocolException
      * Error 4: ParameterProblem -> throw ProtocolException?
      * Error 5: External Interface Down: Don't throw, report path as faulty and get next path
      * Error 6: Internal Connectivity Down: Don't throw, report path as faulty and get next path
      *
      * Errors 5 and 6 could throw NoRouteToHost if they run out of paths....
      */
-    synchronized (stateLock) {
-      if (errorListener != null && scmpMsg.getTypeCode().isError()) {
-        errorListener.accept((Scmp.ErrorMessage) scmpMsg);
-      }
-      if (!throwOnError) {
-        return;
-      }
-      switch (scmpMsg.getTypeCode().type()) {
-        case ERROR_1:
-          if (scmpMsg.getTypeCode() == Scmp.TypeCode.TYPE_1_CODE_4) {
-            throw new PortUnreachableException(scmpMsg.toString());
-          }
+    if (scmpMsg instanceof Scmp.Error2Message) {
+      mtuTracker.report((Scmp.Error2Message) scmpMsg);
+    }
+    Consumer<Scmp.ErrorMessage> errorListener = state.errorListener;
+    if (errorListener != null && scmpMsg.getTypeCode().isError()) {
+      errorListener.accept((Scmp.ErrorMessage) scmpMsg);
+    }
+    if (!throwOnError) {
+      return;
+    }
+    switch (scmpMsg.getTypeCode().type()) {
+      case ERROR_1:
+        if (scmpMsg.getTypeCode() == Scmp.TypeCode.TYPE_1_CODE_4) {
+          throw new PortUnreachableException(scmpMsg.toString());
+        }
+        throw new NoRouteToHostException(scmpMsg.toString());
+      case ERROR_2:
+      case ERROR_4:
+        throw new ProtocolException(scmpMsg.toString());
+      case ERROR_5:
+      case ERROR_6:
+        reportPathError((Scmp.ErrorMessage) scmpMsg);
+        if (!isConnected()) {
+          // We throw an exception here.
+          // Alternatively, we could just swallow the error, after all this is an unreliable
+          // protocol...
           throw new NoRouteToHostException(scmpMsg.toString());
-        case ERROR_2:
-        case ERROR_4:
-          throw new ProtocolException(scmpMsg.toString());
-        case ERROR_5:
-        case ERROR_6:
-          if (isConnected()) {
-            getPathSelector().reportError((Scmp.ErrorMessage) scmpMsg);
-          } else {
-            // We throw an exception here.
-            // Alternatively, we could just swallow the error, after all this is an unreliable
-            // protocol...
-            throw new NoRouteToHostException(scmpMsg.toString());
+        }
+        break;
+      default:
+        // ignore
+    }
+  }
+
+  /**
+   * Report an SCMP error to the path selector(s) of this channel, so that a different path is
+   * used for subsequent packets.
+   *
+   * @param error SCMP error of type 5 or 6.
+   */
+  protected void reportPathError(Scmp.ErrorMessage error) {
+    if (isConnected()) {
+      getPathSelector().reportError(error);
+    }
+  }
+
+  /**
+   * Start the background SCMP reader if it is enabled and the channel is bound. Must be called
+   * while holding the stateLock.
+   *
+   * @throws IOException If the channel cannot be registered with the reader's Selector
+   */
+  private void startScmpReader() throws IOException {
+    if (!state.cfgScmpBackgroundReader
+        || state.localAddress == null
+        || isReceiving
+        || scmpReader != null
+        || pendingSrcAddress != null
+        || !channel.isOpen()) {
+      return;
+    }
+    // The reader waits on a Selector, this requires a non-blocking underlying channel.
+    configureUnderlayNonBlocking();
+    Selector selector = channel.provider().openSelector();
+    try {
+      channel.register(selector, SelectionKey.OP_READ);
+    } catch (IOException | RuntimeException e) {
+      selector.close();
+      throw e;
+    }
+    scmpSelector = selector;
+    Thread thread = Threads.newThread(() -> scmpReaderTask(selector), "ScionChannel-scmp-reader");
+    scmpReader = thread;
+    thread.start();
+  }
+
+  /**
+   * Stop the background SCMP reader. Closing its Selector wakes it up. Must be called while holding
+   * the stateLock.
+   */
+  private void stopScmpReader() {
+    scmpReader = null;
+    closeScmpSelector();
+  }
+
+  /**
+   * Receive and process SCMP messages until the channel is closed, the reader is stopped or a user
+   * datagram arrives. The reader waits on its own Selector without holding the read lock. The read
+   * lock is only held while a packet is received and processed.
+   *
+   * <p>The first user datagram is kept as pending datagram for the next receive() call and the
+   * reader stops, so further user datagrams remain in the socket.
+   *
+   * @param selector The reader's Selector
+   */
+  private void scmpReaderTask(Selector selector) {
+    try {
+      while (scmpReader == Thread.currentThread() && channel.isOpen()) {
+        if (selector.select() == 0) {
+          continue;
+        }
+        selector.selectedKeys().clear();
+        boolean received;
+        readLock.lock();
+        try {
+          if (hasPendingSrcAddress() || scmpReader != Thread.currentThread()) {
+            return;
           }
-          break;
-        default:
-          // ignore
+          received = receiveScmpInBackground();
+          if (hasPendingSrcAddress()) {
+            return; // Further user datagrams remain in the socket.
+          }
+        } finally {
+          readLock.unlock();
+        }
+        if (!received) {
+          // Spurious wakeup or error, avoid spinning.
+          Thread.sleep(SCMP_READER_BACKOFF_MS);
+        }
+      }
+    } catch (ClosedSelectorException | IOException e) {
+      // The reader has been stopped or the channel has been closed.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      synchronized (stateLock) {
+        if (scmpReader == Thread.currentThread()) {
+          stopScmpReader();
+        }
+      }
+    }
+  }
+
+  /**
+   * Close the Selector of the background SCMP reader. Must be called while holding the stateLock.
+   */
+  private void closeScmpSelector() {
+    if (scmpSelector != null) {
+      try {
+        scmpSelector.close();
+      } catch (IOException e) {
+        // ignore
       }
+      scmpSelector = null;
     }
   }
 
+  /**
+   * Receive and process one packet. Must be called while holding the read lock. A user datagram is
+   * kept in the receive buffer, see {@link #getPendingSrcAddress()}.
+   *
+   * @return 'false' if no packet was available or if an error occurred.
+   */
+  private boolean receiveScmpInBackground() {
+    try {
+      ByteBuffer buffer = getBufferReceive(DEFAULT_BUFFER_SIZE);
+      buffer.clear();
+      // The underlying channel is non-blocking for good, this does not block.
+      InetSocketAddress srcAddress = (InetSocketAddress) channel.receive(buffer);
+      if (srcAddress == null) {
+        return false;
+      }
+      buffer.flip();
+
+      NatMapping natMapping = state.natMapping;
+      if (natMapping != null) {
+        natMapping.touch(srcAddress);
+      }
+      if (!validate(buffer)) {
+        return true;
+      }
+      HeaderConstants.HdrTypes hdrType = ScionHeaderParser.extractNextHeader(buffer);
+      buffer.position(ScionHeaderParser.extractHeaderLength(buffer));
+      hdrType = receiveExtensionHeader(buffer, hdrType);
+      if (hdrType == HeaderConstants.HdrTypes.UDP) {
+        // Keep it for the application, the reader stops.
+        pendingSrcAddress = srcAddress;
+        return true;
+      }
+      if (hdrType != HeaderConstants.HdrTypes.SCMP) {
+        return true; // drop
+      }
+      Scmp.Message scmpMsg = ScmpParser.consume(buffer, extractResponsePath(buffer, srcAddress));
+      if (scmpMsg == null) {
+        return true; // ignored SCMP type
+      }
+      checkListeners(scmpMsg, false);
+      Scmp.Type type = scmpMsg.getTypeCode().type();
+      if (type == Scmp.Type.ERROR_5 || type == Scmp.Type.ERROR_6) {
+        reportPathError((Scmp.ErrorMessage) scmpMsg);
+      }
+    } catch (IOException | RuntimeException e) {
+      // Invalid packet or channel closed. Invalid packets are counted by validate().
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * A user datagram may be received ahead of the application, e.g. by the background SCMP reader.
+   * The datagram is then kept in the receive buffer (see {@link #getBufferReceive(int)}) and
+   * should be returned by the next receive call. Must be called while holding the read lock.
+   *
+   * @return The underlay source address of the pending datagram or 'null'.
+   */
+  protected InetSocketAddress getPendingSrcAddress() {
+    return pendingSrcAddress;
+  }
+
+  /**
+   * @param srcAddress The underlay source address of a pending datagram or 'null'. Must be called
+   *     while holding the read lock.
+   * @see #getPendingSrcAddress()
+   */
+  protected void setPendingSrcAddress(InetSocketAddress srcAddress) {
+    pendingSrcAddress = srcAddress;
+  }
+
+  protected boolean hasPendingSrcAddress() {
+    return pendingSrcAddress != null;
+  }
+
   /**
    * This allows overriding the source address in SCION headers. This can be useful when a host is
    * located behind a NAT. The specified source address should in this case be the external address
@@ -567,15 +1077,20 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    * @param address The external source address
    */
   public void setOverrideSourceAddress(InetSocketAddress address) {
-    this.overrideExternalAddress = address;
+    synchronized (stateLock) {
+      State s = state.copy();
+      s.overrideExternalAddress = address;
+      state = s;
+    }
   }
 
   public InetSocketAddress getOverrideSourceAddress() {
-    return this.overrideExternalAddress;
+    return state.overrideExternalAddress;
   }
 
   private InetSocketAddress getSourceAddress(Path path) {
     // Externally visible address
+    InetSocketAddress overrideExternalAddress = state.overrideExternalAddress;
     if (overrideExternalAddress != null) {
       return overrideExternalAddress;
     }
@@ -584,7 +1099,7 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
 
   protected int sendRaw(ByteBuffer buffer, Path path) throws IOException {
     InetSocketAddress remoteHost = path.getFirstHopAddress();
-    if (getService() != null && path.getRawPath().length == 0) {
+    if (service != null && path.getRawPath().length == 0) {
       // For intra-AS traffic we need to send packets directly to the originating underlay address.
       // This is necessary to handle NAT.
       // Unfortunately this does not work if:
@@ -595,9 +1110,121 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
 
       // For intra-AS traffic we also need to respect the port range and use 30041 when applicable
       // (the remote host may be running a dispatcher).
-      remoteHost = getService().getLocalPortRange().mapToLocalPort(remoteHost);
+      remoteHost = service.getLocalPortRange().mapToLocalPort(remoteHost);
+    } else if (path.getRawPath().length > 0) {
+      // Sending to a border router. Intra-AS packets are never sent on connected sockets because
+      // the receiver responds to the underlay source address.
+      UnderlayConnections underlayConnections = state.underlayConnections;
+      if (underlayConnections != null) {
+        int sent = underlayConnections.send(buffer, remoteHost);
+        if (sent >= 0) {
+          return sent;
+        }
+      }
+    }
+    int sent = channel.send(buffer, remoteHost);
+    while (sent == 0 && buffer.hasRemaining() && isBlocking() && !channel.isBlocking()) {
+      // Emulated blocking mode, the socket's send buffer is full.
+      awaitReady(SelectionKey.OP_WRITE);
+      sent = channel.send(buffer, remoteHost);
     }
-    return channel.send(buffer, remoteHost);
+    return sent;
+  }
+
+  /**
+   * Sends a packet that consists of a header and a sequence of payload buffers. If the first hop
+   * has a connected underlay channel, the header and payload buffers are sent with a gathering
+   * write. Otherwise, the payload is copied into the header buffer.
+   *
+   * @param buffer Buffer that contains the header between 0 and the current position.
+   * @param srcs Payload buffers
+   * @param offset The offset within the buffer array of the first buffer to be sent.
+   * @param length The number of buffers to be sent.
+   * @param path The path
+   * @return The number of bytes sent, including the header.
+   * @throws IOException if an error occurs.
+   */
+  protected long sendRaw(ByteBuffer buffer, ByteBuffer[] srcs, int offset, int length, Path path)
+      throws IOException {
+    UnderlayConnections underlayConnections = state.underlayConnections;
+    if (underlayConnections != null && path.getRawPath().length > 0) {
+      ByteBuffer[] buffers = new ByteBuffer[length + 1];
+      buffers[0] = buffer;
+      System.arraycopy(srcs, offset, buffers, 1, length);
+      buffer.flip();
+      long sent = underlayConnections.write(buffers, path.getFirstHopAddress());
+      if (sent >= 0) {
+        return sent;
+      }
+      buffer.position(buffer.limit());
+      buffer.limit(buffer.capacity());
+    }
+    try {
+      for (int i = offset; i < offset + length; i++) {
+        buffer.put(srcs[i]);
+      }
+    } catch (BufferOverflowException e) {
+      throw new IOException("Packet is larger than max send buffer size.");
+    }
+    buffer.flip();
+    return sendRaw(buffer, path);
+  }
+
+  /**
+   * Returns the effective MTU of a path. This is the MTU announced in the path's metadata, or a
+   * smaller MTU that was reported for this path by an SCMP "packet too big" error. If neither is
+   * known, {@link Constants#DEFAULT_PATH_MTU} is returned.
+   *
+   * @param path The path
+   * @return The maximum size of a SCION packet (headers plus payload) on this path.
+   * @see #getMaxPayloadSize(Path)
+   */
+  public int getPathMtu(Path path) {
+    int mtu = 0;
+    if (path instanceof RequestPath) {
+      mtu = path.getMetadata().getMtu();
+    }
+    int reported = mtuTracker.getReportedMtu(path);
+    if (reported > 0 && (mtu <= 0 || reported < mtu)) {
+      mtu = reported;
+    }
+    return mtu > 0 ? mtu : Constants.DEFAULT_PATH_MTU;
+  }
+
+  /**
+   * Returns the maximum payload size of a datagram that can be sent on the path without exceeding
+   * the path's effective MTU. This takes into account the SCION header (including the path) and
+   * the UDP overlay header. The value decreases when an SCMP "packet too big" error is received
+   * for the path.
+   *
+   * @param path The path
+   * @return The maximum payload size in bytes, may be 0 if the header alone exceeds the MTU.
+   * @see #getPathMtu(Path)
+   */
+  public int getMaxPayloadSize(Path path) {
+    int headerLength =
+        ScionHeaderParser.calcHeaderLength(
+            path.getRawPath().length,
+            getSourceAddressLength(path),
+            path.getRemoteAddress().getAddress().length);
+    int overlayLength = 8; // UDP overlay header
+    return Math.max(0, getPathMtu(path) - headerLength - overlayLength);
+  }
+
+  private int getSourceAddressLength(Path path) {
+    if (path instanceof ResponsePath) {
+      return ((ResponsePath) path).getLocalAddress().getAddress().length;
+    }
+    InetSocketAddress overrideExternalAddress = state.overrideExternalAddress;
+    if (overrideExternalAddress != null) {
+      return overrideExternalAddress.getAddress().getAddress().length;
+    }
+    InetAddress localAddress = state.localAddress;
+    if (localAddress != null && !localAddress.isAnyLocalAddress()) {
+      return localAddress.getAddress().length;
+    }
+    // Unknown (e.g. NAT), assume IPv6 to be on the safe side.
+    return 16;
   }
 
   /**
@@ -608,67 +1235,72 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
    */
   public Consumer<Scmp.ErrorMessage> setScmpErrorListener(Consumer<Scmp.ErrorMessage> listener) {
     synchronized (stateLock) {
-      Consumer<Scmp.ErrorMessage> old = errorListener;
-      errorListener = listener;
+      State s = state.copy();
+      Consumer<Scmp.ErrorMessage> old = s.errorListener;
+      s.errorListener = listener;
+      state = s;
       return old;
     }
   }
 
   protected void checkService() throws IllegalStateException {
-    synchronized (stateLock) {
-      if (service == null) {
-        throw new IllegalStateException("This operation requires a ScionService.");
-      }
+    if (service == null) {
+      throw new IllegalStateException("This operation requires a ScionService.");
     }
   }
 
   protected void checkOpen() throws ClosedChannelException {
-    synchronized (stateLock) {
-      if (!channel.isOpen()) {
-        throw new ClosedChannelException();
-      }
+    if (!channel.isOpen()) {
+      throw new ClosedChannelException();
     }
   }
 
   protected void checkConnected(boolean requiredState) {
-    synchronized (stateLock) {
-      if (requiredState != isConnected) {
-        if (isConnected) {
-          throw new AlreadyConnectedException();
-        } else {
-          throw new NotYetConnectedException();
-        }
+    boolean isConnected = state.isConnected;
+    if (requiredState != isConnected) {
+      if (isConnected) {
+        throw new AlreadyConnectedException();
+      } else {
+        throw new NotYetConnectedException();
       }
     }
   }
 
   public boolean isConnected() {
-    synchronized (stateLock) {
-      return isConnected;
-    }
+    return state.isConnected;
   }
 
   @SuppressWarnings("unchecked")
   public <T> T getOption(SocketOption<T> option) throws IOException {
     checkOpen();
-    synchronized (stateLock) {
-      if (option instanceof ScionSocketOptions.SciSocketOption) {
-        if (ScionSocketOptions.SCION_API_THROW_PARSER_FAILURE.equals(option)) {
-          return (T) (Boolean) cfgReportFailedValidation;
-        } else if (ScionSocketOptions.SCION_PATH_EXPIRY_MARGIN.equals(option)) {
-          return (T) (Integer) cfgExpirationSafetyMargin;
-        } else if (ScionSocketOptions.SCION_TRAFFIC_CLASS.equals(option)) {
-          return (T) (Integer) cfgTrafficClass;
-        } else {
-          throw new UnsupportedOperationException();
-        }
-      }
-
-      if (StandardSocketOptions.SO_BROADCAST.equals(option)) {
+    if (option instanceof ScionSocketOptions.SciSocketOption) {
+      State s = state;
+      if (ScionSocketOptions.SCION_API_THROW_PARSER_FAILURE.equals(option)) {
+        return (T) (Boolean) s.cfgReportFailedValidation;
+      } else if (ScionSocketOptions.SCION_API_WRITE_TO_USER_BUFFER.equals(option)) {
+        return (T) (Boolean) s.cfgWriteToUserBuffer;
+      } else if (ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER.equals(option)) {
+        return (T) (Boolean) s.cfgScmpBackgroundReader;
+      } else if (ScionSocketOptions.SCION_PATH_EXPIRY_MARGIN.equals(option)) {
+        return (T) (Integer) s.cfgExpirationSafetyMargin;
+      } else if (ScionSocketOptions.SCION_TRAFFIC_CLASS.equals(option)) {
+        return (T) (Integer) s.cfgTrafficClass;
+      } else if (ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE.equals(option)) {
+        return (T) (Integer) s.cfgUnresolvedQueueSize;
+      } else if (ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE.equals(option)) {
+        return (T) (Integer) (s.replyPathCache == null ? 0 : s.replyPathCache.capacity());
+      } else if (ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS.equals(option)) {
+        UnderlayConnections uc = s.underlayConnections;
+        return (T) (Integer) (uc == null ? 0 : uc.capacity());
+      } else {
         throw new UnsupportedOperationException();
       }
-      return channel.getOption(option);
     }
+
+    if (StandardSocketOptions.SO_BROADCAST.equals(option)) {
+      throw new UnsupportedOperationException();
+    }
+    return channel.getOption(option);
   }
 
   @SuppressWarnings("unchecked")
@@ -676,20 +1308,51 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
     checkOpen();
     synchronized (stateLock) {
       if (option instanceof ScionSocketOptions.SciSocketOption) {
+        State s = state.copy();
         if (ScionSocketOptions.SCION_API_THROW_PARSER_FAILURE.equals(option)) {
-          cfgReportFailedValidation = (Boolean) t;
+          s.cfgReportFailedValidation = (Boolean) t;
+        } else if (ScionSocketOptions.SCION_API_WRITE_TO_USER_BUFFER.equals(option)) {
+          s.cfgWriteToUserBuffer = (Boolean) t;
+        } else if (ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER.equals(option)) {
+          s.cfgScmpBackgroundReader = (Boolean) t;
+          if (!s.cfgScmpBackgroundReader) {
+            stopScmpReader();
+          }
         } else if (ScionSocketOptions.SCION_PATH_EXPIRY_MARGIN.equals(option)) {
-          cfgExpirationSafetyMargin = (Integer) t;
-          pathSelectorForConnect.setExpirationSafetyMargin(cfgExpirationSafetyMargin);
+          s.cfgExpirationSafetyMargin = (Integer) t;
+          pathSelectorForConnect.setExpirationSafetyMargin(s.cfgExpirationSafetyMargin);
         } else if (ScionSocketOptions.SCION_TRAFFIC_CLASS.equals(option)) {
           int trafficClass = (Integer) t;
           if (trafficClass < 0 || trafficClass > 255) {
             throw new IllegalArgumentException("trafficClass is not in range 0 -- 255");
           }
-          cfgTrafficClass = trafficClass;
+          s.cfgTrafficClass = trafficClass;
+        } else if (ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE.equals(option)) {
+          int size = (Integer) t;
+          if (size < -1) {
+            throw new IllegalArgumentException("Queue size must be -1 or larger: " + size);
+          }
+          s.cfgUnresolvedQueueSize = size;
+        } else if (ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE.equals(option)) {
+          int size = (Integer) t;
+          if (size < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + size);
+          }
+          s.replyPathCache = size == 0 ? null : new ReplyPathCache(size);
+        } else if (ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS.equals(option)) {
+          int count = (Integer) t;
+          if (count < 0) {
+            throw new IllegalArgumentException("Socket count must not be negative: " + count);
+          }
+          if (s.underlayConnections != null) {
+            s.underlayConnections.close();
+          }
+          s.underlayConnections = count == 0 ? null : new UnderlayConnections(channel, count);
         } else {
           throw new UnsupportedOperationException();
         }
+        state = s;
+        startScmpReader();
       } else {
         if (StandardSocketOptions.SO_BROADCAST.equals(option)) {
           throw new UnsupportedOperationException();
@@ -701,7 +1364,15 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
   }
 
   protected int getCfgExpirationSafetyMargin() {
-    return cfgExpirationSafetyMargin;
+    return state.cfgExpirationSafetyMargin;
+  }
+
+  protected boolean getCfgWriteToUserBuffer() {
+    return state.cfgWriteToUserBuffer;
+  }
+
+  protected int getCfgUnresolvedQueueSize() {
+    return state.cfgUnresolvedQueueSize;
   }
 
   private void checkLockedForRead() {
@@ -716,14 +1387,25 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
     }
   }
 
+  private void checkNotReleased() throws ClosedChannelException {
+    // Buffers are released after the channel has been closed. Acquiring new buffers would leak
+    // them because they are never released.
+    if (!channel.isOpen()) {
+      throw new ClosedChannelException();
+    }
+  }
+
   /**
    * @param requiredSize minimum required buffer size
    * @return ByteBuffer usable for sending data.
+   * @throws ClosedChannelException if the channel is closed. The buffers have been released.
    */
-  protected final ByteBuffer getBufferSend(int requiredSize) {
+  protected final ByteBuffer getBufferSend(int requiredSize) throws ClosedChannelException {
     checkLockedForWrite();
-    if (bufferSend.capacity() < requiredSize) {
-      bufferSend = ByteBuffer.allocateDirect(requiredSize);
+    checkNotReleased();
+    if (bufferSend == null || bufferSend.capacity() < requiredSize) {
+      bufferPool.release(bufferSend);
+      bufferSend = bufferPool.acquire(requiredSize);
     }
     return bufferSend;
   }
@@ -731,15 +1413,62 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
   /**
    * @param requiredSize minimum required buffer size
    * @return ByteBuffer usable for receiving data.
+   * @throws ClosedChannelException if the channel is closed. The buffers have been released.
    */
-  protected final ByteBuffer getBufferReceive(int requiredSize) {
+  protected final ByteBuffer getBufferReceive(int requiredSize) throws ClosedChannelException {
     checkLockedForRead();
-    if (bufferReceive.capacity() < requiredSize) {
-      bufferReceive = ByteBuffer.allocateDirect(requiredSize);
+    checkNotReleased();
+    if (bufferReceive == null || bufferReceive.capacity() < requiredSize) {
+      bufferPool.release(bufferReceive);
+      bufferReceive = bufferPool.acquire(requiredSize);
     }
     return bufferReceive;
   }
 
+  /**
+   * Batch version of {@link #getBufferSend(int)}. Every slot of a batch has its own buffer.
+   *
+   * @param slot index of the packet in the batch
+   * @param requiredSize minimum required buffer size
+   * @return ByteBuffer usable for sending data.
+   * @throws ClosedChannelException if the channel is closed. The buffers have been released.
+   */
+  protected final ByteBuffer getBufferSend(int slot, int requiredSize)
+      throws ClosedChannelException {
+    checkLockedForWrite();
+    checkNotReleased();
+    if (slot >= bufferSendBatch.length) {
+      bufferSendBatch = Arrays.copyOf(bufferSendBatch, slot + 1);
+    }
+    if (bufferSendBatch[slot] == null || bufferSendBatch[slot].capacity() < requiredSize) {
+      bufferPool.release(bufferSendBatch[slot]);
+      bufferSendBatch[slot] = bufferPool.acquire(Math.max(requiredSize, DEFAULT_BUFFER_SIZE));
+    }
+    return bufferSendBatch[slot];
+  }
+
+  /**
+   * Batch version of {@link #getBufferReceive(int)}. Every slot of a batch has its own buffer.
+   *
+   * @param slot index of the packet in the batch
+   * @param requiredSize minimum required buffer size
+   * @return ByteBuffer usable for receiving data.
+   * @throws ClosedChannelException if the channel is closed. The buffers have been released.
+   */
+  protected final ByteBuffer getBufferReceive(int slot, int requiredSize)
+      throws ClosedChannelException {
+    checkLockedForRead();
+    checkNotReleased();
+    if (slot >= bufferReceiveBatch.length) {
+      bufferReceiveBatch = Arrays.copyOf(bufferReceiveBatch, slot + 1);
+    }
+    if (bufferReceiveBatch[slot] == null || bufferReceiveBatch[slot].capacity() < requiredSize) {
+      bufferPool.release(bufferReceiveBatch[slot]);
+      bufferReceiveBatch[slot] = bufferPool.acquire(Math.max(requiredSize, DEFAULT_BUFFER_SIZE));
+    }
+    return bufferReceiveBatch[slot];
+  }
+
   /**
    * @param buffer The output buffer
    * @param path path
@@ -750,52 +1479,77 @@ abstract class AbstractScionChannel<C extends AbstractScionChannel<?>> implement
   protected void buildHeader(
       ByteBuffer buffer, Path path, int payloadLength, int hdrTypeId, ByteUtil.MutInt port)
       throws IOException {
-    synchronized (stateLock) {
-      // We need to be bound to a local port in order to have a valid local address.
-      // This may be necessary for getSourceAddress(), but it is definitely necessary for
-      // consistent API behavior that getLocalAddress() should return an address after send().
-      ensureBound();
-      buffer.clear();
-      long srcIsdAs;
-      InetAddress srcAddress;
-      if (path instanceof ResponsePath) {
-        // We get the source ISD/AS and IP from the path because ScionService may be null.
-        // Also, we may be behind a NAT, so the path's address is known to be correct.
-        ResponsePath rPath = (ResponsePath) path;
-        srcIsdAs = rPath.getLocalIsdAs();
-        srcAddress = rPath.getLocalAddress();
-        port.set(rPath.getLocalPort());
-      } else {
-        RequestPath rPath = (RequestPath) path;
-        srcIsdAs = rPath.getLocalIsdAs();
-        InetSocketAddress src = getSourceAddress(path);
-        srcAddress = src.getAddress();
-        port.set(src.getPort());
-      }
+    // We need to be bound to a local port in order to have a valid local address.
+    // This may be necessary for getSourceAddress(), but it is definitely necessary for
+    // consistent API behavior that getLocalAddress() should return an address after send().
+    ensureBound();
+    // No stateLock here, this is called for every sent packet.
+    int trafficClass = state.cfgTrafficClass;
+    buffer.clear();
+    long srcIsdAs;
+    InetAddress srcAddress;
+    if (path instanceof ResponsePath) {
+      // We get the source ISD/AS and IP from the path because ScionService may be null.
+      // Also, we may be behind a NAT, so the path's address is known to be correct.
+      ResponsePath rPath = (ResponsePath) path;
+      srcIsdAs = rPath.getLocalIsdAs();
+      srcAddress = rPath.getLocalAddress();
+      port.set(rPath.getLocalPort());
+    } else {
+      RequestPath rPath = (RequestPath) path;
+      srcIsdAs = rPath.getLocalIsdAs();
+      InetSocketAddress src = getSourceAddress(path);
+      srcAddress = src.getAddress();
+      port.set(src.getPort());
+    }
 
-      byte[] rawPath = path.getRawPath();
-      ScionHeaderParser.write(
-          buffer,
-          payloadLength,
-          rawPath.length,
-          srcIsdAs,
-          srcAddress.getAddress(),
-          path.getRemoteIsdAs(),
-          path.getRemoteAddress().getAddress(),
-          hdrTypeId,
-          cfgTrafficClass);
-      ScionHeaderParser.writePath(buffer, rawPath);
+    if (headerTemplates.write(buffer, path, payloadLength, hdrTypeId, trafficClass, srcAddress)) {
+      return;
     }
+
+    byte[] rawPath = path.getRawPath();
+    ScionHeaderParser.write(
+        buffer,
+        payloadLength,
+        rawPath.length,
+        srcIsdAs,
+        srcAddress.getAddress(),
+        path.getRemoteIsdAs(),
+        path.getRemoteAddress().getAddress(),
+        hdrTypeId,
+        trafficClass);
+    ScionHeaderParser.writePath(buffer, rawPath);
+    headerTemplates.put(buffer, path, hdrTypeId, trafficClass, srcAddress);
   }
 
   protected boolean validate(ByteBuffer buffer) throws ScionException {
-    synchronized (stateLock) {
-      String validationResult = ScionHeaderParser.validate(buffer.asReadOnlyBuffer());
-      if (validationResult != null && cfgReportFailedValidation) {
-        throw new ScionException(validationResult);
+    // No stateLock here, this is called for every received packet.
+    int result = PacketValidator.validate(buffer);
+    if (result == PacketValidator.VALID) {
+      return true;
+    }
+    dropCounters.incrementAndGet(result);
+    if (state.cfgReportFailedValidation) {
+      throw new ScionException(PacketValidator.describe(result, buffer));
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of received packets that failed validation, grouped by reason. Reasons
+   * without failed packets are omitted.
+   *
+   * @return A map of reason, e.g. "INVALID_LENGTH", to the number of failed packets.
+   */
+  public Map<String, Long> getValidationFailureCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    for (int i = 0; i < dropCounters.length(); i++) {
+      long count = dropCounters.get(i);
+      if (count > 0) {
+        counts.put(PacketValidator.name(i), count);
       }
-      return validationResult == null;
     }
+    return counts;
   }
 
   protected ReentrantLock readLock() {
@@ -0,0 +1,302 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.scion.jpan.internal.util.Threads;
+
+/**
+ * An asynchronous version of {@link ScionDatagramChannel}. The send() and receive() methods return
+ * immediately, the result is reported via a {@link CompletableFuture} or a {@link
+ * CompletionHandler}.
+ *
+ * <p>Each channel uses one sender thread and one receiver thread. Path lookup for destinations
+ * that are not a {@link ScionSocketAddress} (DNS lookup and path requests to the daemon or control
+ * service) is performed by lookup threads that are shared by all channels, so send() never blocks
+ * the caller and lookups never delay sends to other destinations. Concurrent lookups for the same
+ * destination are coalesced, see {@link ScionDatagramChannel#send(ByteBuffer, SocketAddress)}.
+ *
+ * <p>Datagrams are sent in the order of the calls to send(), except for datagrams to a destination
+ * whose path lookup is still pending. These are sent in unspecified order once the lookup has
+ * completed. Receive operations are served in the order of the calls to receive().
+ *
+ * <p>Buffers must not be accessed by the caller while an operation that uses them is pending.
+ *
+ * <p>Socket options can be set on the underlying channel, see {@link #getChannel()}.
+ */
+public class AsynchronousScionDatagramChannel implements Closeable {
+
+  private static final AtomicInteger CHANNEL_IDS = new AtomicInteger();
+
+  private final ScionDatagramChannel channel;
+  private final ExecutorService ioExecutor;
+  private final ExecutorService receiveExecutor;
+
+  private AsynchronousScionDatagramChannel(ScionDatagramChannel channel) {
+    this.channel = channel;
+    String name = "AsynchronousScionDatagramChannel-" + CHANNEL_IDS.getAndIncrement();
+    // A single sender thread preserves the order of sends, more threads would only contend for the
+    // write lock of the channel.
+    this.ioExecutor = Executors.newSingleThreadExecutor(Threads.factory(name + "-sender"));
+    this.receiveExecutor = Executors.newSingleThreadExecutor(Threads.factory(name + "-receiver"));
+  }
+
+  /**
+   * Creates a channel with the default ScionService.
+   *
+   * @return new channel
+   * @throws IOException in case of an error
+   */
+  public static AsynchronousScionDatagramChannel open() throws IOException {
+    return newBuilder().open();
+  }
+
+  /**
+   * Creates a channel with a specific ScionService instance. The instance can be 'null', see {@link
+   * ScionDatagramChannel#open(ScionService)}.
+   *
+   * @param service ScionService.
+   * @return new channel
+   * @throws IOException if an error occurs
+   */
+  public static AsynchronousScionDatagramChannel open(ScionService service) throws IOException {
+    return newBuilder().service(service).open();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public AsynchronousScionDatagramChannel bind(InetSocketAddress address) throws IOException {
+    channel.bind(address);
+    return this;
+  }
+
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return channel.getLocalAddress();
+  }
+
+  /**
+   * @return The underlying channel. It can be used to set options or to register an SCMP error
+   *     listener. The underlying channel must not be used for sending or receiving and it must
+   *     remain in blocking mode.
+   */
+  public ScionDatagramChannel getChannel() {
+    return channel;
+  }
+
+  public boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  /**
+   * Sends the content of the buffer to the destination.
+   *
+   * @param srcBuffer Data to send
+   * @param destination Destination address. If this is not a ScionSocketAddress, the path is looked
+   *     up asynchronously, see {@link ScionDatagramChannel#send(ByteBuffer, SocketAddress)}.
+   * @return A future that completes with the number of bytes sent.
+   * @see ScionDatagramChannel#send(ByteBuffer, SocketAddress)
+   */
+  public CompletableFuture<Integer> send(ByteBuffer srcBuffer, SocketAddress destination) {
+    if (!(destination instanceof InetSocketAddress)) {
+      throw new IllegalArgumentException("Address must be of type InetSocketAddress.");
+    }
+    if (destination instanceof ScionPathAddress) {
+      return send(srcBuffer, ((ScionPathAddress) destination).getPath());
+    }
+    return channel
+        .resolvePathAsync((InetSocketAddress) destination)
+        .thenCompose(path -> send(srcBuffer, path));
+  }
+
+  /**
+   * Sends the content of the buffer along the path.
+   *
+   * @param srcBuffer Data to send
+   * @param path Path to destination. Expiration is *not* verified.
+   * @return A future that completes with the number of bytes sent.
+   * @see ScionDatagramChannel#send(ByteBuffer, Path)
+   */
+  public CompletableFuture<Integer> send(ByteBuffer srcBuffer, Path path) {
+    return execute(ioExecutor, () -> channel.send(srcBuffer, path));
+  }
+
+  /**
+   * Sends the content of the buffer to the destination.
+   *
+   * @param srcBuffer Data to send
+   * @param destination Destination address
+   * @param attachment The object to attach to the operation; can be null
+   * @param handler The handler for consuming the result, i.e. the number of bytes sent.
+   * @param <A> The type of the attachment
+   * @see #send(ByteBuffer, SocketAddress)
+   */
+  public <A> void send(
+      ByteBuffer srcBuffer,
+      SocketAddress destination,
+      A attachment,
+      CompletionHandler<Integer, ? super A> handler) {
+    complete(send(srcBuffer, destination), attachment, handler);
+  }
+
+  /**
+   * Receives a datagram. The payload is written to the buffer as in {@link
+   * ScionDatagramChannel#receive(ByteBuffer)}.
+   *
+   * @param userBuffer The buffer for the payload
+   * @return A future that completes with the source address of the datagram.
+   * @see ScionDatagramChannel#receive(ByteBuffer)
+   */
+  public CompletableFuture<ScionPathAddress> receive(ByteBuffer userBuffer) {
+    return execute(receiveExecutor, () -> channel.receive(userBuffer));
+  }
+
+  /**
+   * Receives a datagram.
+   *
+   * @param userBuffer The buffer for the payload
+   * @param attachment The object to attach to the operation; can be null
+   * @param handler The handler for consuming the result, i.e. the source address of the datagram.
+   * @param <A> The type of the attachment
+   * @see #receive(ByteBuffer)
+   */
+  public <A> void receive(
+      ByteBuffer userBuffer, A attachment, CompletionHandler<ScionPathAddress, ? super A> handler) {
+    complete(receive(userBuffer), attachment, handler);
+  }
+
+  /**
+   * Closes the channel. Pending operations complete exceptionally with an {@link
+   * AsynchronousCloseException}.
+   *
+   * @throws IOException If an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+    } finally {
+      // Pending lookups are aborted by closing the channel.
+      for (ExecutorService executor : new ExecutorService[] {ioExecutor, receiveExecutor}) {
+        for (Runnable runnable : executor.shutdownNow()) {
+          if (runnable instanceof Task) {
+            ((Task<?>) runnable).abort();
+          }
+        }
+      }
+    }
+  }
+
+  private <T> CompletableFuture<T> execute(ExecutorService executor, IOCallable<T> callable) {
+    Task<T> task = new Task<>(callable);
+    if (!channel.isOpen()) {
+      task.result.completeExceptionally(new ClosedChannelException());
+      return task.result;
+    }
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.abort();
+    }
+    return task.result;
+  }
+
+  private static <V, A> void complete(
+      CompletableFuture<V> future, A attachment, CompletionHandler<V, ? super A> handler) {
+    future.whenComplete(
+        (value, t) -> {
+          if (t == null) {
+            handler.completed(value, attachment);
+          } else {
+            handler.failed(t instanceof CompletionException ? t.getCause() : t, attachment);
+          }
+        });
+  }
+
+  @FunctionalInterface
+  private interface IOCallable<T> {
+    T call() throws IOException;
+  }
+
+  private static class Task<T> implements Runnable {
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final IOCallable<T> callable;
+
+    private Task(IOCallable<T> callable) {
+      this.callable = callable;
+    }
+
+    @Override
+    public void run() {
+      try {
+        result.complete(callable.call());
+      } catch (ClosedChannelException e) {
+        // The operation was accepted while the channel was open.
+        result.completeExceptionally(
+            e instanceof AsynchronousCloseException ? e : new AsynchronousCloseException());
+      } catch (IOException | RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    }
+
+    private void abort() {
+      result.completeExceptionally(new AsynchronousCloseException());
+    }
+  }
+
+  public static class Builder {
+    private final ScionDatagramChannel.Builder channelBuilder = ScionDatagramChannel.newBuilder();
+
+    /**
+     * @param channel A {@link DatagramChannel} to be used. The default is the plain {@link
+     *     DatagramChannel}.
+     * @return This builder.
+     */
+    public Builder channel(DatagramChannel channel) {
+      channelBuilder.channel(channel);
+      return this;
+    }
+
+    /**
+     * @param service A {@link ScionService} to be used. The default is the {@link
+     *     ScionService#defaultService()}. The service can be explicitly set to `null` if no
+     *     ScionService should be used.
+     * @return This builder.
+     */
+    public Builder service(ScionService service) {
+      channelBuilder.service(service);
+      return this;
+    }
+
+    public AsynchronousScionDatagramChannel open() throws IOException {
+      return new AsynchronousScionDatagramChannel(channelBuilder.open());
+    }
+  }
+}
@@ -68,6 +68,16 @@ public final class Constants {
 
   public static final double DEFAULT_CONTROL_PLANE_TIMEOUT_MS = 10_000;
 
+  /**
+   * Hedge requests to control services and path services. If a service does not answer within the
+   * 95th percentile of its recent latencies, the request is also sent to the next service and the
+   * first answer is used. Default is "false".
+   */
+  public static final String PROPERTY_CONTROL_PLANE_HEDGING = "org.scion.controlPlane.hedging";
+
+  public static final String ENV_CONTROL_PLANE_HEDGING = "SCION_CONTROL_PLANE_HEDGING";
+  public static final boolean DEFAULT_CONTROL_PLANE_HEDGING = false;
+
   /** Paths are refreshed when their expiry is less than X seconds away. */
   public static final String PROPERTY_PATH_EXPIRY_MARGIN = "org.scion.pathExpiryMargin";
 
@@ -86,6 +96,38 @@ public final class Constants {
   /** Interval (in seconds) between polling request for new or updated paths. */
   public static final int DEFAULT_PATH_POLLING_INTERVAL = 60;
 
+  /**
+   * Segments from the control service or path service are cached for at most X seconds. Entries
+   * also expire with the segments they contain. '0' disables the cache.
+   */
+  public static final String PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC = "org.scion.segmentCacheMaxAgeSec";
+
+  /**
+   * Segments from the control service or path service are cached for at most X seconds. Entries
+   * also expire with the segments they contain. '0' disables the cache.
+   */
+  public static final String ENV_SEGMENT_CACHE_MAX_AGE_SEC = "SCION_SEGMENT_CACHE_MAX_AGE_SEC";
+
+  /** Maximum time (in seconds) that segments are cached. */
+  public static final int DEFAULT_SEGMENT_CACHE_MAX_AGE = 60;
+
+  /**
+   * Paths of a ScionService are cached for at most X seconds. The cache is shared by all channels
+   * and path selectors of the service. Entries also expire with the paths they contain. '0'
+   * disables the cache.
+   */
+  public static final String PROPERTY_PATH_CACHE_MAX_AGE_SEC = "org.scion.pathCacheMaxAgeSec";
+
+  /**
+   * Paths of a ScionService are cached for at most X seconds. The cache is shared by all channels
+   * and path selectors of the service. Entries also expire with the paths they contain. '0'
+   * disables the cache.
+   */
+  public static final String ENV_PATH_CACHE_MAX_AGE_SEC = "SCION_PATH_CACHE_MAX_AGE_SEC";
+
+  /** Maximum time (in seconds) that paths are cached. */
+  public static final int DEFAULT_PATH_CACHE_MAX_AGE = 10;
+
   /**
    * Semicolon separated list of full paths of SCION hosts files. On Linux the default is
    * "/etc/scion/hosts".
@@ -117,6 +159,15 @@ public final class Constants {
 
   public static final String ENV_SHIM = "SCION_SHIM";
 
+  /**
+   * Use virtual threads for internal threads, e.g. the SHIM, the SCMP receiver and timers. This is
+   * only supported with Java 21 or later and ignored otherwise. Default is "false".
+   */
+  public static final String PROPERTY_VIRTUAL_THREADS = "org.scion.virtualThreads";
+
+  public static final String ENV_VIRTUAL_THREADS = "SCION_VIRTUAL_THREADS";
+  public static final boolean DEFAULT_VIRTUAL_THREADS = false;
+
   /**
    * Use STUN to detect external IP addresses.
    *
@@ -175,6 +226,13 @@ public final class Constants {
   public static final String DEFAULT_NAPI_SEGMENT_SERVICE_NAME =
       "scion.endhost.v1.SegmentsService/ListSegments";
 
+  /**
+   * MTU (maximum size of a SCION packet including all SCION headers) that is assumed for paths that
+   * do not announce an MTU. This is the IPv6 minimum MTU (1280) minus IPv6 and UDP underlay
+   * headers.
+   */
+  public static final int DEFAULT_PATH_MTU = 1232;
+
   /**
    * Non-public property that allows ignoring all environment variables. This is useful for running
    * the tests on a host with a SCION installation.
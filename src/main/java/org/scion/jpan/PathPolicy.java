@@ -84,6 +84,34 @@ public interface PathPolicy {
     }
   }
 
+  /**
+   * This policy orders paths by MTU, largest MTU first. Paths with equal MTU keep the order of the
+   * base policy. Paths that do not announce an MTU are treated as having the smallest MTU. This is
+   * useful for bulk transfers, because a larger MTU allows sending fewer but larger datagrams.
+   *
+   * @see ScionDatagramChannel#getMaxPayloadSize(Path)
+   */
+  class MaxMtu implements PathPolicy {
+    private final PathPolicy base;
+
+    public MaxMtu() {
+      this(DEFAULT);
+    }
+
+    public MaxMtu(PathPolicy base) {
+      this.base = base;
+    }
+
+    @Override
+    public List<Path> filter(List<Path> paths) {
+      List<Path> result = new ArrayList<>(base.filter(paths));
+      // List.sort() is stable, so the order of the base policy is retained for equal MTUs.
+      result.sort(
+          (p1, p2) -> Integer.compare(p2.getMetadata().getMtu(), p1.getMetadata().getMtu()));
+      return result;
+    }
+  }
+
   class IsdAllow implements PathPolicy {
     private final Set<Integer> allowedIsds;
 
@@ -165,6 +193,57 @@ public interface PathPolicy {
     }
   }
 
+  /**
+   * This policy orders paths such that the first paths are as link-disjoint as possible. Paths are
+   * picked greedily: the next path is always the one that shares the fewest links with the paths
+   * that were picked before. Ties are resolved by the order of the base policy.
+   *
+   * <p>This is useful when sending over multiple paths at once, e.g. with {@link
+   * ScionRedundantChannel}, because a single broken link then affects as few paths as possible.
+   */
+  class Disjoint implements PathPolicy {
+    private final PathPolicy base;
+
+    public Disjoint(PathPolicy base) {
+      this.base = base;
+    }
+
+    @Override
+    public List<Path> filter(List<Path> paths) {
+      List<Path> remaining = new ArrayList<>(base.filter(paths));
+      List<Path> result = new ArrayList<>(remaining.size());
+      while (!remaining.isEmpty()) {
+        int bestIndex = 0;
+        int bestShared = Integer.MAX_VALUE;
+        for (int i = 0; i < remaining.size() && bestShared > 0; i++) {
+          int shared = countSharedLinks(remaining.get(i), result);
+          if (shared < bestShared) {
+            bestShared = shared;
+            bestIndex = i;
+          }
+        }
+        result.add(remaining.remove(bestIndex));
+      }
+      return result;
+    }
+
+    private static int countSharedLinks(Path path, List<Path> picked) {
+      // Interfaces come in pairs per link. The egress interface identifies the link.
+      List<PathMetadata.PathInterface> ifs = path.getMetadata().getInterfaces();
+      int shared = 0;
+      for (int i = 0; i + 1 < ifs.size(); i += 2) {
+        PathMetadata.PathInterface pif = ifs.get(i);
+        for (Path p : picked) {
+          if (ScionUtil.isPathUsingInterface(p.getMetadata(), pif.getIsdAs(), pif.getId())) {
+            shared++;
+            break;
+          }
+        }
+      }
+      return shared;
+    }
+  }
+
   /**
    * @param paths A list of candidate paths
    * @return A list of paths ordered by preference (most preferred first).
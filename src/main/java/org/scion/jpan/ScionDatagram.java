@@ -0,0 +1,70 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A received datagram, as published by {@link ScionDatagramPublisher}. The datagram owns its
+ * payload buffer. The response path is only extracted (and reversed) when it is requested via
+ * {@link #getPath()} or {@link #getRemoteSocketAddress()}.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class ScionDatagram {
+
+  private final ByteBuffer payload;
+  private final ScionPacketDescriptor descriptor;
+
+  ScionDatagram(ByteBuffer payload, ScionPacketDescriptor descriptor) {
+    this.payload = payload;
+    this.descriptor = descriptor;
+  }
+
+  /**
+   * @return The payload between position and limit.
+   */
+  public ByteBuffer getPayload() {
+    return payload;
+  }
+
+  /**
+   * @return The path that can be used to respond to the datagram.
+   */
+  public ResponsePath getPath() {
+    return descriptor.getPath();
+  }
+
+  /**
+   * @return The address of the sender of the datagram.
+   */
+  public ScionPathAddress getRemoteSocketAddress() {
+    return descriptor.getRemoteSocketAddress();
+  }
+
+  /**
+   * @return The ISD/AS of the sender of the datagram.
+   */
+  public long getRemoteIsdAs() {
+    return descriptor.getRemoteIsdAs();
+  }
+
+  /**
+   * @return The port of the sender of the datagram.
+   */
+  public int getRemotePort() {
+    return descriptor.getRemotePort();
+  }
+}
@@ -16,22 +16,49 @@ package org.scion.jpan;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.*;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
 import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import org.scion.jpan.internal.header.HeaderConstants;
 import org.scion.jpan.internal.header.ScionHeaderParser;
 import org.scion.jpan.internal.util.ByteUtil;
 import org.scion.jpan.internal.util.SimpleCache;
+import org.scion.jpan.internal.util.Threads;
 import org.scion.jpan.selectors.PathSelector;
 import org.scion.jpan.selectors.PathSelectorFactory;
 import org.scion.jpan.selectors.PathSelectorWithRefresh;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChannel>
-    implements ByteChannel, Closeable {
+    implements ByteChannel, GatheringByteChannel, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ScionDatagramChannel.class);
+  private static final int RESOLVER_THREADS = 8;
+  private static final int RESOLVER_QUEUE_SIZE = 1000;
+  // Path lookups that are not performed in the caller's thread, shared by all channels. Lookups
+  // are rejected if too many are pending.
+  private static final ThreadPoolExecutor resolver = createResolver();
 
   // Store one path per (non-Scion-)destination address
   // We do not use a WeakHashMap here.
@@ -41,8 +68,20 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
   // pressure because restoring an entry causes additional objects to be created.
   //
   // Overall, a predictable SimpleCache seems better.
-  private final SimpleCache<InetSocketAddress, PathSelector> resolvedDestinations =
+  //
+  // Entries are created before the path lookup starts, so that concurrent senders to the same
+  // destination can wait for the same lookup (single flight).
+  private final SimpleCache<InetSocketAddress, Resolution> resolvedDestinations =
       new SimpleCache<>(100, true);
+  // Guards resolvedDestinations. The lock is never held during path lookup. We use a ReentrantLock
+  // instead of `synchronized` to avoid pinning virtual threads.
+  private final ReentrantLock resolveLock = new ReentrantLock();
+  // Guarded by readLock
+  private final ScionPacketDescriptor receiveDescriptor = new ScionPacketDescriptor();
+  // Written under readLock. Error that occurred during selection, reported by the next receive.
+  private volatile IOException pendingException;
+  // Selectors that this channel has been registered with, they are woken up when it is closed.
+  private final Set<ScionSelector> selectors = ConcurrentHashMap.newKeySet();
 
   protected ScionDatagramChannel(
       ScionService service,
@@ -98,25 +137,304 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
   //  this can be changed to return SelectableChannel.
   @Override
   public void configureBlocking(boolean block) throws IOException {
+    if (block && selectors.stream().anyMatch(s -> s.isRegistered(channel()))) {
+      // The underlying channel may be non-blocking, see receiveBatch().
+      throw new IllegalBlockingModeException();
+    }
     super.configureBlocking(block);
   }
 
+  /**
+   * Registers this channel with the given selector. The channel must be in non-blocking mode.
+   *
+   * <p>A selector reports {@link SelectionKey#OP_READ} only when a user datagram is available. SCMP
+   * and invalid packets are consumed during selection. Closing the channel wakes up the selector.
+   *
+   * @param selector The selector
+   * @param ops The interest set, a combination of {@link SelectionKey#OP_READ} and {@link
+   *     SelectionKey#OP_WRITE}.
+   * @param attachment The attachment for the resulting key, may be 'null'.
+   * @return A key representing the registration of this channel with the selector.
+   * @throws IllegalBlockingModeException If this channel is in blocking mode.
+   * @throws IOException If an I/O error occurs, e.g. if the channel is closed.
+   * @see java.nio.channels.SelectableChannel#register(java.nio.channels.Selector, int, Object)
+   */
+  public ScionSelectionKey register(ScionSelector selector, int ops, Object attachment)
+      throws IOException {
+    checkOpen();
+    if (isBlocking()) {
+      // The underlying channel may be non-blocking, see receiveBatch().
+      throw new IllegalBlockingModeException();
+    }
+    // Ensure that we can receive packets
+    prepareReceive();
+    ScionSelectionKey key = selector.register(this, channel(), ops, attachment);
+    selectors.add(selector);
+    return key;
+  }
+
+  /**
+   * Receive the next user datagram into the receive buffer, if available. This is called by a
+   * {@link ScionSelector} when the underlying channel is readable.
+   *
+   * @return 'true' if a user datagram or an error is pending.
+   */
+  boolean pollUserPacket() {
+    readLock().lock();
+    try {
+      if (hasPendingPacket()) {
+        return true;
+      }
+      prepareReceive();
+      // The buffer has the size of the largest buffer used so far, see reserveReceiveBuffer().
+      // Larger datagrams are truncated. They fail validation and are counted as INVALID_LENGTH.
+      ByteBuffer buffer = getBufferReceive(DEFAULT_BUFFER_SIZE);
+      setPendingSrcAddress(receiveRawFromChannel(buffer, HeaderConstants.HdrTypes.UDP.code()));
+      return hasPendingSrcAddress();
+    } catch (IOException e) {
+      pendingException = e;
+      return true;
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  /**
+   * Ensures that the internal receive buffer has at least the given size. Datagrams that are
+   * received during selection must fit into this buffer.
+   *
+   * @param size Maximum size of a SCION packet, including all headers.
+   * @throws IOException If the channel is closed.
+   */
+  void reserveReceiveBuffer(int size) throws IOException {
+    readLock().lock();
+    try {
+      if (!hasPendingSrcAddress()) {
+        // A pending datagram is stored in the receive buffer, it must not be replaced.
+        getBufferReceive(size);
+      }
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  boolean hasPendingPacket() {
+    return hasPendingSrcAddress() || pendingException != null;
+  }
+
+  /**
+   * Receives a datagram. The payload is copied into the buffer, unless {@link
+   * ScionSocketOptions#SCION_API_WRITE_TO_USER_BUFFER} is enabled.
+   *
+   * @param userBuffer Buffer for the payload
+   * @return The address of the sender or 'null' if this channel is in non-blocking mode and no
+   *     datagram was available.
+   * @throws IOException if an error occurs.
+   * @see java.nio.channels.DatagramChannel#receive(ByteBuffer)
+   */
   public ScionPathAddress receive(ByteBuffer userBuffer) throws IOException {
     readLock().lock();
     try {
-      ByteBuffer buffer = getBufferReceive(userBuffer.capacity());
-      ResponsePath receivePath = receiveFromChannel(buffer, HeaderConstants.HdrTypes.UDP.code());
-      if (receivePath == null) {
+      if (!receivePayload(userBuffer, getCfgWriteToUserBuffer(), receiveDescriptor)) {
+        return null; // non-blocking, nothing available
+      }
+      return receiveDescriptor.getRemoteSocketAddress();
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  /**
+   * Receives a datagram. The payload is copied into the buffer, unless {@link
+   * ScionSocketOptions#SCION_API_WRITE_TO_USER_BUFFER} is enabled. Header information is stored in
+   * the descriptor, which can be reused for subsequent calls.
+   *
+   * <p>Unlike {@link #receive(ByteBuffer)}, this method does not extract the response path unless
+   * it is requested from the descriptor. This is useful if most packets are not responded to.
+   *
+   * @param userBuffer Buffer for the payload
+   * @param descriptor Descriptor for the header information
+   * @return The descriptor or 'null' if this channel is in non-blocking mode and no datagram was
+   *     available.
+   * @throws IOException if an error occurs.
+   */
+  public ScionPacketDescriptor receive(ByteBuffer userBuffer, ScionPacketDescriptor descriptor)
+      throws IOException {
+    readLock().lock();
+    try {
+      if (!receivePayload(userBuffer, getCfgWriteToUserBuffer(), descriptor)) {
         return null; // non-blocking, nothing available
       }
-      ScionHeaderParser.extractUserPayload(buffer, userBuffer);
+      return descriptor;
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  /**
+   * @param userBuffer Buffer for the payload
+   * @param writeToUserBuffer Whether to receive directly into the user buffer
+   * @param descriptor Descriptor for header information, may be 'null'
+   * @return 'false' if no packet was available, otherwise 'true'.
+   * @throws IOException in case of IOException.
+   */
+  private boolean receivePayload(
+      ByteBuffer userBuffer, boolean writeToUserBuffer, ScionPacketDescriptor descriptor)
+      throws IOException {
+    IOException exception = pendingException;
+    if (exception != null) {
+      pendingException = null;
+      throw exception;
+    }
+    if (hasPendingSrcAddress()) {
+      receivePending(userBuffer, writeToUserBuffer, descriptor);
+      return true;
+    }
+
+    if (writeToUserBuffer) {
+      int oldPos = userBuffer.position();
+      int oldLimit = userBuffer.limit();
+      prepareReceive();
+      InetSocketAddress srcAddress =
+          receiveRawFromChannel(userBuffer, HeaderConstants.HdrTypes.UDP.code());
+      if (srcAddress == null) {
+        // non-blocking, nothing available
+        userBuffer.limit(oldLimit);
+        userBuffer.position(oldPos);
+        return false;
+      }
+      if (descriptor != null) {
+        descriptor.reset(this, userBuffer, srcAddress);
+      }
+      // Expose the payload, the limit is already at the end of the packet.
+      userBuffer.position(ScionHeaderParser.extractHeaderLength(userBuffer) + 8);
+      return true;
+    }
+
+    ByteBuffer buffer = getBufferReceive(userBuffer.capacity());
+    prepareReceive();
+    InetSocketAddress srcAddress =
+        receiveRawFromChannel(buffer, HeaderConstants.HdrTypes.UDP.code());
+    if (srcAddress == null) {
+      return false; // non-blocking, nothing available
+    }
+    if (descriptor != null) {
+      descriptor.reset(this, buffer, srcAddress);
+    }
+    ScionHeaderParser.extractUserPayload(buffer, userBuffer);
+    buffer.clear();
+    return true;
+  }
+
+  /**
+   * Same as receivePayload(), but for a datagram that was received during selection or by the
+   * background SCMP reader.
+   */
+  private void receivePending(
+      ByteBuffer userBuffer, boolean writeToUserBuffer, ScionPacketDescriptor descriptor)
+      throws IOException {
+    // The pending datagram is in the receive buffer, make sure the buffer is not replaced.
+    ByteBuffer buffer = getBufferReceive(0);
+    InetSocketAddress srcAddress = getPendingSrcAddress();
+    setPendingSrcAddress(null);
+    if (writeToUserBuffer) {
+      int payloadStart = ScionHeaderParser.extractHeaderLength(buffer) + 8;
+      buffer.position(0);
+      if (userBuffer.capacity() < buffer.remaining()) {
+        buffer.clear();
+        throw new IOException("Buffer too small for datagram: " + userBuffer.capacity());
+      }
+      userBuffer.clear();
+      userBuffer.put(buffer);
+      userBuffer.flip();
       buffer.clear();
-      return receivePath.getRemoteSocketAddress();
+      if (descriptor != null) {
+        descriptor.reset(this, userBuffer, srcAddress);
+      }
+      userBuffer.position(payloadStart);
+      return;
+    }
+
+    if (descriptor != null) {
+      descriptor.reset(this, buffer, srcAddress);
+    }
+    ScionHeaderParser.extractUserPayload(buffer, userBuffer);
+    buffer.clear();
+  }
+
+  /**
+   * Receives a batch of datagrams. The payload of the n-th datagram is copied into the n-th buffer
+   * and the sender's address is stored at the n-th position in `addresses`.
+   *
+   * <p>Locks are acquired only once per batch. In blocking mode this method blocks until at least
+   * one datagram is received, further datagrams are received only if they are already available.
+   * In non-blocking mode this method returns when no more datagrams are available.
+   *
+   * <p>In blocking mode, the first batch switches the underlying DatagramChannel to non-blocking
+   * mode for good. Blocking operations of this channel then wait on a {@link
+   * java.nio.channels.Selector}.
+   *
+   * @param userBuffers Buffers for the payload of received datagrams.
+   * @param addresses Array that receives the source addresses. Must have at least the length of
+   *     `userBuffers`.
+   * @return The number of datagrams received.
+   * @throws IOException if an error occurs.
+   * @see #receive(ByteBuffer)
+   */
+  public int receiveBatch(ByteBuffer[] userBuffers, ScionPathAddress[] addresses)
+      throws IOException {
+    if (addresses.length < userBuffers.length) {
+      throw new IllegalArgumentException("Address array is shorter than buffer array.");
+    }
+    readLock().lock();
+    try {
+      prepareReceive();
+      int start = 0;
+      if (userBuffers.length > 0 && hasPendingPacket()) {
+        // Datagram (or error) from a previous selection
+        receivePayload(userBuffers[0], false, receiveDescriptor);
+        addresses[0] = receiveDescriptor.getRemoteSocketAddress();
+        start = 1;
+      }
+      if (userBuffers.length > 1 && isBlocking()) {
+        // Further datagrams are received without blocking. This switches the underlying channel to
+        // non-blocking mode once, blocking receives then wait on a Selector.
+        configureUnderlayNonBlocking();
+      }
+      if (start == 0 && userBuffers.length > 0) {
+        // Only the first datagram may block.
+        if (!receiveBatchElement(userBuffers, addresses, 0, isBlocking())) {
+          return 0;
+        }
+        start = 1;
+      }
+      for (int i = start; i < userBuffers.length; i++) {
+        if (!receiveBatchElement(userBuffers, addresses, i, false)) {
+          return i; // nothing available
+        }
+      }
+      return userBuffers.length;
     } finally {
       readLock().unlock();
     }
   }
 
+  private boolean receiveBatchElement(
+      ByteBuffer[] userBuffers, ScionPathAddress[] addresses, int i, boolean block)
+      throws IOException {
+    ByteBuffer buffer = getBufferReceive(i, userBuffers[i].capacity());
+    InetSocketAddress srcAddress =
+        receiveRawFromChannel(buffer, HeaderConstants.HdrTypes.UDP.code(), block);
+    if (srcAddress == null) {
+      return false;
+    }
+    ResponsePath receivePath = extractResponsePath(buffer, srcAddress);
+    ScionHeaderParser.extractUserPayload(buffer, userBuffers[i]);
+    buffer.clear();
+    addresses[i] = receivePath.getRemoteSocketAddress();
+    return true;
+  }
+
   /**
    * Attempts to send the content of the buffer to the destination Address.
    *
@@ -124,6 +442,10 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
    * Otherwise, if the `destination` is of type {@link ScionPathAddress}, the contained path is used
    * directly. Path expiration is *not* checked.
    *
+   * <p>Path lookup for a new destination does not block senders to other destinations. Concurrent
+   * senders to the same destination share one lookup. By default, send() blocks until the lookup
+   * has completed, see {@link ScionSocketOptions#SCION_UNRESOLVED_QUEUE_SIZE} for alternatives.
+   *
    * @param srcBuffer Data to send
    * @param destination Destination address. If this is not a ScionSocketAddress, this should
    *     contain a host name known to the DNS so that the ISD/AS information can be retrieved.
@@ -142,22 +464,252 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
     }
 
     InetSocketAddress dst = (InetSocketAddress) destination;
+    int queueSize = getCfgUnresolvedQueueSize();
+    if (queueSize < 0) {
+      return sendInternal(srcBuffer, resolvePath(dst));
+    }
+    return sendOrEnqueue(srcBuffer, dst, queueSize);
+  }
+
+  private Path resolvePath(InetSocketAddress dst) throws IOException {
+    return getPath(resolvePathSelector(dst), dst);
+  }
+
+  /**
+   * Returns the path selector for a destination. The selector is created by the {@link
+   * PathSelectorFactory} of this channel and shared with {@link #send(ByteBuffer, SocketAddress)},
+   * i.e. it receives SCMP errors of this channel.
+   *
+   * @param dst Destination address
+   * @return The path selector
+   * @throws IOException if the path lookup fails.
+   */
+  PathSelector resolvePathSelector(InetSocketAddress dst) throws IOException {
+    checkService(dst);
+    while (true) {
+      Resolution resolution;
+      boolean isNew = false;
+      resolveLock.lock();
+      try {
+        resolution = resolvedDestinations.get(dst);
+        if (resolution == null || resolution.future.isCompletedExceptionally()) {
+          resolution = new Resolution();
+          resolvedDestinations.put(dst, resolution);
+          isNew = true;
+        }
+      } finally {
+        resolveLock.unlock();
+      }
+      if (isNew) {
+        // Single flight: only the first caller performs the lookup, other callers wait for it.
+        resolve(dst, resolution);
+      }
+      PathSelector pathSelector = await(resolution);
+      if (pathSelector != null) {
+        return pathSelector;
+      }
+      // The resolution was evicted from the cache before it completed, try again.
+    }
+  }
+
+  /**
+   * Resolves the path for a destination without blocking the caller. The lookup is shared with
+   * {@link #send(ByteBuffer, SocketAddress)}, i.e. concurrent lookups for the same destination are
+   * coalesced and the path selector receives SCMP errors of this channel.
+   *
+   * @param dst Destination address
+   * @return A future that completes with the path.
+   */
+  CompletableFuture<Path> resolvePathAsync(InetSocketAddress dst) {
+    CompletableFuture<Path> result = new CompletableFuture<>();
+    Resolution resolution;
+    try {
+      checkService(dst);
+      if (!isOpen()) {
+        throw new ClosedChannelException();
+      }
+    } catch (IOException | RuntimeException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    resolveLock.lock();
+    try {
+      resolution = resolvedDestinations.get(dst);
+      if (resolution == null || resolution.future.isCompletedExceptionally()) {
+        resolution = new Resolution();
+        resolvedDestinations.put(dst, resolution);
+        startResolve(dst, resolution);
+      }
+    } finally {
+      resolveLock.unlock();
+    }
+    resolution.future.whenComplete(
+        (pathSelector, t) -> {
+          if (t == null) {
+            try {
+              result.complete(getPath(pathSelector, dst));
+            } catch (IOException | RuntimeException e) {
+              result.completeExceptionally(e);
+            }
+          } else if (t instanceof AsynchronousCloseException && isOpen()) {
+            // The resolution was evicted from the cache before it completed, try again.
+            resolvePathAsync(dst)
+                .whenComplete((path, t2) -> complete(result, path, t2));
+          } else {
+            result.completeExceptionally(t);
+          }
+        });
+    return result;
+  }
+
+  private static ThreadPoolExecutor createResolver() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            RESOLVER_THREADS,
+            RESOLVER_THREADS,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(RESOLVER_QUEUE_SIZE),
+            Threads.factory("ScionDatagramChannel-resolver"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Starts the path lookup in a resolver thread. If too many lookups are pending, the resolution
+   * fails and is removed. Must be called while holding resolveLock.
+   */
+  private void startResolve(InetSocketAddress dst, Resolution resolution) {
+    try {
+      resolver.execute(() -> resolve(dst, resolution));
+    } catch (RejectedExecutionException e) {
+      resolvedDestinations.remove(dst);
+      resolution.queue = null;
+      resolution.future.completeExceptionally(
+          new IOException("Too many pending path lookups, rejected: " + dst));
+    }
+  }
+
+  private static <T> void complete(CompletableFuture<T> future, T value, Throwable t) {
+    if (t == null) {
+      future.complete(value);
+    } else {
+      future.completeExceptionally(t);
+    }
+  }
+
+  private int sendOrEnqueue(ByteBuffer srcBuffer, InetSocketAddress dst, int queueSize)
+      throws IOException {
+    checkService(dst);
+    if (!isOpen()) {
+      throw new ClosedChannelException();
+    }
+    Resolution resolution;
+    resolveLock.lock();
+    try {
+      resolution = resolvedDestinations.get(dst);
+      if (resolution == null) {
+        resolution = new Resolution();
+        resolvedDestinations.put(dst, resolution);
+        // If the lookup is rejected, the resolution fails and the error is reported below.
+        startResolve(dst, resolution);
+      } else if (resolution.future.isCompletedExceptionally()) {
+        // Report the failed lookup once, the next send() starts a new lookup.
+        resolvedDestinations.remove(dst);
+      }
+      if (resolution.queue != null) {
+        // Lookup is pending
+        int size = srcBuffer.remaining();
+        if (resolution.queue.size() >= queueSize) {
+          size = 0; // drop
+        } else {
+          ByteBuffer copy = ByteBuffer.allocate(size);
+          copy.put(srcBuffer).flip();
+          resolution.queue.add(copy);
+        }
+        return size;
+      }
+    } finally {
+      resolveLock.unlock();
+    }
+    PathSelector pathSelector = await(resolution);
+    if (pathSelector == null) {
+      return 0; // evicted before the lookup completed, drop.
+    }
+    return sendInternal(srcBuffer, getPath(pathSelector, dst));
+  }
+
+  private void checkService(InetSocketAddress dst) {
     if (getService() == null) {
       throw new ScionRuntimeException("ScionService required to resolve address: " + dst);
     }
-    Path path;
-    synchronized (stateLock()) {
-      PathSelector pathSelector = resolvedDestinations.get(dst);
-      if (pathSelector == null) {
-        pathSelector = createPathSelector(dst);
-        resolvedDestinations.put(dst, pathSelector);
+  }
+
+  /** Performs the path lookup and then sends the packets that were queued during the lookup. */
+  private void resolve(InetSocketAddress dst, Resolution resolution) {
+    try {
+      PathSelector pathSelector = createPathSelector(dst);
+      if (!resolution.future.complete(pathSelector)) {
+        // The resolution has been closed in the meantime
+        pathSelector.close();
       }
-      path = pathSelector.getPath();
-      if (path == null) {
-        throw new IOException("No paths found for remote address " + destination);
+    } catch (IOException | RuntimeException e) {
+      resolution.future.completeExceptionally(e);
+    }
+
+    List<ByteBuffer> queue;
+    resolveLock.lock();
+    try {
+      queue = resolution.queue;
+      resolution.queue = null;
+    } finally {
+      resolveLock.unlock();
+    }
+    PathSelector pathSelector = resolution.getPathSelector();
+    if (queue.isEmpty() || pathSelector == null) {
+      return;
+    }
+    try {
+      Path path = getPath(pathSelector, dst);
+      for (ByteBuffer buffer : queue) {
+        sendInternal(buffer, path);
       }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Error sending queued packets to {}: {}", dst, e.getMessage());
     }
-    return sendInternal(srcBuffer, path);
+  }
+
+  /**
+   * @return The path selector or 'null' if the resolution was evicted from the cache.
+   */
+  private PathSelector await(Resolution resolution) throws IOException {
+    try {
+      return resolution.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for path lookup.");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AsynchronousCloseException && isOpen()) {
+        return null;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private static Path getPath(PathSelector pathSelector, InetSocketAddress dst)
+      throws IOException {
+    Path path = pathSelector.nextPath();
+    if (path == null) {
+      throw new IOException("No paths found for remote address " + dst);
+    }
+    return path;
   }
 
   /**
@@ -175,25 +727,154 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
     return sendInternal(srcBuffer, path);
   }
 
-  private int sendInternal(ByteBuffer srcBuffer, Path path) throws IOException {
+  /**
+   * Attempts to send the content of a sequence of buffers as a single datagram along the path. This
+   * is the gathering equivalent of {@link #send(ByteBuffer, Path)}.
+   *
+   * <p>If the packet is sent on a connected underlay socket (see {@link
+   * ScionSocketOptions#SCION_CONNECTED_UNDERLAY_SOCKETS}), the header and the buffers are sent with
+   * a gathering write. Otherwise, the buffers are copied into the send buffer behind the header,
+   * which is one copy as with a single buffer. The reason is that {@link DatagramChannel} has no
+   * gathering send() to an address, and the underlying channel is not connected because the first
+   * hop may change.
+   *
+   * @param srcBuffers Data to send
+   * @param path Path to destination. Expiration is *not* verified.
+   * @return The number of bytes sent.
+   * @throws IOException if an error occurs.
+   * @see #send(ByteBuffer, Path)
+   */
+  public int send(ByteBuffer[] srcBuffers, Path path) throws IOException {
     writeLock().lock();
     try {
-      ByteBuffer buffer = getBufferSend(srcBuffer.remaining());
-      checkPathAndBuildHeaderUDP(buffer, path, srcBuffer.remaining());
+      int payloadLength = remaining(srcBuffers, 0, srcBuffers.length);
+      ByteBuffer buffer = getBufferSend(payloadLength);
+      checkPathAndBuildHeaderUDP(buffer, path, payloadLength);
       int headerSize = buffer.position();
-      try {
-        buffer.put(srcBuffer);
-      } catch (BufferOverflowException e) {
-        throw new IOException("Packet is larger than max send buffer size.");
+      long size = sendRaw(buffer, srcBuffers, 0, srcBuffers.length, path);
+      return (int) (size - headerSize);
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  /**
+   * Sends a batch of datagrams. The n-th buffer is sent to the n-th destination. See {@link
+   * #send(ByteBuffer, SocketAddress)} for how destinations are resolved.
+   *
+   * <p>Locks are acquired only once per batch. Every buffer that is sent is fully consumed. In
+   * non-blocking mode this method returns early if the underlying socket has no space for further
+   * datagrams, the remaining buffers are not modified.
+   *
+   * <p>This method always waits for path lookups to complete, {@link
+   * ScionSocketOptions#SCION_UNRESOLVED_QUEUE_SIZE} is ignored.
+   *
+   * @param srcBuffers Data to send
+   * @param destinations Destination addresses. Must have at least the length of `srcBuffers`.
+   * @return The number of datagrams sent.
+   * @throws IOException if an error occurs, e.g. if a destination address is an IP address that
+   *     cannot be resolved to an ISD/AS.
+   * @see #send(ByteBuffer, SocketAddress)
+   */
+  public int sendBatch(ByteBuffer[] srcBuffers, SocketAddress[] destinations) throws IOException {
+    if (destinations.length < srcBuffers.length) {
+      throw new IllegalArgumentException("Destination array is shorter than buffer array.");
+    }
+    Path[] paths = new Path[srcBuffers.length];
+    for (int i = 0; i < srcBuffers.length; i++) {
+      SocketAddress destination = destinations[i];
+      if (!(destination instanceof InetSocketAddress)) {
+        throw new IllegalArgumentException("Address must be of type InetSocketAddress.");
       }
-      buffer.flip();
-      int size = sendRaw(buffer, path);
+      if (destination instanceof ScionPathAddress) {
+        paths[i] = ((ScionPathAddress) destination).getPath();
+      } else {
+        paths[i] = resolvePath((InetSocketAddress) destination);
+      }
+    }
+    return sendBatch(srcBuffers, paths);
+  }
+
+  /**
+   * Sends a batch of datagrams. The n-th buffer is sent along the n-th path.
+   *
+   * <p>Locks are acquired only once per batch. Every buffer that is sent is fully consumed. In
+   * non-blocking mode this method returns early if the underlying socket has no space for further
+   * datagrams, the remaining buffers are not modified.
+   *
+   * @param srcBuffers Data to send
+   * @param paths Paths to the destinations. Must have at least the length of `srcBuffers`.
+   *     Expiration is *not* verified.
+   * @return The number of datagrams sent.
+   * @throws IOException if an error occurs.
+   * @see #send(ByteBuffer, Path)
+   */
+  public int sendBatch(ByteBuffer[] srcBuffers, Path[] paths) throws IOException {
+    if (paths.length < srcBuffers.length) {
+      throw new IllegalArgumentException("Path array is shorter than buffer array.");
+    }
+    writeLock().lock();
+    try {
+      for (int i = 0; i < srcBuffers.length; i++) {
+        ByteBuffer srcBuffer = srcBuffers[i];
+        int srcPos = srcBuffer.position();
+        ByteBuffer buffer = getBufferSend(i, srcBuffer.remaining());
+        if (sendInternal(buffer, srcBuffer, paths[i]) == 0) {
+          srcBuffer.position(srcPos);
+          return i; // non-blocking, no space available
+        }
+      }
+      return srcBuffers.length;
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  private int sendInternal(ByteBuffer srcBuffer, Path path) throws IOException {
+    writeLock().lock();
+    try {
+      int payloadLength = srcBuffer.remaining();
+      ByteBuffer buffer = getBufferSend(payloadLength);
+      int size = sendInternal(buffer, srcBuffer, path);
+      int headerSize = buffer.limit() - payloadLength;
       return size - headerSize;
     } finally {
       writeLock().unlock();
     }
   }
 
+  /**
+   * @param buffer send buffer
+   * @param srcBuffer payload
+   * @param path path
+   * @return number of bytes sent, including the header.
+   * @throws IOException in case of IOException.
+   */
+  private int sendInternal(ByteBuffer buffer, ByteBuffer srcBuffer, Path path) throws IOException {
+    checkPathAndBuildHeaderUDP(buffer, path, srcBuffer.remaining());
+    try {
+      buffer.put(srcBuffer);
+    } catch (BufferOverflowException e) {
+      throw new IOException("Packet is larger than max send buffer size.");
+    }
+    buffer.flip();
+    return sendRaw(buffer, path);
+  }
+
+  private static int remaining(ByteBuffer[] buffers, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > buffers.length - length) {
+      throw new IndexOutOfBoundsException();
+    }
+    long remaining = 0;
+    for (int i = offset; i < offset + length; i++) {
+      remaining += buffers[i].remaining();
+    }
+    if (remaining > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Buffers are too large for a datagram.");
+    }
+    return (int) remaining;
+  }
+
   /**
    * Read data from the connected stream.
    *
@@ -211,9 +892,18 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
     checkOpen();
     checkConnected(true);
 
-    int oldPos = dst.position();
-    receive(dst);
-    return dst.position() - oldPos;
+    readLock().lock();
+    try {
+      boolean writeToUserBuffer = getCfgWriteToUserBuffer();
+      int oldPos = dst.position();
+      // We do not need the response path here.
+      if (!receivePayload(dst, writeToUserBuffer, null)) {
+        return 0; // non-blocking, nothing available
+      }
+      return writeToUserBuffer ? dst.remaining() : dst.position() - oldPos;
+    } finally {
+      readLock().unlock();
+    }
   }
 
   /**
@@ -253,6 +943,63 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
     }
   }
 
+  /**
+   * Write the content of a sequence of ByteBuffers as a single datagram to a connection. This
+   * method uses the path that was provided or looked up during `connect()`. The path will
+   * automatically be refreshed when expired.
+   *
+   * <p>If the packet is sent on a connected underlay socket (see {@link
+   * ScionSocketOptions#SCION_CONNECTED_UNDERLAY_SOCKETS}), the header and the buffers are sent with
+   * a gathering write. Otherwise, the buffers are copied into the send buffer behind the header,
+   * which is one copy as with a single buffer. The reason is that {@link DatagramChannel} has no
+   * gathering send() to an address, and the underlying channel is not connected because the first
+   * hop may change.
+   *
+   * @param srcs The data to send
+   * @param offset The offset within the buffer array of the first buffer to be sent.
+   * @param length The maximum number of buffers to be accessed.
+   * @return The number of bytes written.
+   * @throws NotYetConnectedException If the channel is not connected.
+   * @throws java.nio.channels.ClosedChannelException If the channel is closed.
+   * @throws IOException If some IOError occurs.
+   * @see java.nio.channels.DatagramChannel#write(ByteBuffer[], int, int)
+   */
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    writeLock().lock();
+    try {
+      checkOpen();
+      checkConnected(true);
+      Path path = getConnectedPathOrThrow();
+
+      int len = remaining(srcs, offset, length);
+      ByteBuffer buffer = getBufferSend(len);
+      checkPathAndBuildHeaderUDP(buffer, path, len);
+      int packetLength = buffer.position() + len;
+      if (sendRaw(buffer, srcs, offset, length, path) < packetLength) {
+        throw new ScionException("Failed to send all data.");
+      }
+      return len;
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  /**
+   * Write the content of a sequence of ByteBuffers as a single datagram to a connection.
+   *
+   * @param srcs The data to send
+   * @return The number of bytes written.
+   * @throws NotYetConnectedException If the channel is not connected.
+   * @throws java.nio.channels.ClosedChannelException If the channel is closed.
+   * @throws IOException If some IOError occurs.
+   * @see #write(ByteBuffer[], int, int)
+   */
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
   /**
    * @param path path
    * @param payloadLength payload length
@@ -260,13 +1007,11 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
    */
   private void checkPathAndBuildHeaderUDP(ByteBuffer buffer, Path path, int payloadLength)
       throws IOException {
-    synchronized (super.stateLock()) {
-      // + 8 for UDP overlay header length
-      ByteUtil.MutInt srcPort = new ByteUtil.MutInt(-1);
-      buildHeader(buffer, path, payloadLength + 8, HeaderConstants.HdrTypes.UDP.code(), srcPort);
-      int dstPort = path.getRemotePort();
-      ScionHeaderParser.writeUdpOverlayHeader(buffer, payloadLength, srcPort.get(), dstPort);
-    }
+    // + 8 for UDP overlay header length
+    ByteUtil.MutInt srcPort = new ByteUtil.MutInt(-1);
+    buildHeader(buffer, path, payloadLength + 8, HeaderConstants.HdrTypes.UDP.code(), srcPort);
+    int dstPort = path.getRemotePort();
+    ScionHeaderParser.writeUdpOverlayHeader(buffer, payloadLength, srcPort.get(), dstPort);
   }
 
   /**
@@ -278,16 +1023,73 @@ public class ScionDatagramChannel extends AbstractScionChannel<ScionDatagramChan
    * @return The mapped path or the path itself if no mapping is available.
    */
   public Path getMappedPath(InetSocketAddress address) {
-    synchronized (stateLock()) {
-      PathSelector pp = resolvedDestinations.get(address);
+    resolveLock.lock();
+    try {
+      Resolution resolution = resolvedDestinations.get(address);
+      PathSelector pp = resolution == null ? null : resolution.getPathSelector();
       return pp == null ? null : pp.getPath();
+    } finally {
+      resolveLock.unlock();
     }
   }
 
+  @Override
+  protected void reportPathError(Scmp.ErrorMessage error) {
+    super.reportPathError(error);
+    // Path selectors of destinations used with send(ByteBuffer, SocketAddress).
+    // Path selectors may request new paths when an error is reported, so we must not hold
+    // resolveLock while reporting.
+    List<PathSelector> pathSelectors = new ArrayList<>();
+    resolveLock.lock();
+    try {
+      resolvedDestinations.forEach(
+          (address, resolution) -> {
+            PathSelector pathSelector = resolution.getPathSelector();
+            if (pathSelector != null) {
+              pathSelectors.add(pathSelector);
+            }
+          });
+    } finally {
+      resolveLock.unlock();
+    }
+    pathSelectors.forEach(pathSelector -> pathSelector.reportError(error));
+  }
+
   @Override
   public void close() throws IOException {
     super.close();
-    resolvedDestinations.forEach((k, pathSelector) -> pathSelector.close());
+    // Selectors do not notice that a registered channel has been closed until they are woken up.
+    selectors.forEach(ScionSelector::wakeup);
+    selectors.clear();
+    resolveLock.lock();
+    try {
+      resolvedDestinations.forEach((k, resolution) -> resolution.close());
+      resolvedDestinations.clear();
+    } finally {
+      resolveLock.unlock();
+    }
+  }
+
+  /** A pending or completed path lookup for a destination address. */
+  private static class Resolution implements AutoCloseable {
+    private final CompletableFuture<PathSelector> future = new CompletableFuture<>();
+    // Guarded by resolveLock. Packets that were sent while the lookup was pending. This is set to
+    // 'null' once the lookup has completed.
+    private List<ByteBuffer> queue = new ArrayList<>();
+
+    /**
+     * @return The path selector or 'null' if the lookup is pending or failed.
+     */
+    private PathSelector getPathSelector() {
+      return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    @Override
+    public void close() {
+      if (!future.completeExceptionally(new AsynchronousCloseException())) {
+        future.thenAccept(PathSelector::close);
+      }
+    }
   }
 
   public static class Builder {
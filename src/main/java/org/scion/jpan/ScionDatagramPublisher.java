@@ -0,0 +1,244 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import org.scion.jpan.internal.util.BufferPool;
+import org.scion.jpan.internal.util.Threads;
+
+/**
+ * A publisher of the datagrams received by a {@link ScionDatagramChannel}.
+ *
+ * <p>The publisher honours the demand of the subscriber: datagrams are only read from the channel
+ * while there is unfulfilled demand. Without demand, incoming datagrams remain in the socket's
+ * receive buffer, i.e. backpressure reaches the socket and there is no internal queue. Once the
+ * socket's buffer is full, the OS drops datagrams.
+ *
+ * <p>Reading is done by a dedicated thread that also delivers all signals to the subscriber. The
+ * channel is switched to non-blocking mode and registered with an internal {@link ScionSelector}.
+ * The channel must not be used for receiving by anyone else. When the channel is closed, the
+ * subscriber receives {@link ScionFlow.Subscriber#onComplete()}. When the subscription is cancelled
+ * or terminated, the channel is deregistered and its blocking mode is restored.
+ *
+ * <p>A publisher supports only a single subscriber. Every published {@link ScionDatagram} has its
+ * own payload buffer, the response path is extracted lazily.
+ */
+public class ScionDatagramPublisher implements ScionFlow.Publisher<ScionDatagram> {
+
+  private final ScionDatagramChannel channel;
+  private final int bufferSize;
+  private final AtomicBoolean isSubscribed = new AtomicBoolean();
+
+  private ScionDatagramPublisher(ScionDatagramChannel channel, int bufferSize) {
+    this.channel = channel;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * @param channel A bound channel.
+   * @return A publisher for the datagrams received by the channel.
+   */
+  public static ScionDatagramPublisher create(ScionDatagramChannel channel) {
+    return create(channel, AbstractScionChannel.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param channel A bound channel.
+   * @param bufferSize Maximum size of a SCION packet, including all headers. Larger datagrams are
+   *     truncated.
+   * @return A publisher for the datagrams received by the channel.
+   */
+  public static ScionDatagramPublisher create(ScionDatagramChannel channel, int bufferSize) {
+    return new ScionDatagramPublisher(channel, bufferSize);
+  }
+
+  @Override
+  public void subscribe(ScionFlow.Subscriber<? super ScionDatagram> subscriber) {
+    Objects.requireNonNull(subscriber);
+    if (!isSubscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(
+          new ScionFlow.Subscription() {
+            @Override
+            public void request(long n) {
+              // Ignore
+            }
+
+            @Override
+            public void cancel() {
+              // Ignore
+            }
+          });
+      subscriber.onError(new IllegalStateException("Publisher supports only one subscriber"));
+      return;
+    }
+    ReaderSubscription subscription = new ReaderSubscription(subscriber);
+    Threads.newThread(subscription::run, "ScionDatagramPublisher-reader").start();
+  }
+
+  private class ReaderSubscription implements ScionFlow.Subscription {
+    private final ScionFlow.Subscriber<? super ScionDatagram> subscriber;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private long demand = 0;
+    // Guarded by lock
+    private Throwable requestError = null;
+    private volatile boolean isCancelled = false;
+    private volatile ScionSelector selector;
+
+    private ReaderSubscription(ScionFlow.Subscriber<? super ScionDatagram> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      lock.lock();
+      try {
+        if (n <= 0) {
+          requestError = new IllegalArgumentException("Demand must be positive: " + n);
+          isCancelled = true;
+        } else {
+          demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+      } finally {
+        lock.unlock();
+      }
+      wakeup();
+    }
+
+    @Override
+    public void cancel() {
+      isCancelled = true;
+      wakeup();
+    }
+
+    private void wakeup() {
+      ScionSelector s = selector;
+      if (s != null) {
+        s.wakeup();
+      }
+    }
+
+    private void run() {
+      subscriber.onSubscribe(this);
+      Throwable error = null;
+      boolean wasBlocking = channel.isBlocking();
+      ByteBuffer buffer = BufferPool.getDefault().acquire(bufferSize);
+      try (ScionSelector s = ScionSelector.open()) {
+        selector = s;
+        // Datagrams are received during selection, they must not be truncated.
+        channel.reserveReceiveBuffer(bufferSize);
+        channel.configureBlocking(false);
+        readLoop(s, channel.register(s, 0, null), buffer);
+      } catch (ClosedChannelException e) {
+        // The channel has been closed -> complete
+      } catch (IOException | RuntimeException e) {
+        // E.g. CancelledKeyException if the channel has been closed concurrently.
+        error = channel.isOpen() ? e : null;
+      } finally {
+        BufferPool.getDefault().release(buffer);
+      }
+      // Closing the selector has deregistered the channel.
+      if (wasBlocking && channel.isOpen()) {
+        try {
+          channel.configureBlocking(true);
+        } catch (IOException e) {
+          error = error == null && channel.isOpen() ? e : error;
+        }
+      }
+      signalTermination(error);
+    }
+
+    private void readLoop(ScionSelector s, ScionSelectionKey key, ByteBuffer buffer)
+        throws IOException {
+      while (!isCancelled && channel.isOpen()) {
+        // Without demand, datagrams remain in the socket.
+        boolean hasDemand = hasDemand();
+        key.interestOps(hasDemand ? SelectionKey.OP_READ : 0);
+        ScionDatagram datagram = hasDemand ? receive(buffer) : null;
+        if (datagram == null) {
+          // Woken up by request(), cancel() or by closing the channel.
+          s.select();
+          s.selectedKeys().clear();
+          if (Thread.currentThread().isInterrupted()) {
+            isCancelled = true;
+          }
+          continue;
+        }
+        decrementDemand();
+        subscriber.onNext(datagram);
+      }
+    }
+
+    private ScionDatagram receive(ByteBuffer buffer) throws IOException {
+      ScionPacketDescriptor descriptor = new ScionPacketDescriptor();
+      buffer.clear();
+      if (channel.receive(buffer, descriptor) == null) {
+        return null;
+      }
+      if (!channel.getCfgWriteToUserBuffer()) {
+        // The payload has been copied into the buffer.
+        buffer.flip();
+      }
+      ByteBuffer payload = ByteBuffer.allocate(buffer.remaining());
+      payload.put(buffer);
+      payload.flip();
+      return new ScionDatagram(payload, descriptor);
+    }
+
+    private boolean hasDemand() {
+      lock.lock();
+      try {
+        return demand > 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void decrementDemand() {
+      lock.lock();
+      try {
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void signalTermination(Throwable t) {
+      Throwable error;
+      lock.lock();
+      try {
+        error = requestError;
+      } finally {
+        lock.unlock();
+      }
+      if (error != null) {
+        // Illegal request(), see rule 3.9 of the Reactive Streams specification.
+        subscriber.onError(error);
+      } else if (t != null && !isCancelled) {
+        subscriber.onError(t);
+      } else if (!isCancelled) {
+        subscriber.onComplete();
+      }
+    }
+  }
+}
@@ -47,6 +47,10 @@ public class ScionDatagramSocket extends java.net.DatagramSocket {
     HashSet<SocketOption<?>> options = new HashSet<>();
     options.add(ScionSocketOptions.SCION_API_THROW_PARSER_FAILURE);
     options.add(ScionSocketOptions.SCION_PATH_EXPIRY_MARGIN);
+    options.add(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE);
+    options.add(ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER);
+    options.add(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS);
+    options.add(ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE);
 
     options.add(StandardSocketOptions.SO_SNDBUF);
     options.add(StandardSocketOptions.SO_RCVBUF);
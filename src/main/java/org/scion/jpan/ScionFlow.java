@@ -0,0 +1,74 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+/**
+ * Interfaces for reactive streams with backpressure. They have the same methods and semantics as
+ * the interfaces in <code>java.util.concurrent.Flow</code> (Java 9+) and in the Reactive Streams
+ * specification, see <a href="https://www.reactive-streams.org/">reactive-streams.org</a>. JPAN
+ * targets Java 8, so it cannot use <code>Flow</code> directly. Adapting to <code>Flow</code> or to
+ * Reactive Streams requires only delegation of the four methods of each interface.
+ *
+ * @see ScionDatagramPublisher
+ */
+public final class ScionFlow {
+
+  private ScionFlow() {}
+
+  /**
+   * A producer of items that are received by subscribers.
+   *
+   * @param <T> the published item type
+   */
+  @FunctionalInterface
+  public interface Publisher<T> {
+    /**
+     * Adds the subscriber. The subscriber receives a call to {@link Subscriber#onSubscribe} before
+     * any other signal.
+     *
+     * @param subscriber the subscriber
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  /**
+   * A receiver of items. Signals are never delivered concurrently.
+   *
+   * @param <T> the subscribed item type
+   */
+  public interface Subscriber<T> {
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  /** Links a publisher and a subscriber. */
+  public interface Subscription {
+    /**
+     * Adds n items to the current unfulfilled demand.
+     *
+     * @param n the increment of demand. A value &lt;= 0 results in an {@link
+     *     IllegalArgumentException} being signalled to the subscriber.
+     */
+    void request(long n);
+
+    /** Stops the delivery of items. */
+    void cancel();
+  }
+}
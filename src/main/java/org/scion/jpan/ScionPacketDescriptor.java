@@ -0,0 +1,116 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import org.scion.jpan.internal.header.ScionHeaderParser;
+import org.scion.jpan.internal.util.ByteUtil;
+
+/**
+ * Header information of a received packet. A descriptor can be reused for many calls to {@link
+ * ScionDatagramChannel#receive(java.nio.ByteBuffer, ScionPacketDescriptor)}, each call overwrites
+ * the previous content.
+ *
+ * <p>The descriptor keeps a copy of the packet header. The response path is only extracted (and
+ * reversed) when it is requested via {@link #getPath()} or {@link #getRemoteSocketAddress()}.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class ScionPacketDescriptor {
+
+  private static final int UDP_HEADER_LENGTH = 8;
+
+  private ByteBuffer header = ByteBuffer.allocate(200);
+  private AbstractScionChannel<?> channel;
+  private InetSocketAddress srcAddress;
+  private ResponsePath path;
+
+  /**
+   * @param channel The receiving channel
+   * @param packet A validated UDP packet
+   * @param srcAddress The underlay source address
+   */
+  void reset(AbstractScionChannel<?> channel, ByteBuffer packet, InetSocketAddress srcAddress) {
+    int len = ScionHeaderParser.extractHeaderLength(packet) + UDP_HEADER_LENGTH;
+    if (header.capacity() < len) {
+      header = ByteBuffer.allocate(len);
+    }
+    int oldPos = packet.position();
+    int oldLimit = packet.limit();
+    packet.position(0);
+    packet.limit(len);
+    header.clear();
+    header.put(packet);
+    header.flip();
+    packet.limit(oldLimit);
+    packet.position(oldPos);
+    this.channel = channel;
+    this.srcAddress = srcAddress;
+    this.path = null;
+  }
+
+  /**
+   * @return The path that can be used to respond to the packet.
+   */
+  public ResponsePath getPath() {
+    if (path == null) {
+      path = channel.extractResponsePath(header, srcAddress);
+    }
+    return path;
+  }
+
+  /**
+   * @return The address of the sender of the packet.
+   */
+  public ScionPathAddress getRemoteSocketAddress() {
+    return getPath().getRemoteSocketAddress();
+  }
+
+  /**
+   * @return The ISD/AS of the sender of the packet.
+   */
+  public long getRemoteIsdAs() {
+    return header.getLong(20);
+  }
+
+  /**
+   * @return The host address of the sender of the packet.
+   */
+  public InetAddress getRemoteAddress() {
+    int i2 = header.getInt(8);
+    int dl = ByteUtil.readInt(i2, 10, 2);
+    int sl = ByteUtil.readInt(i2, 14, 2);
+    byte[] bytes = new byte[(sl + 1) * 4];
+    ByteBuffer src = header.duplicate();
+    src.position(28 + (dl + 1) * 4);
+    src.get(bytes);
+    try {
+      return InetAddress.getByAddress(bytes);
+    } catch (UnknownHostException e) {
+      // This cannot happen, the length is always 4 or 16.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return The port of the sender of the packet.
+   */
+  public int getRemotePort() {
+    return ByteUtil.toUnsigned(header.getShort(ScionHeaderParser.extractHeaderLength(header)));
+  }
+}
@@ -0,0 +1,436 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.scion.jpan.internal.util.BufferPool;
+import org.scion.jpan.internal.util.DuplicateFilter;
+import org.scion.jpan.internal.util.SimpleCache;
+import org.scion.jpan.selectors.PathSelector;
+import org.scion.jpan.selectors.PathSelectorMultipath;
+
+/**
+ * A channel that sends every datagram redundantly over multiple paths at once. The receiver
+ * delivers only the first copy of every datagram and drops the others. This trades bandwidth for
+ * lower tail latency and resilience against packet loss and link failures. It is intended for small
+ * latency-critical messages, e.g. control messages.
+ *
+ * <p>Paths are chosen to be as link-disjoint as possible, see {@link PathPolicy.Disjoint}. Every
+ * datagram is prefixed with a 12 byte header consisting of a 4 byte random sender ID and an 8 byte
+ * sequence number. Both sides of a connection must therefore use a ScionRedundantChannel. The
+ * receiver uses a sliding window per sender to detect duplicates, see {@link #getStatistics()}.
+ *
+ * <p>Paths are managed per destination by a {@link PathSelectorMultipath} of the underlying
+ * channel. Paths that are reported faulty by SCMP errors 5 or 6 are replaced. Sending reuses the
+ * precomputed header of every path, so the cost of a redundant send is mainly the additional I/O.
+ */
+public class ScionRedundantChannel implements Closeable {
+
+  /** Length of the header that is prepended to the payload. */
+  public static final int HEADER_LENGTH = 12;
+
+  private final ScionDatagramChannel channel;
+  private final int redundancy;
+  private final int windowSize;
+  private final int senderId = new Random().nextInt();
+  private final AtomicLong nextSequenceNumber = new AtomicLong();
+
+  // Guarded by receiveLock
+  private final SimpleCache<SenderKey, DuplicateFilter> filters = new SimpleCache<>(100);
+  private ByteBuffer receiveBuffer =
+      BufferPool.getDefault().acquire(AbstractScionChannel.DEFAULT_BUFFER_SIZE);
+  private final ScionPacketDescriptor receiveDescriptor = new ScionPacketDescriptor();
+  private final ReentrantLock receiveLock = new ReentrantLock();
+
+  private final AtomicLong sentDatagrams = new AtomicLong();
+  private final AtomicLong sentPackets = new AtomicLong();
+  private final AtomicLong receivedPackets = new AtomicLong();
+  private final AtomicLong firstArrivals = new AtomicLong();
+  private final AtomicLong duplicates = new AtomicLong();
+  private final AtomicLong lateArrivals = new AtomicLong();
+  private final AtomicLong invalidPackets = new AtomicLong();
+
+  private ScionRedundantChannel(ScionDatagramChannel channel, int redundancy, int windowSize) {
+    this.channel = channel;
+    this.redundancy = redundancy;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Creates a channel with the default ScionService that sends every datagram over two paths.
+   *
+   * @return new channel
+   * @throws IOException in case of an error
+   */
+  public static ScionRedundantChannel open() throws IOException {
+    return newBuilder().open();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * @return The underlying channel. It can be used to set socket options. It should not be used for
+   *     sending or receiving.
+   */
+  public ScionDatagramChannel getChannel() {
+    return channel;
+  }
+
+  public ScionRedundantChannel bind(InetSocketAddress address) throws IOException {
+    channel.bind(address);
+    return this;
+  }
+
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return channel.getLocalAddress();
+  }
+
+  /**
+   * @return The maximum number of paths that every datagram is sent over.
+   */
+  public int getRedundancy() {
+    return redundancy;
+  }
+
+  /**
+   * Sends the content of the buffer over up to N paths to the destination, where N is the
+   * redundancy of this channel. If fewer paths are available, the datagram is sent over all
+   * available paths. An error on one path does not prevent sending on the other paths.
+   *
+   * @param srcBuffer Data to send
+   * @param destination Destination address. If this is not a {@link ScionSocketAddress}, this
+   *     should contain a host name known to the DNS so that the ISD/AS information can be
+   *     retrieved.
+   * @return The number of payload bytes sent or 0 if nothing was sent (non-blocking mode).
+   * @throws IOException if an error occurs, e.g. if no path to the destination was found or if
+   *     sending failed on all paths.
+   */
+  public int send(ByteBuffer srcBuffer, InetSocketAddress destination) throws IOException {
+    // The lookup is performed by the underlying channel without holding any lock.
+    PathSelector selector = channel.resolvePathSelector(destination);
+    List<Path> paths = ((PathSelectorMultipath) selector).getPaths();
+    if (paths.isEmpty()) {
+      throw new IOException("No paths found for remote address " + destination);
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    header.putInt(senderId).putLong(nextSequenceNumber.getAndIncrement()).flip();
+    ByteBuffer[] buffers = new ByteBuffer[] {header, srcBuffer};
+    int start = srcBuffer.position();
+    int length = srcBuffer.remaining();
+    int packets = 0;
+    IOException exception = null;
+    for (Path path : paths) {
+      header.rewind();
+      srcBuffer.position(start);
+      try {
+        if (channel.send(buffers, path) > 0) {
+          packets++;
+        }
+      } catch (IOException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    if (packets == 0) {
+      srcBuffer.position(start);
+      if (exception != null) {
+        throw exception;
+      }
+      return 0;
+    }
+    sentDatagrams.incrementAndGet();
+    sentPackets.addAndGet(packets);
+    srcBuffer.position(start + length);
+    return length;
+  }
+
+  /**
+   * Receives the next datagram that has not been received before. Duplicates are silently dropped.
+   *
+   * @param userBuffer Buffer for the payload. If the payload is larger than the remaining space in
+   *     the buffer, the payload is truncated.
+   * @return The address of the sender or 'null' if no datagram is available (non-blocking mode).
+   * @throws IOException if an error occurs. SCMP errors are reported as by {@link
+   *     ScionDatagramChannel#receive(ByteBuffer)}. Errors 5 and 6 also cause faulty paths to be
+   *     replaced.
+   */
+  public ScionPathAddress receive(ByteBuffer userBuffer) throws IOException {
+    receiveLock.lock();
+    try {
+      while (true) {
+        if (receiveBuffer == null) {
+          throw new ClosedChannelException();
+        }
+        receiveBuffer.clear();
+        // The descriptor extracts the response path only for datagrams that are delivered.
+        ScionPacketDescriptor descriptor = channel.receive(receiveBuffer, receiveDescriptor);
+        if (descriptor == null) {
+          return null;
+        }
+        receiveBuffer.flip();
+        receivedPackets.incrementAndGet();
+        if (receiveBuffer.remaining() < HEADER_LENGTH) {
+          invalidPackets.incrementAndGet();
+          continue;
+        }
+        int id = receiveBuffer.getInt();
+        long seq = receiveBuffer.getLong();
+        if (seq < 0) {
+          invalidPackets.incrementAndGet();
+          continue;
+        }
+        if (checkSequenceNumber(new SenderKey(descriptor, id), seq)) {
+          if (receiveBuffer.remaining() > userBuffer.remaining()) {
+            receiveBuffer.limit(receiveBuffer.position() + userBuffer.remaining());
+          }
+          userBuffer.put(receiveBuffer);
+          return descriptor.getRemoteSocketAddress();
+        }
+      }
+    } finally {
+      receiveLock.unlock();
+    }
+  }
+
+  private boolean checkSequenceNumber(SenderKey key, long seq) {
+    DuplicateFilter filter = filters.get(key);
+    if (filter == null) {
+      filter = new DuplicateFilter(windowSize);
+      filters.put(key, filter);
+    }
+    switch (filter.check(seq)) {
+      case NEW:
+        firstArrivals.incrementAndGet();
+        return true;
+      case DUPLICATE:
+        duplicates.incrementAndGet();
+        return false;
+      default:
+        lateArrivals.incrementAndGet();
+        return false;
+    }
+  }
+
+  /**
+   * @return A snapshot of the statistics of this channel.
+   */
+  public Statistics getStatistics() {
+    return new Statistics(this);
+  }
+
+  public boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // This also closes the path selectors.
+    channel.close();
+    receiveLock.lock();
+    try {
+      BufferPool.getDefault().release(receiveBuffer);
+      receiveBuffer = null;
+    } finally {
+      receiveLock.unlock();
+    }
+  }
+
+  private static class SenderKey {
+    private final long isdAs;
+    private final InetSocketAddress address;
+    private final int senderId;
+
+    private SenderKey(ScionPacketDescriptor descriptor, int senderId) {
+      this.isdAs = descriptor.getRemoteIsdAs();
+      this.address =
+          new InetSocketAddress(descriptor.getRemoteAddress(), descriptor.getRemotePort());
+      this.senderId = senderId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SenderKey)) {
+        return false;
+      }
+      SenderKey other = (SenderKey) o;
+      return isdAs == other.isdAs && senderId == other.senderId && address.equals(other.address);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(isdAs, address, senderId);
+    }
+  }
+
+  /** Statistics of a {@link ScionRedundantChannel}. */
+  public static class Statistics {
+    private final long sentDatagrams;
+    private final long sentPackets;
+    private final long receivedPackets;
+    private final long firstArrivals;
+    private final long duplicates;
+    private final long lateArrivals;
+    private final long invalidPackets;
+
+    private Statistics(ScionRedundantChannel channel) {
+      this.sentDatagrams = channel.sentDatagrams.get();
+      this.sentPackets = channel.sentPackets.get();
+      this.receivedPackets = channel.receivedPackets.get();
+      this.firstArrivals = channel.firstArrivals.get();
+      this.duplicates = channel.duplicates.get();
+      this.lateArrivals = channel.lateArrivals.get();
+      this.invalidPackets = channel.invalidPackets.get();
+    }
+
+    /**
+     * @return Number of datagrams sent by send().
+     */
+    public long getSentDatagrams() {
+      return sentDatagrams;
+    }
+
+    /**
+     * @return Number of packets sent, i.e. datagrams times the number of paths they were sent on.
+     */
+    public long getSentPackets() {
+      return sentPackets;
+    }
+
+    /**
+     * @return Number of packets received, including duplicates and invalid packets.
+     */
+    public long getReceivedPackets() {
+      return receivedPackets;
+    }
+
+    /**
+     * @return Number of datagrams that were delivered, i.e. the first copy of every datagram.
+     */
+    public long getFirstArrivals() {
+      return firstArrivals;
+    }
+
+    /**
+     * @return Number of copies that were dropped because the datagram had already been delivered.
+     */
+    public long getDuplicates() {
+      return duplicates;
+    }
+
+    /**
+     * @return Number of packets that were dropped because their sequence number was too old to
+     *     decide whether they are duplicates.
+     */
+    public long getLateArrivals() {
+      return lateArrivals;
+    }
+
+    /**
+     * @return Number of packets that were dropped because they had no valid header.
+     */
+    public long getInvalidPackets() {
+      return invalidPackets;
+    }
+  }
+
+  public static class Builder {
+    private final ScionDatagramChannel.Builder channelBuilder = ScionDatagramChannel.newBuilder();
+    private int redundancy = 2;
+    private PathPolicy pathPolicy = PathPolicy.DEFAULT;
+    private int windowSize = 1024;
+
+    /**
+     * @param channel A {@link DatagramChannel} to be used. The default is the plain {@link
+     *     DatagramChannel}.
+     * @return This builder.
+     */
+    public Builder channel(DatagramChannel channel) {
+      channelBuilder.channel(channel);
+      return this;
+    }
+
+    /**
+     * @param service A {@link ScionService} to be used. The default is the {@link
+     *     ScionService#defaultService()}. The service can be explicitly set to `null` if no
+     *     ScionService should be used.
+     * @return This builder.
+     */
+    public Builder service(ScionService service) {
+      channelBuilder.service(service);
+      return this;
+    }
+
+    /**
+     * @param redundancy Maximum number of paths that every datagram is sent over. The default is 2.
+     * @return This builder.
+     */
+    public Builder redundancy(int redundancy) {
+      if (redundancy < 1) {
+        throw new IllegalArgumentException("Redundancy must be at least 1: " + redundancy);
+      }
+      this.redundancy = redundancy;
+      return this;
+    }
+
+    /**
+     * @param pathPolicy The policy that orders the paths before disjoint paths are selected. The
+     *     default is {@link PathPolicy#DEFAULT}.
+     * @return This builder.
+     */
+    public Builder pathPolicy(PathPolicy pathPolicy) {
+      this.pathPolicy = pathPolicy;
+      return this;
+    }
+
+    /**
+     * @param windowSize Number of sequence numbers per sender that are remembered for detecting
+     *     duplicates. The default is 1024.
+     * @return This builder.
+     */
+    public Builder windowSize(int windowSize) {
+      if (windowSize < 1) {
+        throw new IllegalArgumentException("Window size must be at least 1: " + windowSize);
+      }
+      this.windowSize = windowSize;
+      return this;
+    }
+
+    public ScionRedundantChannel open() throws IOException {
+      PathPolicy policy = new PathPolicy.Disjoint(pathPolicy);
+      channelBuilder.pathSelectorsForSend(
+          PathSelectorMultipath.Factory.create(
+              policy, redundancy, PathSelectorMultipath.Scheduling.ROUND_ROBIN));
+      return new ScionRedundantChannel(channelBuilder.open(), redundancy, windowSize);
+    }
+  }
+}
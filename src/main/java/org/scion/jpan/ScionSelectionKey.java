@@ -0,0 +1,121 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.nio.channels.SelectionKey;
+
+/**
+ * A token representing the registration of a {@link ScionDatagramChannel} with a {@link
+ * ScionSelector}. This is the SCION equivalent of {@link SelectionKey}.
+ *
+ * @see SelectionKey
+ */
+public final class ScionSelectionKey {
+
+  private final ScionSelector selector;
+  private final ScionDatagramChannel channel;
+  private final SelectionKey key;
+  private volatile Object attachment;
+  private volatile int readyOps;
+
+  ScionSelectionKey(
+      ScionSelector selector, ScionDatagramChannel channel, SelectionKey key, Object attachment) {
+    this.selector = selector;
+    this.channel = channel;
+    this.key = key;
+    this.attachment = attachment;
+  }
+
+  public ScionDatagramChannel channel() {
+    return channel;
+  }
+
+  public ScionSelector selector() {
+    return selector;
+  }
+
+  public boolean isValid() {
+    return key.isValid();
+  }
+
+  /**
+   * Cancels the registration of this key's channel with its selector.
+   *
+   * @see SelectionKey#cancel()
+   */
+  public void cancel() {
+    key.cancel();
+  }
+
+  /**
+   * @return This key's interest set.
+   * @see SelectionKey#interestOps()
+   */
+  public int interestOps() {
+    return key.interestOps();
+  }
+
+  /**
+   * @param ops The new interest set, a combination of {@link SelectionKey#OP_READ} and {@link
+   *     SelectionKey#OP_WRITE}.
+   * @return This key.
+   * @see SelectionKey#interestOps(int)
+   */
+  public ScionSelectionKey interestOps(int ops) {
+    key.interestOps(ops);
+    return this;
+  }
+
+  /**
+   * @return This key's ready-operation set.
+   * @see SelectionKey#readyOps()
+   */
+  public int readyOps() {
+    return readyOps;
+  }
+
+  /**
+   * @return 'true' if the channel has a user datagram available or a pending error to report.
+   */
+  public boolean isReadable() {
+    return (readyOps & SelectionKey.OP_READ) != 0;
+  }
+
+  public boolean isWritable() {
+    return (readyOps & SelectionKey.OP_WRITE) != 0;
+  }
+
+  public Object attachment() {
+    return attachment;
+  }
+
+  /**
+   * @param ob The new attachment, may be 'null'.
+   * @return The previous attachment.
+   */
+  public Object attach(Object ob) {
+    Object old = attachment;
+    attachment = ob;
+    return old;
+  }
+
+  void readyOps(int ops) {
+    this.readyOps = ops;
+  }
+
+  SelectionKey key() {
+    return key;
+  }
+}
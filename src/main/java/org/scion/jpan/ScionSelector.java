@@ -0,0 +1,305 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A multiplexor for {@link ScionDatagramChannel}s. This allows a single thread to serve many SCION
+ * channels. The API follows {@link Selector}.
+ *
+ * <p>Unlike a plain {@link Selector}, readiness for {@link SelectionKey#OP_READ} is only reported
+ * for user datagrams. SCMP packets and invalid packets are consumed transparently during selection.
+ * SCMP errors that would be thrown by {@link ScionDatagramChannel#receive(java.nio.ByteBuffer)} are
+ * reported as readiness, the subsequent call to receive() will throw the error.
+ *
+ * <p>To detect user datagrams, the selector receives the next datagram of a readable channel into
+ * the channel's internal receive buffer. The datagram is returned by the next call to a receive
+ * method of the channel. The internal buffer has a size of at least 2000 bytes, or the size of the
+ * largest buffer previously used for receiving on the channel. Larger datagrams are truncated, they
+ * fail validation and are dropped. Dropped datagrams are counted as "INVALID_LENGTH" in {@link
+ * ScionDatagramChannel#getValidationFailureCounts()}. A {@link ScionDatagramPublisher} enlarges
+ * the internal buffer to its own buffer size.
+ *
+ * <p>Selectors are safe for use by multiple concurrent threads. Selection operations are
+ * serialized. As with {@link Selector}, the selected-key set itself is not thread-safe: selection
+ * operations synchronize on the set while updating it, other threads that access the set
+ * concurrently should also synchronize on it.
+ *
+ * @see ScionDatagramChannel#register(ScionSelector, int, Object)
+ */
+public class ScionSelector implements Closeable {
+
+  private final Selector selector;
+  private final Set<ScionSelectionKey> selectedKeys = new HashSet<>();
+  // Keys with a received user datagram that has not yet been consumed by the user.
+  private final Set<ScionSelectionKey> pendingKeys = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean wakeup = new AtomicBoolean();
+  // Serializes selection operations. We use a ReentrantLock instead of `synchronized` to avoid
+  // pinning virtual threads while blocking in select().
+  private final ReentrantLock selectLock = new ReentrantLock();
+
+  protected ScionSelector(Selector selector) {
+    this.selector = selector;
+  }
+
+  /**
+   * Opens a selector.
+   *
+   * @return A new selector
+   * @throws IOException If an I/O error occurs
+   */
+  public static ScionSelector open() throws IOException {
+    return new ScionSelector(Selector.open());
+  }
+
+  ScionSelectionKey register(
+      ScionDatagramChannel channel, DatagramChannel underlay, int ops, Object attachment)
+      throws ClosedChannelException {
+    SelectionKey key = underlay.register(selector, ops);
+    Object existing = key.attachment();
+    if (existing instanceof ScionSelectionKey) {
+      ScionSelectionKey scionKey = (ScionSelectionKey) existing;
+      scionKey.attach(attachment);
+      return scionKey;
+    }
+    ScionSelectionKey scionKey = new ScionSelectionKey(this, channel, key, attachment);
+    key.attach(scionKey);
+    if (channel.hasPendingPacket()) {
+      // E.g. a datagram that was received by the background SCMP reader.
+      pendingKeys.add(scionKey);
+      selector.wakeup();
+    }
+    return scionKey;
+  }
+
+  boolean isRegistered(DatagramChannel underlay) {
+    SelectionKey key = underlay.keyFor(selector);
+    return key != null && key.isValid();
+  }
+
+  /**
+   * @return A new set that contains the keys of all registered channels.
+   * @see Selector#keys()
+   */
+  public Set<ScionSelectionKey> keys() {
+    Set<ScionSelectionKey> keys = new HashSet<>();
+    for (SelectionKey key : selector.keys()) {
+      keys.add((ScionSelectionKey) key.attachment());
+    }
+    return keys;
+  }
+
+  /**
+   * Keys are added to this set during selection. Keys should be removed by the user after they have
+   * been processed. The set is not thread-safe, see class documentation.
+   *
+   * @return This selector's selected-key set.
+   * @see Selector#selectedKeys()
+   */
+  public Set<ScionSelectionKey> selectedKeys() {
+    return selectedKeys;
+  }
+
+  /**
+   * Selects keys whose channels are ready, without blocking.
+   *
+   * @return The number of keys whose ready-operation sets were updated.
+   * @throws IOException If an I/O error occurs
+   * @see Selector#selectNow()
+   */
+  public int selectNow() throws IOException {
+    return doSelect(-1);
+  }
+
+  /**
+   * Selects keys whose channels are ready. This method blocks until at least one channel is
+   * selected, {@link #wakeup()} is invoked, the current thread is interrupted or the timeout
+   * expires.
+   *
+   * @param timeoutMs Timeout in milliseconds. If '0', block indefinitely.
+   * @return The number of keys whose ready-operation sets were updated.
+   * @throws IOException If an I/O error occurs
+   * @see Selector#select(long)
+   */
+  public int select(long timeoutMs) throws IOException {
+    if (timeoutMs < 0) {
+      throw new IllegalArgumentException("Negative timeout");
+    }
+    return doSelect(timeoutMs);
+  }
+
+  /**
+   * Selects keys whose channels are ready. This method blocks until at least one channel is
+   * selected, {@link #wakeup()} is invoked or the current thread is interrupted.
+   *
+   * @return The number of keys whose ready-operation sets were updated.
+   * @throws IOException If an I/O error occurs
+   * @see Selector#select()
+   */
+  public int select() throws IOException {
+    return doSelect(0);
+  }
+
+  /**
+   * @return This selector.
+   * @see Selector#wakeup()
+   */
+  public ScionSelector wakeup() {
+    wakeup.set(true);
+    selector.wakeup();
+    return this;
+  }
+
+  public boolean isOpen() {
+    return selector.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    selector.close();
+    synchronized (selectedKeys) {
+      selectedKeys.clear();
+    }
+    pendingKeys.clear();
+  }
+
+  /**
+   * @param timeoutMs Timeout in milliseconds. '0' blocks indefinitely, negative values do not
+   *     block.
+   */
+  private int doSelect(long timeoutMs) throws IOException {
+    selectLock.lock();
+    try {
+      return doSelectLocked(timeoutMs);
+    } finally {
+      selectLock.unlock();
+    }
+  }
+
+  private int doSelectLocked(long timeoutMs) throws IOException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    while (true) {
+      int n = selectPending();
+      if (n > 0 || timeoutMs < 0) {
+        selector.selectNow();
+      } else if (timeoutMs == 0) {
+        selector.select();
+      } else {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMs <= 0) {
+          selector.selectNow();
+        } else {
+          selector.select(remainingMs);
+        }
+      }
+      n += processSelectedKeys();
+
+      // Channels may have become readable because of SCMP or invalid packets only.
+      // In that case we continue selecting, unless we are supposed to return.
+      if (n > 0
+          || timeoutMs < 0
+          || wakeup.getAndSet(false)
+          || Thread.currentThread().isInterrupted()
+          || (timeoutMs > 0 && deadline - System.nanoTime() <= 0)) {
+        return n;
+      }
+    }
+  }
+
+  private int selectPending() {
+    synchronized (selectedKeys) {
+      return selectPendingLocked();
+    }
+  }
+
+  private int selectPendingLocked() {
+    int n = 0;
+    Iterator<ScionSelectionKey> iter = pendingKeys.iterator();
+    while (iter.hasNext()) {
+      ScionSelectionKey key = iter.next();
+      if (!key.isValid() || !key.channel().hasPendingPacket()) {
+        iter.remove();
+        continue;
+      }
+      try {
+        n += setReady(key, key.interestOps() & SelectionKey.OP_READ);
+      } catch (CancelledKeyException e) {
+        iter.remove();
+      }
+    }
+    return n;
+  }
+
+  private int processSelectedKeys() {
+    synchronized (selectedKeys) {
+      return processSelectedKeysLocked();
+    }
+  }
+
+  private int processSelectedKeysLocked() {
+    int n = 0;
+    Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+    while (iter.hasNext()) {
+      SelectionKey key = iter.next();
+      iter.remove();
+      ScionSelectionKey scionKey = (ScionSelectionKey) key.attachment();
+      int ops;
+      try {
+        ops = key.readyOps() & key.interestOps();
+      } catch (CancelledKeyException e) {
+        continue;
+      }
+      if ((ops & SelectionKey.OP_READ) != 0) {
+        if (scionKey.channel().pollUserPacket()) {
+          pendingKeys.add(scionKey);
+        } else {
+          ops &= ~SelectionKey.OP_READ;
+        }
+      }
+      n += setReady(scionKey, ops);
+    }
+    return n;
+  }
+
+  private int setReady(ScionSelectionKey key, int ops) {
+    if (ops == 0) {
+      return 0;
+    }
+    if (selectedKeys.add(key)) {
+      key.readyOps(ops);
+      return 1;
+    }
+    int oldOps = key.readyOps();
+    if ((oldOps | ops) != oldOps) {
+      key.readyOps(oldOps | ops);
+      return 1;
+    }
+    return 0;
+  }
+}
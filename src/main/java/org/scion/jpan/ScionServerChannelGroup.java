@@ -0,0 +1,294 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.scion.jpan.internal.util.BufferPool;
+import org.scion.jpan.internal.util.Threads;
+
+/**
+ * A group of server channels that are bound to the same local port with SO_REUSEPORT. Every channel
+ * has its own receiver thread, buffers and header parser, so incoming packets can be processed on
+ * multiple cores in parallel.
+ *
+ * <p>The kernel distributes incoming packets to the channels based on the underlay (IP/UDP) source
+ * and destination address. Note that all packets that arrive via the same border router have the
+ * same underlay source address. These are processed by a single channel.
+ *
+ * <p>Received datagrams are passed to the {@link Handler} on the receiver thread of the channel
+ * that received them. The handler can use the channel to respond.
+ *
+ * <p>SO_REUSEPORT requires Java 9 or later and is not supported on all platforms. Groups with a
+ * single channel do not require SO_REUSEPORT.
+ */
+public class ScionServerChannelGroup implements AutoCloseable {
+
+  private static final SocketOption<Boolean> SO_REUSEPORT = getReusePortOption();
+
+  private final List<ScionDatagramChannel> channels;
+  private final List<Thread> receivers = new ArrayList<>();
+  private final Handler handler;
+  private final int bufferSize;
+
+  public interface Handler {
+    /**
+     * Called for every received datagram.
+     *
+     * @param channel The channel that received the datagram. It can be used to send responses.
+     * @param payload The buffer that contains the payload between position and limit. The buffer is
+     *     reused after this method returns.
+     * @param descriptor Header information of the datagram. The descriptor is reused after this
+     *     method returns.
+     * @throws IOException Exceptions are reported to {@link #onException(Throwable)}.
+     */
+    void onDatagram(
+        ScionDatagramChannel channel, ByteBuffer payload, ScionPacketDescriptor descriptor)
+        throws IOException;
+
+    default void onException(Throwable t) {}
+  }
+
+  public static Builder newBuilder(Handler handler) {
+    return new Builder(handler);
+  }
+
+  /**
+   * @return 'true' if SO_REUSEPORT is supported by the JVM. Even if it is supported by the JVM, it
+   *     may still be unsupported by the platform.
+   */
+  public static boolean isReusePortSupported() {
+    return SO_REUSEPORT != null;
+  }
+
+  private ScionServerChannelGroup(
+      List<ScionDatagramChannel> channels, Handler handler, int bufferSize) {
+    this.channels = Collections.unmodifiableList(channels);
+    this.handler = handler;
+    this.bufferSize = bufferSize;
+  }
+
+  private void start() {
+    CountDownLatch barrier = new CountDownLatch(channels.size());
+    for (int i = 0; i < channels.size(); i++) {
+      ScionDatagramChannel channel = channels.get(i);
+      String name = "ScionServerChannelGroup-receiver-" + i;
+      Thread thread = Threads.newThread(() -> receiveTask(channel, barrier), name);
+      thread.start();
+      receivers.add(thread);
+    }
+    try {
+      if (!barrier.await(1, TimeUnit.SECONDS)) {
+        throw closeAfterFailedStart(new IllegalStateException("Could not start receiver threads"));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw closeAfterFailedStart(new ScionRuntimeException(e));
+    }
+  }
+
+  private RuntimeException closeAfterFailedStart(RuntimeException e) {
+    try {
+      close();
+    } catch (IOException ex) {
+      e.addSuppressed(ex);
+    }
+    return e;
+  }
+
+  private void receiveTask(ScionDatagramChannel channel, CountDownLatch barrier) {
+    // Every receiver has its own buffer. Packets are received directly into this buffer.
+    ByteBuffer buffer = BufferPool.getDefault().acquire(bufferSize);
+    ScionPacketDescriptor descriptor = new ScionPacketDescriptor();
+    barrier.countDown();
+    try {
+      while (channel.isOpen()) {
+        try {
+          if (channel.receive(buffer, descriptor) != null) {
+            handler.onDatagram(channel, buffer, descriptor);
+          }
+        } catch (ClosedChannelException e) {
+          return;
+        } catch (IOException | RuntimeException e) {
+          if (channel.isOpen()) {
+            handler.onException(e);
+          }
+        }
+      }
+    } finally {
+      BufferPool.getDefault().release(buffer);
+    }
+  }
+
+  /**
+   * @return The channels of this group.
+   */
+  public List<ScionDatagramChannel> getChannels() {
+    return channels;
+  }
+
+  /**
+   * @return The local address that all channels are bound to.
+   * @throws IOException If an I/O error occurs
+   */
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return channels.get(0).getLocalAddress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException exception = null;
+    for (ScionDatagramChannel channel : channels) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        exception = e;
+      }
+    }
+    for (Thread thread : receivers) {
+      try {
+        thread.join(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SocketOption<Boolean> getReusePortOption() {
+    // StandardSocketOptions.SO_REUSEPORT is only available with Java 9 or later.
+    try {
+      return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static void setReusePort(DatagramChannel channel) throws IOException {
+    if (SO_REUSEPORT == null || !channel.supportedOptions().contains(SO_REUSEPORT)) {
+      throw new UnsupportedOperationException("SO_REUSEPORT is not supported");
+    }
+    channel.setOption(SO_REUSEPORT, true);
+  }
+
+  public static class Builder {
+    private final Handler handler;
+    private ScionService service;
+    private boolean nullService = false;
+    private InetSocketAddress bindAddress;
+    private int channelCount = Runtime.getRuntime().availableProcessors();
+    private int bufferSize = AbstractScionChannel.DEFAULT_BUFFER_SIZE;
+
+    private Builder(Handler handler) {
+      this.handler = handler;
+    }
+
+    /**
+     * @param service A {@link ScionService} to be used. The default is the {@link
+     *     ScionService#defaultService()}. The service can be explicitly set to `null` if no
+     *     ScionService should be used.
+     * @return This builder.
+     */
+    public Builder service(ScionService service) {
+      this.service = service;
+      this.nullService = service == null;
+      return this;
+    }
+
+    /**
+     * @param address The local address. If the port is '0', an ephemeral port is chosen.
+     * @return This builder.
+     */
+    public Builder bind(InetSocketAddress address) {
+      this.bindAddress = address;
+      return this;
+    }
+
+    /**
+     * @param channelCount Number of channels and receiver threads. The default is the number of
+     *     available processors.
+     * @return This builder.
+     */
+    public Builder channelCount(int channelCount) {
+      if (channelCount < 1) {
+        throw new IllegalArgumentException("Channel count must be at least 1: " + channelCount);
+      }
+      this.channelCount = channelCount;
+      return this;
+    }
+
+    /**
+     * @param bufferSize Size of the receive buffer of each channel. This is the maximum size of a
+     *     SCION packet, including all headers.
+     * @return This builder.
+     */
+    public Builder bufferSize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    public ScionServerChannelGroup open() throws IOException {
+      // Use defaultService() unless it was set explicitly to null.
+      if (!nullService && service == null) {
+        service = ScionService.defaultService();
+      }
+      if (bindAddress == null) {
+        throw new IllegalStateException("Bind address is required");
+      }
+
+      List<ScionDatagramChannel> channels = new ArrayList<>();
+      try {
+        InetSocketAddress address = bindAddress;
+        for (int i = 0; i < channelCount; i++) {
+          DatagramChannel dc = DatagramChannel.open();
+          ScionDatagramChannel channel =
+              ScionDatagramChannel.newBuilder().service(service).channel(dc).open();
+          channels.add(channel);
+          if (channelCount > 1) {
+            setReusePort(dc);
+          }
+          // Packets are parsed in the receiver's buffer.
+          channel.setOption(ScionSocketOptions.SCION_API_WRITE_TO_USER_BUFFER, true);
+          channel.bind(address);
+          // Subsequent channels use the port of the first channel
+          int port = ((InetSocketAddress) dc.getLocalAddress()).getPort();
+          address = new InetSocketAddress(bindAddress.getAddress(), port);
+        }
+      } catch (IOException | RuntimeException e) {
+        for (ScionDatagramChannel channel : channels) {
+          channel.close();
+        }
+        throw e;
+      }
+
+      ScionServerChannelGroup group = new ScionServerChannelGroup(channels, handler, bufferSize);
+      group.start();
+      return group;
+    }
+  }
+}
@@ -57,6 +57,7 @@ public class ScionService {
   private final ControlServiceGrpc controlService;
   private final PathServiceRpc pathService;
   private final DaemonServiceGrpc daemonService;
+  private final PathCache pathCache = new PathCache();
   private final Thread shutdownHook;
 
   protected enum Mode {
@@ -244,6 +245,7 @@ public class ScionService {
   }
 
   private void closeDuringShutdown() {
+    pathCache.clear();
     if (daemonService != null) {
       daemonService.close();
     }
@@ -325,6 +327,20 @@ public class ScionService {
     return getPaths(dstAddress.getIsdAs(), dstAddress.getAddress(), dstAddress.getPort());
   }
 
+  /**
+   * Same as {@link #getPaths(ScionSocketAddress)}, but always requests new paths instead of using
+   * cached paths or segments. The new paths replace the cached paths. This is meant for explicit
+   * refreshes, e.g. {@link org.scion.jpan.selectors.PathSelector#refresh()}, or when all known
+   * paths have been reported faulty.
+   *
+   * @param dstAddress Destination IP address. Must belong to a SCION enabled end host.
+   * @return All paths returned by the path service.
+   */
+  public List<Path> refreshPaths(ScionSocketAddress dstAddress) {
+    ScionAddress address = ScionAddress.create(dstAddress.getIsdAs(), dstAddress.getAddress());
+    return getPaths(address, dstAddress.getPort(), true);
+  }
+
   /**
    * Request paths to the same destination as the provided path.
    *
@@ -344,7 +360,7 @@ public class ScionService {
    * @return All paths returned by the path service. Returns an empty list if no paths are found.
    */
   public List<Path> getPaths(long dstIsdAs, InetAddress dstAddress, int dstPort) {
-    return getPaths(ScionAddress.create(dstIsdAs, dstAddress), dstPort);
+    return getPaths(ScionAddress.create(dstIsdAs, dstAddress), dstPort, false);
   }
 
   /**
@@ -356,7 +372,7 @@ public class ScionService {
    * @throws ScionException if the DNS/TXT lookup did not return a (valid) SCION address.
    */
   public List<Path> lookupPaths(String hostName, int port) throws ScionException {
-    return getPaths(AddressLookupService.lookupAddress(hostName), port);
+    return getPaths(AddressLookupService.lookupAddress(hostName), port, false);
   }
 
   /**
@@ -367,17 +383,19 @@ public class ScionService {
    * @throws ScionException if the DNS/TXT lookup did not return a (valid) SCION address.
    */
   public List<Path> lookupPaths(InetSocketAddress dstAddr) throws ScionException {
-    return getPaths(AddressLookupService.lookupAddress(dstAddr.getHostString()), dstAddr.getPort());
+    ScionAddress address = AddressLookupService.lookupAddress(dstAddr.getHostString());
+    return getPaths(address, dstAddr.getPort(), false);
   }
 
   /**
    * Request paths from the local ISD/AS to the destination.
    *
    * @param dstAddress Destination SCION address
+   * @param refresh Whether cached paths should be replaced by new paths
    * @return All paths returned by the path service.
    */
-  private List<Path> getPaths(ScionAddress dstAddress, int dstPort) {
-    List<PathMetadata> paths = getPathList(dstAddress.getIsdAs());
+  private List<Path> getPaths(ScionAddress dstAddress, int dstPort, boolean refresh) {
+    List<PathMetadata> paths = getPathList(dstAddress.getIsdAs(), refresh);
     List<Path> scionPaths = new ArrayList<>(paths.size());
     for (PathMetadata meta : paths) {
       scionPaths.add(RequestPath.create(meta, dstAddress.getInetAddress(), dstPort));
@@ -407,37 +425,53 @@ public class ScionService {
     return AddressLookupService.getIsdAs(hostName);
   }
 
-  private List<PathMetadata> getPathList(long dstIsdAs) {
+  private List<PathMetadata> getPathList(long dstIsdAs, boolean refresh) {
     List<PathMetadata> list;
     if (pathService != null) {
       // query path service (new endhost API)
       list = new ArrayList<>();
       for (Long srcIsdAs : getLocalIsdAses()) {
-        list.addAll(getPathList(srcIsdAs, dstIsdAs));
+        list.addAll(getPathList(srcIsdAs, dstIsdAs, refresh));
       }
     } else {
       // query daemon or control service
       // TODO implement multi-ISD capability
-      list = getPathList(getLocalIsdAs(), dstIsdAs);
+      list = getPathList(getLocalIsdAs(), dstIsdAs, refresh);
     }
     return list;
   }
 
+  /**
+   * Paths are cached and shared by all callers, see {@link PathCache}. The returned list must not
+   * be modified.
+   */
   List<PathMetadata> getPathList(long srcIsdAs, long dstIsdAs) {
+    return getPathList(srcIsdAs, dstIsdAs, false);
+  }
+
+  private List<PathMetadata> getPathList(long srcIsdAs, long dstIsdAs, boolean refresh) {
+    if (refresh) {
+      // Segments are also requested again, cached segments would yield the same paths.
+      return pathCache.refresh(srcIsdAs, dstIsdAs, () -> lookupPathList(srcIsdAs, dstIsdAs, true));
+    }
+    return pathCache.get(srcIsdAs, dstIsdAs, () -> lookupPathList(srcIsdAs, dstIsdAs, false));
+  }
+
+  private List<PathMetadata> lookupPathList(long srcIsdAs, long dstIsdAs, boolean refresh) {
     List<PathMetadata> list;
     if (pathService != null) {
-      list = PathBuilder.getPathsPS(pathService, localAS, srcIsdAs, dstIsdAs);
+      list = PathBuilder.getPathsPS(pathService, localAS, srcIsdAs, dstIsdAs, refresh);
     } else if (daemonService != null) {
       list = daemonService.pathsAsMetadata(srcIsdAs, dstIsdAs);
     } else {
-      list = PathBuilder.getPathsCS(controlService, localAS, srcIsdAs, dstIsdAs);
+      list = PathBuilder.getPathsCS(controlService, localAS, srcIsdAs, dstIsdAs, refresh);
     }
     if (LOG.isInfoEnabled()) {
       String src = ScionUtil.toStringIA(srcIsdAs);
       String dst = ScionUtil.toStringIA(dstIsdAs);
       LOG.info("Paths found from {} to {}: {}", src, dst, list.size());
     }
-    return list;
+    return Collections.unmodifiableList(list);
   }
 
   /**
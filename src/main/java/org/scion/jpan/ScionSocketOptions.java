@@ -29,16 +29,39 @@ public final class ScionSocketOptions {
 
   /**
    * If set to 'true', the receive() and read() operations will read new packets directly into the
-   * ByteBuffer provided by the user. The ByteBuffer will contain the header and the position of
-   * will be set to the first byte of the payload. This has two advantages: the payload does not
-   * need to be copied (saving one copy operation) and the Scion packet header is directly available
-   * to the user. If set to 'false', the receive() and read() operations will copy the payload to
-   * the ByteBuffer provided by the user. Default is 'false'.
+   * ByteBuffer provided by the user. The ByteBuffer will contain the header starting at index 0,
+   * the position will be set to the first byte of the payload and the limit to the end of the
+   * payload. This has two advantages: the payload does not need to be copied (saving one copy
+   * operation) and the Scion packet header is directly available to the user. If set to 'false',
+   * the receive() and read() operations will copy the payload to the ByteBuffer provided by the
+   * user. Default is 'false'.
+   *
+   * <p>The user buffer should be a direct buffer, otherwise the underlying DatagramChannel copies
+   * the packet internally. The buffer must be large enough to hold header and payload, otherwise
+   * the packet is truncated or dropped.
    */
-  @Deprecated // TODO implement
   public static final SocketOption<Boolean> SCION_API_WRITE_TO_USER_BUFFER =
       new SciSocketOption<>("SCION_API_WRITE_TO_USER_BUFFER", Boolean.class);
 
+  /**
+   * If set to 'true', a background thread receives and processes SCMP messages as long as the
+   * application does not call receive() or read(). This is meant for send-only channels: SCMP
+   * errors 5 and 6 (interface down, internal connectivity down) are reported to the path
+   * selector(s) right away, so that subsequent packets are sent on a different path. SCMP errors
+   * are also reported to the listener set with setScmpErrorListener().
+   *
+   * <p>The background thread stops at the first user datagram. This datagram is returned by the
+   * next call to receive() or read(), further datagrams remain in the socket. The background thread
+   * stops permanently once the application calls receive() or read(), because from then on SCMP
+   * messages are processed by the application's receive calls.
+   *
+   * <p>The background thread waits on a {@link java.nio.channels.Selector}. Enabling this option
+   * switches the underlying DatagramChannel to non-blocking mode for good, blocking mode of the
+   * channel is then emulated with a Selector. Default is 'false'.
+   */
+  public static final SocketOption<Boolean> SCION_API_SCMP_BACKGROUND_READER =
+      new SciSocketOption<>("SCION_API_SCMP_BACKGROUND_READER", Boolean.class);
+
   /**
    * Before sending a packet, a new path will be requested if now() + pathExpirationMargin >
    * pathExpirationDate.
@@ -53,6 +76,54 @@ public final class ScionSocketOptions {
   public static final SocketOption<Integer> SCION_TRAFFIC_CLASS =
       new SciSocketOption<>("SCION_TRAFFIC_CLASS", Integer.class);
 
+  /**
+   * Number of slots in the reply path cache. If set to a value &gt; 0, response paths of received
+   * packets are cached. A packet that arrives with the same source address, path and ports as a
+   * previous packet will be reported with the same (cached) response path instance. This avoids
+   * parsing and reversing the path, and it allows the header of the response to be reused. This is
+   * useful for request/response servers that receive many packets from the same clients. The
+   * capacity is rounded up to the next power of two. Default is '0' (disabled).
+   */
+  public static final SocketOption<Integer> SCION_REPLY_PATH_CACHE_SIZE =
+      new SciSocketOption<>("SCION_REPLY_PATH_CACHE_SIZE", Integer.class);
+
+  /**
+   * Maximum number of underlay sockets that are connected to first-hop border routers. If set to a
+   * value &gt; 0, packets to a border router are sent on a connected underlay socket instead of the
+   * channel's own (unconnected) socket. This saves the kernel a route lookup and address checks for
+   * every packet. Receiving is not affected. If more border routers are used than there are
+   * sockets, the least recently used socket is closed. Default is '0' (disabled).
+   *
+   * <p>Connected sockets use the local IP of the channel, but a different local port. Replies are
+   * still received by the channel because they are addressed to the source address in the SCION
+   * header. This is not recommended behind a NAT: packets sent on connected sockets do not
+   * refresh the NAT mapping of the channel's own port, see {@link
+   * Constants#PROPERTY_NAT_MAPPING_KEEPALIVE}.
+   */
+  public static final SocketOption<Integer> SCION_CONNECTED_UNDERLAY_SOCKETS =
+      new SciSocketOption<>("SCION_CONNECTED_UNDERLAY_SOCKETS", Integer.class);
+
+  /**
+   * Controls the behavior of send(ByteBuffer, SocketAddress) while the path lookup for a new
+   * destination is pending. The path lookup includes a DNS lookup and a path request, which can
+   * take some time.
+   *
+   * <p>If set to '-1', send() blocks until the lookup has completed. If set to '0', the path lookup
+   * is performed in a background thread and packets are dropped while it is pending: send() returns
+   * 0 without consuming the buffer. If set to a value &gt; 0, up to this number of packets per
+   * destination are copied and queued while the lookup is pending. They are sent once the lookup
+   * has completed, further packets are dropped. send() returns the number of queued bytes. If the
+   * background lookup fails, the next send() to that destination throws the error. Default is '-1'.
+   *
+   * <p>Background lookups are performed by a small thread pool that is shared by all channels. If
+   * too many lookups are pending, send() to a new destination throws an IOException.
+   *
+   * <p>In all cases, concurrent path lookups to the same destination are coalesced, and a pending
+   * lookup does not block senders to other destinations.
+   */
+  public static final SocketOption<Integer> SCION_UNRESOLVED_QUEUE_SIZE =
+      new SciSocketOption<>("SCION_UNRESOLVED_QUEUE_SIZE", Integer.class);
+
   private ScionSocketOptions() {}
 
   static class SciSocketOption<T> implements SocketOption<T> {
@@ -24,6 +24,8 @@ import java.nio.channels.Selector;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.scion.jpan.internal.header.HeaderConstants;
@@ -31,6 +33,7 @@ import org.scion.jpan.internal.header.PathHeaderParser;
 import org.scion.jpan.internal.header.ScionHeaderParser;
 import org.scion.jpan.internal.header.ScmpParser;
 import org.scion.jpan.internal.util.ByteUtil;
+import org.scion.jpan.internal.util.Threads;
 import org.scion.jpan.selectors.PathSelectorNull;
 
 public class ScmpSenderAsync implements AutoCloseable {
@@ -38,7 +41,7 @@ public class ScmpSenderAsync implements AutoCloseable {
   private final InternalChannel channel;
   private final AtomicInteger sequenceIDs = new AtomicInteger(0);
   private final ConcurrentHashMap<Integer, TimeOutTask> timers = new ConcurrentHashMap<>();
-  private final Timer timer = new Timer(true);
+  private final ScheduledThreadPoolExecutor timer;
   private final Thread receiver;
   private final ResponseHandler handler;
 
@@ -63,14 +66,15 @@ public class ScmpSenderAsync implements AutoCloseable {
       java.nio.channels.DatagramChannel channel) {
     this.channel = new InternalChannel(service, port, channel);
     this.handler = handler;
+    this.timer = new ScheduledThreadPoolExecutor(1, Threads.factory("ScmpSender-timer"));
+    this.timer.setRemoveOnCancelPolicy(true);
     this.receiver = startHandler();
   }
 
   private Thread startHandler() {
     String name = "ScmpSender-receiver";
     CountDownLatch barrier = new CountDownLatch(1);
-    Thread thread = new Thread(() -> receiveTask(barrier), name);
-    thread.setDaemon(true);
+    Thread thread = Threads.newThread(() -> receiveTask(barrier), name);
     thread.start();
     try {
       if (!barrier.await(1, TimeUnit.SECONDS)) {
@@ -178,7 +182,7 @@ public class ScmpSenderAsync implements AutoCloseable {
 
   @Override
   public void close() throws IOException {
-    timer.cancel();
+    timer.shutdownNow();
     stopHandler(receiver);
     channel.close();
   }
@@ -273,7 +277,7 @@ public class ScmpSenderAsync implements AutoCloseable {
         throws IOException {
       request.setSendNanoSeconds(System.nanoTime());
       TimeOutTask timerTask = new TimeOutTask(request);
-      timer.schedule(timerTask, timeOutMs);
+      timerTask.future = timer.schedule(timerTask, timeOutMs, TimeUnit.MILLISECONDS);
       timers.put(request.getSequenceNumber(), timerTask);
       // Send packet _after_ registering timers!
       sendRaw(buffer, path);
@@ -391,8 +395,9 @@ public class ScmpSenderAsync implements AutoCloseable {
     }
   }
 
-  private class TimeOutTask extends TimerTask {
+  private class TimeOutTask implements Runnable {
     private final Scmp.TimedMessage request;
+    private Future<?> future;
 
     TimeOutTask(Scmp.TimedMessage request) {
       this.request = request;
@@ -408,6 +413,10 @@ public class ScmpSenderAsync implements AutoCloseable {
         handler.onTimeout(msg);
       }
     }
+
+    void cancel() {
+      future.cancel(false);
+    }
   }
 
   public static class Builder {
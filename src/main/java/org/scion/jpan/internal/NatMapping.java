@@ -22,11 +22,15 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.*;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.scion.jpan.*;
+import org.scion.jpan.internal.util.BufferPool;
 import org.scion.jpan.internal.util.ByteUtil;
 import org.scion.jpan.internal.util.Config;
 import org.scion.jpan.internal.util.ExternalIpDiscovery;
 import org.scion.jpan.internal.util.IPHelper;
+import org.scion.jpan.internal.util.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,17 +45,16 @@ public class NatMapping {
   private NatMode mode;
   private Entry commonAddress;
   private final Map<InetSocketAddress, Entry> sourceIPs = new HashMap<>();
-  private final ByteBuffer buffer = ByteBuffer.allocateDirect(100);
   private final DatagramChannel channel;
   private InetAddress externalIP;
-  private final Timer timer;
+  private final ScheduledThreadPoolExecutor timer;
   private final int natMappingTimeoutMs = Config.getNatMappingTimeoutMs(); // seconds
   private final int stunTimeoutMs = Config.getStunTimeoutMs();
 
   private NatMapping(DatagramChannel channel, List<InetSocketAddress> borderRouters) {
     this.channel = channel;
     this.mode = NatMode.NOT_INITIALIZED;
-    this.timer = new Timer(true);
+    this.timer = new ScheduledThreadPoolExecutor(1, Threads.factory("NatMapping-timer"));
     boolean useTimer = Config.useNatMappingKeepAlive();
 
     for (InetSocketAddress brAddress : borderRouters) {
@@ -61,7 +64,8 @@ public class NatMapping {
           k -> {
             Entry e = new Entry(null, brAddress);
             if (useTimer) {
-              timer.schedule(new NatMappingTimerTask(e), natMappingTimeoutMs);
+              timer.schedule(
+                  new NatMappingTimerTask(e), natMappingTimeoutMs, TimeUnit.MILLISECONDS);
             }
             return e;
           });
@@ -321,6 +325,16 @@ public class NatMapping {
   }
 
   private boolean doStunRequest(Selector selector, Collection<Entry> servers) throws IOException {
+    ByteBuffer buffer = BufferPool.getDefault().acquire(100);
+    try {
+      return doStunRequest(selector, servers, buffer);
+    } finally {
+      BufferPool.getDefault().release(buffer);
+    }
+  }
+
+  private boolean doStunRequest(Selector selector, Collection<Entry> servers, ByteBuffer buffer)
+      throws IOException {
     final HashMap<STUN.TransactionID, Entry> ids = new HashMap<>();
 
     // Start sending
@@ -361,7 +375,7 @@ public class NatMapping {
   }
 
   public void close() {
-    timer.cancel();
+    timer.shutdownNow();
   }
 
   /** See {@link Constants#PROPERTY_NAT} for details. */
@@ -440,7 +454,7 @@ public class NatMapping {
     }
   }
 
-  private class NatMappingTimerTask extends TimerTask {
+  private class NatMappingTimerTask implements Runnable {
     private final Entry e;
 
     NatMappingTimerTask(Entry e) {
@@ -465,7 +479,9 @@ public class NatMapping {
         delay = natMappingTimeoutMs;
       }
       // reset timer
-      timer.schedule(new NatMappingTimerTask(e), delay);
+      if (!timer.isShutdown()) {
+        timer.schedule(new NatMappingTimerTask(e), delay, TimeUnit.MILLISECONDS);
+      }
     }
   }
 }
@@ -32,7 +32,8 @@ import org.scion.jpan.selectors.PathSelectorWithRefresh;
 /**
  * DatagramChannel with support for timeout.
  *
- * <p>The class is non-public for now. It may be removed (or not) once we implement Selectors.
+ * <p>The class is non-public for now. It uses a private Selector per channel. To serve many
+ * channels from a single thread, use {@link ScionSelector} instead.
  */
 public class SelectingDatagramChannel extends ScionDatagramChannel {
   private final Selector selector;
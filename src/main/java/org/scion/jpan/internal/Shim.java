@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import org.scion.jpan.*;
 import org.scion.jpan.internal.header.ScionHeaderParser;
+import org.scion.jpan.internal.util.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -110,8 +111,7 @@ public class Shim implements AutoCloseable {
   }
 
   private void start() {
-    forwarder = new Thread(this::forwardStarter, "Shim-Dispatcher");
-    forwarder.setDaemon(true);
+    forwarder = Threads.newThread(this::forwardStarter, "Shim-Dispatcher");
     forwarder.start();
     try {
       if (!scmpResponderBarrier.await(100, TimeUnit.MILLISECONDS)) {
@@ -0,0 +1,178 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import org.scion.jpan.internal.util.SimpleCache;
+
+/**
+ * A small set of underlay channels that are connected to first-hop border routers. Sending on a
+ * connected channel saves the kernel the route lookup and address checks for every packet.
+ *
+ * <p>The connected channels are bound to the local IP of the owning channel, but to an ephemeral
+ * port. They are used for sending only. Sharing the port of the owning channel (SO_REUSEPORT) is
+ * not an option: the kernel prefers connected sockets when delivering incoming packets, so all
+ * packets from a border router would end up in the connected channel instead of the owning channel.
+ * Replies and SCMP errors are addressed to the SCION source address in the SCION header, i.e. to
+ * the owning channel.
+ *
+ * <p>When the capacity is exceeded, the least recently used channel is closed. This class is
+ * thread-safe.
+ */
+public class UnderlayConnections implements AutoCloseable {
+
+  private final DatagramChannel owner;
+  private final int capacity;
+  // Guards `channels`. We use a ReentrantLock instead of `synchronized` to avoid pinning virtual
+  // threads while opening channels.
+  private final ReentrantLock lock = new ReentrantLock();
+  private final SimpleCache<InetSocketAddress, DatagramChannel> channels;
+  private boolean isClosed = false;
+
+  /**
+   * @param owner The channel that is used for receiving. New channels are created with the same
+   *     provider and bound to the same local IP.
+   * @param capacity Maximum number of connected channels.
+   */
+  public UnderlayConnections(DatagramChannel owner, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    this.owner = owner;
+    this.capacity = capacity;
+    this.channels = new SimpleCache<>(capacity, true);
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Send a packet on the channel that is connected to the first hop.
+   *
+   * @param buffer The packet
+   * @param firstHop Address of the first-hop border router
+   * @return The number of bytes sent, see {@link DatagramChannel#send(ByteBuffer,
+   *     java.net.SocketAddress)}, or -1 if this instance has been closed.
+   * @throws IOException If an I/O error occurs
+   */
+  public int send(ByteBuffer buffer, InetSocketAddress firstHop) throws IOException {
+    return (int) write(new ByteBuffer[] {buffer}, firstHop);
+  }
+
+  /**
+   * Send a packet that consists of a sequence of buffers, e.g. header and payload, on the channel
+   * that is connected to the first hop. This is a gathering write, the buffers are not copied.
+   *
+   * @param buffers The packet
+   * @param firstHop Address of the first-hop border router
+   * @return The number of bytes sent, see {@link DatagramChannel#write(ByteBuffer[])}, or -1 if
+   *     this instance has been closed.
+   * @throws IOException If an I/O error occurs
+   */
+  public long write(ByteBuffer[] buffers, InetSocketAddress firstHop) throws IOException {
+    DatagramChannel channel = getChannel(firstHop);
+    if (channel == null) {
+      return -1;
+    }
+    if (channel.isBlocking() != owner.isBlocking()) {
+      channel.configureBlocking(owner.isBlocking());
+    }
+    try {
+      return channel.write(buffers);
+    } catch (PortUnreachableException e) {
+      // Connected channels report ICMP errors from previous packets, unconnected channels
+      // ignore them. We stay consistent with unconnected channels and try again.
+      remove(firstHop, channel);
+      channel = getChannel(firstHop);
+      return channel == null ? -1 : channel.write(buffers);
+    }
+  }
+
+  private DatagramChannel getChannel(InetSocketAddress firstHop) throws IOException {
+    lock.lock();
+    try {
+      if (isClosed) {
+        return null;
+      }
+      DatagramChannel channel = channels.get(firstHop);
+      if (channel == null) {
+        channel = open(firstHop);
+        channels.put(firstHop, channel);
+      }
+      return channel;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private DatagramChannel open(InetSocketAddress firstHop) throws IOException {
+    InetAddress localIP = ((InetSocketAddress) owner.getLocalAddress()).getAddress();
+    DatagramChannel channel = owner.provider().openDatagramChannel();
+    try {
+      channel.bind(new InetSocketAddress(localIP, 0));
+      channel.connect(firstHop);
+      channel.configureBlocking(owner.isBlocking());
+      return channel;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void remove(InetSocketAddress firstHop, DatagramChannel channel) throws IOException {
+    lock.lock();
+    try {
+      if (channels.get(firstHop) == channel) {
+        channels.remove(firstHop);
+      }
+    } finally {
+      lock.unlock();
+    }
+    channel.close();
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      isClosed = true;
+      List<DatagramChannel> list = new ArrayList<>();
+      channels.forEach((firstHop, channel) -> list.add(channel));
+      channels.clear();
+      IOException exception = null;
+      for (DatagramChannel channel : list) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          exception = e;
+        }
+      }
+      if (exception != null) {
+        throw exception;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
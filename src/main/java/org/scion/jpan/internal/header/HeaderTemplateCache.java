@@ -0,0 +1,160 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.header;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.scion.jpan.Path;
+
+/**
+ * A cache for precomputed SCION headers (common header, address header and path).
+ *
+ * <p>Headers are keyed by the content of the path, i.e. the destination ISD/AS and address and the
+ * raw path. This allows reuse for equivalent Path instances, e.g. a new ResponsePath for every
+ * received packet. A header is only reused if the source address, the header type and the traffic
+ * class are also unchanged. When a header is reused, it is copied into the output buffer and only
+ * the payload length is patched.
+ *
+ * <p>Headers are first looked up by the identity of the raw path array, which avoids hashing the
+ * raw path when the same Path instance is used repeatedly. Only if that fails, the header is looked
+ * up by the content hash of the path.
+ *
+ * <p>The cache is direct mapped, i.e. a new header simply replaces any previous header in the same
+ * slot. This class is thread-safe without locking. Concurrent updates of the same slot may cause a
+ * header to be replaced by another one, which only results in a cache miss.
+ */
+public class HeaderTemplateCache {
+
+  private static final int OFFSET_PAYLOAD_LENGTH = 6;
+
+  // Slots by content of the path
+  private final Entry[] entries;
+  // Slots by identity of the raw path
+  private final Entry[] entriesByIdentity;
+  private final int mask;
+
+  /**
+   * @param size Number of slots, must be a power of two.
+   */
+  public HeaderTemplateCache(int size) {
+    if (size < 1 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Size must be a power of two: " + size);
+    }
+    this.entries = new Entry[size];
+    this.entriesByIdentity = new Entry[size];
+    this.mask = size - 1;
+  }
+
+  /**
+   * Writes a cached header to the buffer, if available.
+   *
+   * @param buffer Output buffer. The header is written at the current position.
+   * @param path The path
+   * @param payloadLength Payload length, including any overlay header (e.g. UDP)
+   * @param hdrType Header type e.g. SCMP(202) or UDP (17)
+   * @param trafficClass Traffic class
+   * @param srcAddress Source address
+   * @return 'true' if a cached header was written, otherwise 'false'.
+   */
+  public boolean write(
+      ByteBuffer buffer,
+      Path path,
+      int payloadLength,
+      int hdrType,
+      int trafficClass,
+      InetAddress srcAddress) {
+    Entry e = entriesByIdentity[identitySlot(path)];
+    if (e == null || e.rawPath != path.getRawPath()) {
+      e = entries[slot(path)];
+    }
+    if (e == null
+        || !e.matches(path)
+        || e.hdrType != hdrType
+        || e.trafficClass != trafficClass
+        || !srcAddress.equals(e.srcAddress)) {
+      return false;
+    }
+    int start = buffer.position();
+    buffer.put(e.header);
+    buffer.putShort(start + OFFSET_PAYLOAD_LENGTH, (short) payloadLength);
+    return true;
+  }
+
+  /**
+   * Stores a header in the cache.
+   *
+   * @param buffer Buffer that contains the header between 0 and the current position.
+   * @param path The path
+   * @param hdrType Header type e.g. SCMP(202) or UDP (17)
+   * @param trafficClass Traffic class
+   * @param srcAddress Source address
+   */
+  public void put(
+      ByteBuffer buffer, Path path, int hdrType, int trafficClass, InetAddress srcAddress) {
+    byte[] header = new byte[buffer.position()];
+    ByteBuffer src = buffer.duplicate();
+    src.flip();
+    src.get(header);
+    Entry e = new Entry(path, hdrType, trafficClass, srcAddress, header);
+    entries[slot(path)] = e;
+    entriesByIdentity[identitySlot(path)] = e;
+  }
+
+  public void clear() {
+    Arrays.fill(entries, null);
+    Arrays.fill(entriesByIdentity, null);
+  }
+
+  private int identitySlot(Path path) {
+    int hash = System.identityHashCode(path.getRawPath());
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private int slot(Path path) {
+    int hash = Long.hashCode(path.getRemoteIsdAs());
+    hash = 31 * hash + path.getRemoteAddress().hashCode();
+    hash = 31 * hash + Arrays.hashCode(path.getRawPath());
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  /** Entries are immutable. Final fields ensure safe publication without locking. */
+  private static class Entry {
+    private final long dstIsdAs;
+    private final InetAddress dstAddress;
+    private final byte[] rawPath;
+    private final int hdrType;
+    private final int trafficClass;
+    private final InetAddress srcAddress;
+    private final byte[] header;
+
+    private Entry(Path path, int hdrType, int trafficClass, InetAddress srcAddress, byte[] header) {
+      this.dstIsdAs = path.getRemoteIsdAs();
+      this.dstAddress = path.getRemoteAddress();
+      this.rawPath = path.getRawPath();
+      this.hdrType = hdrType;
+      this.trafficClass = trafficClass;
+      this.srcAddress = srcAddress;
+      this.header = header;
+    }
+
+    private boolean matches(Path path) {
+      byte[] otherRawPath = path.getRawPath();
+      return dstIsdAs == path.getRemoteIsdAs()
+          && (rawPath == otherRawPath || Arrays.equals(rawPath, otherRawPath))
+          && dstAddress.equals(path.getRemoteAddress());
+    }
+  }
+}
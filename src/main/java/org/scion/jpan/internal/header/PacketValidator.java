@@ -0,0 +1,278 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.header;
+
+import java.nio.ByteBuffer;
+import org.scion.jpan.Scmp;
+import org.scion.jpan.internal.util.ByteUtil;
+
+/**
+ * Allocation free validation of SCION packets.
+ *
+ * <p>{@link #validate(ByteBuffer)} returns an int reason code. This avoids creating error messages
+ * (and garbage) for every bad packet, for example when a receiver is flooded with junk packets.
+ * Human-readable messages can be created with {@link #describe(int, ByteBuffer)} when needed.
+ */
+public final class PacketValidator {
+
+  public static final int VALID = 0;
+  public static final int INVALID_LENGTH = 1;
+  public static final int INVALID_VERSION = 2;
+  public static final int INVALID_NEXT_HEADER = 3;
+  public static final int INVALID_PATH_TYPE = 4;
+  public static final int INVALID_DST_ADDRESS_TYPE = 5;
+  public static final int INVALID_SRC_ADDRESS_TYPE = 6;
+  public static final int INVALID_RESERVED = 7;
+  public static final int INVALID_HEADER_LENGTH = 8;
+  public static final int INVALID_PATH_LENGTH = 9;
+  public static final int UNSUPPORTED_HEADER_TYPE = 10;
+  public static final int INVALID_UDP_LENGTH = 11;
+  public static final int INVALID_UDP_SRC_PORT = 12;
+  public static final int INVALID_UDP_DST_PORT = 13;
+  public static final int INVALID_SCMP_LENGTH = 14;
+  public static final int INVALID_SCMP_TYPE_CODE = 15;
+  public static final int INVALID_SCMP_EXTENSION_LENGTH = 16;
+
+  /** Number of reason codes, including VALID. */
+  public static final int REASON_COUNT = 17;
+
+  private static final String[] NAMES = {
+    "VALID",
+    "INVALID_LENGTH",
+    "INVALID_VERSION",
+    "INVALID_NEXT_HEADER",
+    "INVALID_PATH_TYPE",
+    "INVALID_DST_ADDRESS_TYPE",
+    "INVALID_SRC_ADDRESS_TYPE",
+    "INVALID_RESERVED",
+    "INVALID_HEADER_LENGTH",
+    "INVALID_PATH_LENGTH",
+    "UNSUPPORTED_HEADER_TYPE",
+    "INVALID_UDP_LENGTH",
+    "INVALID_UDP_SRC_PORT",
+    "INVALID_UDP_DST_PORT",
+    "INVALID_SCMP_LENGTH",
+    "INVALID_SCMP_TYPE_CODE",
+    "INVALID_SCMP_EXTENSION_LENGTH"
+  };
+
+  private static final int MIN_LENGTH = 12 + 16 + 8;
+  private static final int MAX_SCMP_LENGTH = 1232;
+  private static final String PRE = "SCION packet validation failed: ";
+  private static final String PRE_UDP = "SCION UDP packet validation failed: ";
+  private static final String PRE_SCMP = "SCION SCMP packet validation failed: ";
+
+  private PacketValidator() {}
+
+  /**
+   * Validates the packet starting at the buffer's position. The buffer's position is not changed.
+   *
+   * @param data The packet
+   * @return {@link #VALID} or a reason code.
+   */
+  public static int validate(ByteBuffer data) {
+    int start = data.position();
+    int length = data.limit() - start;
+    if (length < MIN_LENGTH) {
+      return INVALID_LENGTH;
+    }
+
+    int i0 = data.getInt(start);
+    int i1 = data.getInt(start + 4);
+    int i2 = data.getInt(start + 8);
+    if (ByteUtil.readInt(i0, 0, 4) != 0) {
+      return INVALID_VERSION;
+    }
+    // int trafficLClass = readInt(i0, 4, 8);
+    // int flowId = readInt(i0, 12, 20);
+    int nextHeader = ByteUtil.readInt(i1, 0, 8);
+    if (nextHeader != HeaderConstants.HdrTypes.UDP.code()
+        && nextHeader != HeaderConstants.HdrTypes.HOP_BY_HOP.code()
+        && nextHeader != HeaderConstants.HdrTypes.END_TO_END.code()
+        && nextHeader != HeaderConstants.HdrTypes.SCMP.code()) {
+      return INVALID_NEXT_HEADER;
+    }
+    int hdrLenBytes = ByteUtil.readInt(i1, 8, 8) * 4;
+    int payLoadLen = ByteUtil.readInt(i1, 16, 16);
+    if (hdrLenBytes + payLoadLen != length) {
+      return INVALID_LENGTH;
+    }
+    int pathType = ByteUtil.readInt(i2, 0, 8);
+    if (pathType != 1 && pathType != 0) {
+      // Validation against path length happens further down.
+      return INVALID_PATH_TYPE;
+    }
+    int dtdl = ByteUtil.readInt(i2, 8, 4);
+    int stsl = ByteUtil.readInt(i2, 12, 4);
+    if (dtdl != 0b0000 && dtdl != 0b0011) { // Allow also IPv4SVC=0b0100 ?
+      return INVALID_DST_ADDRESS_TYPE;
+    }
+    if (stsl != 0b0000 && stsl != 0b0011) { // Allow also IPv4SVC=0b0100 ?
+      return INVALID_SRC_ADDRESS_TYPE;
+    }
+    if (ByteUtil.readInt(i2, 16, 16) != 0) {
+      return INVALID_RESERVED;
+    }
+
+    // Address header: 2x ISD/AS (16 bytes) + DstHostAddr + SrcHostAddr.
+    // The address types above guarantee valid IPv4 or IPv6 address lengths.
+    // TODO match dst ISD/AS against local ISD/ASes
+    int dstLen = ((dtdl & 0b11) + 1) * 4;
+    int srcLen = ((stsl & 0b11) + 1) * 4;
+    int pathLength = hdrLenBytes - (12 + 16 + dstLen + srcLen);
+    if (pathLength < 0) {
+      return INVALID_HEADER_LENGTH;
+    }
+    if ((pathLength == 0 && pathType != 0) || (pathLength > 0 && pathType != 1)) {
+      return INVALID_PATH_LENGTH;
+    }
+    // TODO validate path
+
+    int payloadStart = start + hdrLenBytes;
+    if (nextHeader == HeaderConstants.HdrTypes.UDP.code()) {
+      return validateUDP(data, payloadStart);
+    } else if (nextHeader == HeaderConstants.HdrTypes.SCMP.code()) {
+      return validateSCMP(data, payloadStart, length);
+    }
+    return UNSUPPORTED_HEADER_TYPE;
+  }
+
+  private static int validateUDP(ByteBuffer data, int payloadStart) {
+    if (data.limit() - payloadStart < 8) {
+      return INVALID_UDP_LENGTH;
+    }
+    // get remote port from UDP overlay
+    if (data.getShort(payloadStart) == 0) {
+      return INVALID_UDP_SRC_PORT;
+    }
+    if (data.getShort(payloadStart + 2) == 0) {
+      return INVALID_UDP_DST_PORT; // can this happen?
+    }
+    return VALID;
+  }
+
+  private static int validateSCMP(ByteBuffer data, int payloadStart, int length) {
+    if (length > MAX_SCMP_LENGTH || data.limit() - payloadStart < 4) {
+      return INVALID_SCMP_LENGTH;
+    }
+
+    int type = ByteUtil.toUnsigned(data.get(payloadStart));
+    int code = ByteUtil.toUnsigned(data.get(payloadStart + 1));
+    // TODO validate checksum
+
+    Scmp.TypeCode typeCode = Scmp.TypeCode.parseOrNull(type, code);
+    if (typeCode == null) {
+      return INVALID_SCMP_TYPE_CODE;
+    }
+    int remaining = data.limit() - payloadStart - 4;
+    if (remaining < typeCode.type().getHeaderLength() - 4) {
+      return INVALID_SCMP_EXTENSION_LENGTH;
+    }
+    if ((typeCode == Scmp.TypeCode.TYPE_130 || typeCode == Scmp.TypeCode.TYPE_131)
+        && remaining != 20) {
+      return INVALID_SCMP_LENGTH;
+    }
+    return VALID;
+  }
+
+  /**
+   * @param reason A reason code
+   * @return The name of the reason code, e.g. "INVALID_LENGTH".
+   */
+  public static String name(int reason) {
+    return NAMES[reason];
+  }
+
+  /**
+   * Creates a human-readable description of a validation failure. This method allocates memory and
+   * should only be called if the description is actually needed.
+   *
+   * @param reason The reason code returned by {@link #validate(ByteBuffer)}
+   * @param data The packet, as passed to {@link #validate(ByteBuffer)}
+   * @return The description or 'null' if the reason is {@link #VALID}.
+   */
+  public static String describe(int reason, ByteBuffer data) {
+    int start = data.position();
+    int length = data.limit() - start;
+    switch (reason) {
+      case VALID:
+        return null;
+      case INVALID_LENGTH:
+        if (length < MIN_LENGTH) {
+          return PRE + "Invalid packet length: packet too short: " + length;
+        }
+        return PRE
+            + "Invalid packet length: length = "
+            + length
+            + ", header says "
+            + (headerLength(data) + ByteUtil.toUnsigned(data.getShort(start + 6)));
+      case INVALID_VERSION:
+        return PRE + "version: expected 0, got " + (ByteUtil.toUnsigned(data.get(start)) >>> 4);
+      case INVALID_NEXT_HEADER:
+        return PRE + "nextHeader: expected {17, 200, 201, 202}, got " + nextHeader(data);
+      case INVALID_PATH_TYPE:
+        return PRE + "Invalid path type: expected 0 or 1, got " + pathType(data);
+      case INVALID_DST_ADDRESS_TYPE:
+        return PRE
+            + "Invalid destination address type: expected 0b000 or 0b111, got "
+            + Integer.toBinaryString(ByteUtil.toUnsigned(data.get(start + 9)) >>> 4);
+      case INVALID_SRC_ADDRESS_TYPE:
+        return PRE
+            + "Invalid source address type: expected 0b000 or 0b111, got "
+            + Integer.toBinaryString(ByteUtil.toUnsigned(data.get(start + 9)) & 0xF);
+      case INVALID_RESERVED:
+        return PRE
+            + "Invalid reserved field: expected '0b0000_0000_0000_0000', got "
+            + Integer.toBinaryString(ByteUtil.toUnsigned(data.getShort(start + 10)));
+      case INVALID_HEADER_LENGTH:
+        return PRE + "Header length too short for address header: " + headerLength(data);
+      case INVALID_PATH_LENGTH:
+        return PRE + "Path length does not match path type: " + pathType(data);
+      case UNSUPPORTED_HEADER_TYPE:
+        return PRE + "Unsupported header type: " + nextHeader(data);
+      case INVALID_UDP_LENGTH:
+        return PRE_UDP + "Packet too short for UDP header: " + length;
+      case INVALID_UDP_SRC_PORT:
+        return PRE_UDP + "Invalid source port: 0";
+      case INVALID_UDP_DST_PORT:
+        return PRE_UDP + "Invalid destination port: 0";
+      case INVALID_SCMP_LENGTH:
+        return PRE_SCMP + "Invalid packet length: " + length;
+      case INVALID_SCMP_TYPE_CODE:
+        int payloadStart = start + headerLength(data);
+        return PRE_SCMP
+            + "Unknown type code: "
+            + ByteUtil.toUnsigned(data.get(payloadStart))
+            + " / "
+            + ByteUtil.toUnsigned(data.get(payloadStart + 1));
+      case INVALID_SCMP_EXTENSION_LENGTH:
+        return PRE_SCMP + "Invalid SCMP extension length: " + (length - headerLength(data));
+      default:
+        throw new IllegalArgumentException("Unknown reason: " + reason);
+    }
+  }
+
+  private static int nextHeader(ByteBuffer data) {
+    return ByteUtil.toUnsigned(data.get(data.position() + 4));
+  }
+
+  private static int headerLength(ByteBuffer data) {
+    return ByteUtil.toUnsigned(data.get(data.position() + 5)) * 4;
+  }
+
+  private static int pathType(ByteBuffer data) {
+    return ByteUtil.toUnsigned(data.get(data.position() + 8));
+  }
+}
@@ -0,0 +1,225 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.header;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.scion.jpan.Path;
+import org.scion.jpan.Scmp;
+import org.scion.jpan.internal.util.ByteUtil;
+
+/**
+ * Tracks the effective MTU of paths, as reported by SCMP "packet too big" errors (type 2).
+ *
+ * <p>Paths are identified by the source and destination ISD/AS and by the interface IDs of the hop
+ * fields. Other fields of the raw path, such as segment IDs or the current hop pointer, are
+ * modified by border routers and are therefore not part of the key. This allows matching the path
+ * of the packet that is quoted in an SCMP error with the path that was used for sending it.
+ *
+ * <p>Reported MTUs only ever lower the MTU of a path. They expire after some time because the
+ * underlying route may have changed. This class is thread-safe.
+ */
+public class PathMtuTracker {
+
+  /** Default time after which a reported MTU is forgotten. */
+  public static final long DEFAULT_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final int MAX_ENTRIES = 256;
+  private static final int PATH_META_LEN = 4;
+  private static final int PATH_INFO_LEN = 8;
+  private static final int HOP_FIELD_LEN = 12;
+
+  private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final long expiryNanos;
+
+  public PathMtuTracker() {
+    this(DEFAULT_EXPIRY_MILLIS);
+  }
+
+  /**
+   * @param expiryMillis Time after which a reported MTU expires.
+   */
+  public PathMtuTracker(long expiryMillis) {
+    this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+  }
+
+  /**
+   * @param path The path
+   * @return The MTU that was reported for the path or 0 if no (unexpired) MTU is known.
+   */
+  public int getReportedMtu(Path path) {
+    if (entries.isEmpty()) {
+      return 0;
+    }
+    Key key = Key.create(path.getLocalIsdAs(), path.getRemoteIsdAs(), path.getRawPath());
+    if (key == null) {
+      return 0;
+    }
+    Entry e = entries.get(key);
+    if (e == null) {
+      return 0;
+    }
+    if (e.isExpired(System.nanoTime())) {
+      entries.remove(key, e);
+      return 0;
+    }
+    return e.mtu;
+  }
+
+  /**
+   * Record the MTU of the path of the packet that is quoted in the SCMP error.
+   *
+   * @param error SCMP error message of type 2
+   * @return 'true' if the MTU could be assigned to a path.
+   */
+  public boolean report(Scmp.Error2Message error) {
+    byte[] cause = error.getCause();
+    if (cause == null) {
+      return false;
+    }
+    return report(Key.create(ByteBuffer.wrap(cause)), error.getMtu());
+  }
+
+  /**
+   * Record the MTU of a path.
+   *
+   * @param path The path
+   * @param mtu The MTU
+   * @return 'true' if the MTU could be assigned to the path.
+   */
+  public boolean report(Path path, int mtu) {
+    return report(Key.create(path.getLocalIsdAs(), path.getRemoteIsdAs(), path.getRawPath()), mtu);
+  }
+
+  private boolean report(Key key, int mtu) {
+    if (key == null || mtu <= 0) {
+      return false;
+    }
+    long now = System.nanoTime();
+    if (entries.size() >= MAX_ENTRIES) {
+      entries.values().removeIf(e -> e.isExpired(now));
+      if (entries.size() >= MAX_ENTRIES) {
+        entries.clear();
+      }
+    }
+    Entry entry = new Entry(mtu, now + expiryNanos);
+    entries.merge(key, entry, (old, e) -> old.isExpired(now) || e.mtu < old.mtu ? e : old);
+    return true;
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  private static class Entry {
+    private final int mtu;
+    private final long expiryNanos;
+
+    private Entry(int mtu, long expiryNanos) {
+      this.mtu = mtu;
+      this.expiryNanos = expiryNanos;
+    }
+
+    private boolean isExpired(long nowNanos) {
+      return nowNanos - expiryNanos > 0;
+    }
+  }
+
+  private static class Key {
+    // srcIsdAs, dstIsdAs, followed by (ingress << 16 | egress) for every hop field.
+    private final long[] values;
+    private final int hash;
+
+    private Key(long[] values) {
+      this.values = values;
+      this.hash = Arrays.hashCode(values);
+    }
+
+    /**
+     * @param packet A SCION packet, e.g. quoted in an SCMP error, starting at index 0. The packet
+     *     may be truncated.
+     * @return the key or 'null' if the packet header is incomplete.
+     */
+    static Key create(ByteBuffer packet) {
+      if (packet.limit() < 12 || packet.limit() < ScionHeaderParser.extractHeaderLength(packet)) {
+        return null;
+      }
+      long dstIsdAs = packet.getLong(12);
+      long srcIsdAs = packet.getLong(20);
+      int pathType = ByteUtil.toUnsigned(packet.get(8));
+      if (pathType == HeaderConstants.PathTypes.EMPTY.code()) {
+        return new Key(new long[] {srcIsdAs, dstIsdAs});
+      }
+      if (pathType != HeaderConstants.PathTypes.SCION.code()) {
+        return null;
+      }
+      int i2 = packet.getInt(8);
+      int dstLen = (ByteUtil.readInt(i2, 10, 2) + 1) * 4;
+      int srcLen = (ByteUtil.readInt(i2, 14, 2) + 1) * 4;
+      return create(srcIsdAs, dstIsdAs, packet, 28 + dstLen + srcLen);
+    }
+
+    static Key create(long srcIsdAs, long dstIsdAs, byte[] rawPath) {
+      if (rawPath.length == 0) {
+        return new Key(new long[] {srcIsdAs, dstIsdAs});
+      }
+      return create(srcIsdAs, dstIsdAs, ByteBuffer.wrap(rawPath), 0);
+    }
+
+    private static Key create(long srcIsdAs, long dstIsdAs, ByteBuffer data, int pathPos) {
+      if (data.limit() < pathPos + PATH_META_LEN) {
+        return null;
+      }
+      int i0 = data.getInt(pathPos);
+      int[] segLen = {
+        ByteUtil.readInt(i0, 14, 6), ByteUtil.readInt(i0, 20, 6), ByteUtil.readInt(i0, 26, 6)
+      };
+      int nHops = PathRawParserLight.extractHopCount(segLen);
+      int segCount = 0;
+      for (int len : segLen) {
+        segCount += len > 0 ? 1 : 0;
+      }
+      int hopsPos = pathPos + PATH_META_LEN + segCount * PATH_INFO_LEN;
+      if (data.limit() < hopsPos + nHops * HOP_FIELD_LEN) {
+        return null;
+      }
+      long[] values = new long[2 + nHops];
+      values[0] = srcIsdAs;
+      values[1] = dstIsdAs;
+      for (int i = 0; i < nHops; i++) {
+        int hfPos = hopsPos + i * HOP_FIELD_LEN;
+        long ingress = ByteUtil.toUnsigned(data.getShort(hfPos + 2));
+        long egress = ByteUtil.toUnsigned(data.getShort(hfPos + 4));
+        values[2 + i] = ingress << 16 | egress;
+      }
+      return new Key(values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      return Arrays.equals(values, ((Key) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
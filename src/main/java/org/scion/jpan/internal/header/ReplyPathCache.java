@@ -0,0 +1,143 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.header;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.scion.jpan.ResponsePath;
+
+/**
+ * A cache for response paths of received UDP packets.
+ *
+ * <p>Entries are keyed by a fingerprint of the packet header, i.e. the address header (ISD/AS and
+ * host addresses), the raw path and the UDP ports, plus the underlay source address. A cache hit
+ * requires an exact match of all these bytes and returns the same (already reversed) ResponsePath
+ * instance. Reusing the instance also allows the header template of the path to be reused when
+ * sending a response, see {@link HeaderTemplateCache}.
+ *
+ * <p>The cache is direct mapped, i.e. a new path simply replaces any previous path in the same
+ * slot. This class is thread-safe without locking.
+ */
+public class ReplyPathCache {
+
+  // We start at the path type field, this includes address types and lengths.
+  private static final int OFFSET_KEY_START = 8;
+  private static final int UDP_PORTS_LENGTH = 4;
+
+  private final Entry[] entries;
+  private final int mask;
+
+  /**
+   * @param capacity Number of slots. This is rounded up to the next power of two.
+   */
+  public ReplyPathCache(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    size = size < capacity ? size << 1 : size;
+    this.entries = new Entry[size];
+    this.mask = size - 1;
+  }
+
+  public int capacity() {
+    return entries.length;
+  }
+
+  /**
+   * @param packet A validated packet, starting at index 0.
+   * @param srcAddress The underlay source address of the packet
+   * @return The cached response path or 'null'.
+   */
+  public ResponsePath get(ByteBuffer packet, InetSocketAddress srcAddress) {
+    int keyEnd = keyEnd(packet);
+    if (keyEnd < 0) {
+      return null;
+    }
+    int hash = hash(packet, keyEnd, srcAddress);
+    Entry e = entries[hash & mask];
+    if (e == null || e.hash != hash || !e.srcAddress.equals(srcAddress)) {
+      return null;
+    }
+    byte[] key = e.key;
+    if (key.length != keyEnd - OFFSET_KEY_START) {
+      return null;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != packet.get(OFFSET_KEY_START + i)) {
+        return null;
+      }
+    }
+    return e.path;
+  }
+
+  /**
+   * @param packet A validated packet, starting at index 0.
+   * @param srcAddress The underlay source address of the packet
+   * @param path The response path extracted from the packet
+   */
+  public void put(ByteBuffer packet, InetSocketAddress srcAddress, ResponsePath path) {
+    int keyEnd = keyEnd(packet);
+    if (keyEnd < 0) {
+      return;
+    }
+    int hash = hash(packet, keyEnd, srcAddress);
+    byte[] key = new byte[keyEnd - OFFSET_KEY_START];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = packet.get(OFFSET_KEY_START + i);
+    }
+    entries[hash & mask] = new Entry(hash, key, srcAddress, path);
+  }
+
+  public void clear() {
+    Arrays.fill(entries, null);
+  }
+
+  /**
+   * @return End of the key, i.e. the end of the UDP ports, or -1 if this is not a UDP packet.
+   */
+  private static int keyEnd(ByteBuffer packet) {
+    if (packet.get(4) != HeaderConstants.HdrTypes.UDP.code()) {
+      return -1;
+    }
+    return ScionHeaderParser.extractHeaderLength(packet) + UDP_PORTS_LENGTH;
+  }
+
+  private static int hash(ByteBuffer packet, int keyEnd, InetSocketAddress srcAddress) {
+    // The key length is always a multiple of 4.
+    int hash = srcAddress.hashCode();
+    for (int i = OFFSET_KEY_START; i < keyEnd; i += 4) {
+      hash = 31 * hash + packet.getInt(i);
+    }
+    // Spread higher bits to improve distribution for small tables.
+    return hash ^ (hash >>> 16);
+  }
+
+  /** Entries are immutable. Final fields ensure safe publication without locking. */
+  private static class Entry {
+    private final int hash;
+    private final byte[] key;
+    private final InetSocketAddress srcAddress;
+    private final ResponsePath path;
+
+    private Entry(int hash, byte[] key, InetSocketAddress srcAddress, ResponsePath path) {
+      this.hash = hash;
+      this.key = key;
+      this.srcAddress = srcAddress;
+      this.path = path;
+    }
+  }
+}
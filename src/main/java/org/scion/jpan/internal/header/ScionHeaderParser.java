@@ -313,174 +313,15 @@ public class ScionHeaderParser {
     return 28 + dstLen + srcLen;
   }
 
+  /**
+   * Validates the packet starting at the buffer's position.
+   *
+   * @param data The packet
+   * @return 'null' if the packet is valid, otherwise an error message.
+   * @see PacketValidator#validate(ByteBuffer)
+   */
   public static String validate(ByteBuffer data) {
-    // TODO this approach to error handling is not ideal.
-    //   Flooding a receiver with bad packets may cause unnecessary CPU and
-    //   garbage collection cost due to creation of error messages.
-    //   --> return isDropBadPackets ? "" : report(String ... args);
-
-    final String PRE = "SCION packet validation failed: ";
-    int start = data.position();
-    if (data.limit() - start < 12 + 16 + 8) {
-      return PRE + "Invalid packet length: packet too short: " + (data.limit() - start);
-    }
-
-    int i0 = data.getInt();
-    int i1 = data.getInt();
-    int i2 = data.getInt();
-    int version = ByteUtil.readInt(i0, 0, 4);
-    if (version != 0) {
-      return PRE + "version: expected 0, got " + version;
-    }
-    // int trafficLClass = readInt(i0, 4, 8);
-    // int flowId = readInt(i0, 12, 20);
-    int nextHeader = ByteUtil.readInt(i1, 0, 8);
-    if (nextHeader != HeaderConstants.HdrTypes.UDP.code()
-        && nextHeader != HeaderConstants.HdrTypes.HOP_BY_HOP.code()
-        && nextHeader != HeaderConstants.HdrTypes.END_TO_END.code()
-        && nextHeader != HeaderConstants.HdrTypes.SCMP.code()) {
-      return PRE + "nextHeader: expected {17, 200, 201, 202}, got " + nextHeader;
-    }
-    int hdrLen = ByteUtil.readInt(i1, 8, 8);
-    int hdrLenBytes = hdrLen * 4;
-    int payLoadLen = ByteUtil.readInt(i1, 16, 16);
-    if (hdrLenBytes + payLoadLen != data.limit() - start) {
-      return PRE
-          + "Invalid packet length: length = "
-          + (data.limit() - start)
-          + ", header says "
-          + (hdrLenBytes + payLoadLen);
-    }
-    int pathType = ByteUtil.readInt(i2, 0, 8);
-    if (pathType != 1 && pathType != 0) {
-      // Validation against path length happens further down.
-      return PRE + "Invalid path type: expected 0 or 1, got " + pathType;
-    }
-    int dt = ByteUtil.readInt(i2, 8, 2);
-    int dl = ByteUtil.readInt(i2, 10, 2);
-    int st = ByteUtil.readInt(i2, 12, 2);
-    int sl = ByteUtil.readInt(i2, 14, 2);
-    int dtdl = dt << 2 | dl;
-    int stsl = st << 2 | sl;
-    if (dtdl != 0b0000 && dtdl != 0b0011) { // Allow also IPv4SVC=0b0100 ?
-      return PRE
-          + "Invalid destination address type: expected 0b000 or 0b111, got "
-          + Integer.toBinaryString(dtdl);
-    }
-    if (stsl != 0b0000 && stsl != 0b0011) { // Allow also IPv4SVC=0b0100 ?
-      return PRE
-          + "Invalid source address type: expected 0b000 or 0b111, got "
-          + Integer.toBinaryString(dtdl);
-    }
-    int reserved = ByteUtil.readInt(i2, 16, 16);
-    if (reserved != 0) {
-      return PRE
-          + "Invalid reserved field: expected '0b0000_0000_0000_0000', got "
-          + Integer.toBinaryString(reserved);
-    }
-
-    // Address header
-    // 16 bit: DstISD
-    // 48 bit: DstAS
-    // 16 bit: SrcISD
-    // 48 bit: SrcAS
-    //  ? bit: DstHostAddr
-    //  ? bit: SrcHostAddr
-
-    long dstIsdAs = data.getLong(); // TODO match against local ISD/ASes
-    long srcIsdAs = data.getLong();
-
-    byte[] bytesDst = new byte[(dl + 1) * 4];
-    data.get(bytesDst);
-
-    byte[] bytesSrc = new byte[(sl + 1) * 4];
-    data.get(bytesSrc);
-
-    try {
-      InetAddress.getByAddress(bytesDst);
-    } catch (UnknownHostException e) {
-      return PRE + "Error decoding destination IP address: " + e.getMessage();
-    }
-
-    try {
-      InetAddress.getByAddress(bytesSrc);
-    } catch (UnknownHostException e) {
-      return PRE + "Error decoding source IP address: " + e.getMessage();
-    }
-
-    // raw path
-    byte[] path = new byte[start + hdrLenBytes - data.position()];
-    data.get(path);
-    if (path.length == 0 && pathType != 0) {
-      return PRE + "Path is empty but path type is: " + pathType;
-    }
-    if (path.length > 0 && pathType != 1) {
-      return PRE + "Path is not empty but path type is: " + pathType;
-    }
-    // TODO validate path
-
-    data.position(start + hdrLenBytes);
-    if (nextHeader == HeaderConstants.HdrTypes.UDP.code()) {
-      return validateUDP(data, start);
-    } else if (nextHeader == HeaderConstants.HdrTypes.SCMP.code()) {
-      return validateSCMP(data, start);
-    }
-    return PRE + "Unsupported header type: " + nextHeader;
-  }
-
-  private static String validateUDP(ByteBuffer data, int start) {
-    final String PRE = "SCION UDP packet validation failed: ";
-
-    // get remote port from UDP overlay
-    int srcPort = Short.toUnsignedInt(data.getShort());
-    int dstPort = Short.toUnsignedInt(data.getShort());
-    if (srcPort == 0) {
-      return PRE + "Invalid source port: " + srcPort;
-    }
-    if (dstPort == 0) {
-      return PRE + "Invalid destination port: " + dstPort; // can this happen?
-    }
-    // rewind to original offset
-    data.position(start);
-    return null;
-  }
-
-  private static String validateSCMP(ByteBuffer data, int start) {
-    final String PRE = "SCION SCMP packet validation failed: ";
-
-    if (data.limit() - start > 1232) {
-      return PRE + "Length exceeds 1232 bytes: " + (data.limit() - start);
-    }
-
-    int type = ByteUtil.toUnsigned(data.get());
-    int code = ByteUtil.toUnsigned(data.get());
-    data.getShort(); // checksum
-    // TODO validate checksum
-
-    Scmp.TypeCode typeCode = Scmp.TypeCode.parseOrNull(type, code);
-    if (typeCode == null) {
-      return PRE + "Unknown type code: " + type + " / " + code;
-    }
-    Scmp.Type typeEnum = Scmp.Type.parse(type);
-    if (data.remaining() < typeEnum.getHeaderLength() - 4) {
-      return PRE
-          + "Invalid SCMP extension length, expected "
-          + typeEnum.getHeaderLength()
-          + " bytes but got: "
-          + (data.remaining() + 4);
-    }
-    switch (typeCode) {
-      case TYPE_130:
-      case TYPE_131:
-        if (data.remaining() != 20) {
-          return PRE + "Invalid packet length, expected 20 bytes bu got: " + data.remaining();
-        }
-        break;
-      default:
-    }
-    // rewind to original offset
-    data.position(start);
-    return null;
+    return PacketValidator.describe(PacketValidator.validate(data), data);
   }
 
   public static void write(
@@ -525,6 +366,17 @@ public class ScionHeaderParser {
     data.put(srcAddress);
   }
 
+  /**
+   * @param pathHeaderLength length of the raw path
+   * @param srcAddressLength length of the source host address, e.g. 4 for IPv4
+   * @param dstAddressLength length of the destination host address, e.g. 16 for IPv6
+   * @return the length of the SCION common + address + path header in bytes
+   */
+  public static int calcHeaderLength(
+      int pathHeaderLength, int srcAddressLength, int dstAddressLength) {
+    return calcLen(pathHeaderLength, srcAddressLength / 4 - 1, dstAddressLength / 4 - 1);
+  }
+
   private static int calcLen(int pathHeaderLength, int sl, int dl) {
     // Common header
     int len = 12;
@@ -601,14 +453,9 @@ public class ScionHeaderParser {
 
   public static void writeUdpOverlayHeader(
       ByteBuffer data, int packetLength, int srcPort, int dstPort) {
-    int i0 = 0;
-    int i1 = 0;
-    i0 = ByteUtil.writeInt(i0, 0, 16, srcPort);
-    i0 = ByteUtil.writeInt(i0, 16, 16, dstPort);
-    i1 = ByteUtil.writeInt(i1, 0, 16, packetLength + 8);
-    int checkSum = 0; // We do not check it.
-    i1 = ByteUtil.write16(i1, 16, checkSum);
-    data.putInt(i0);
-    data.putInt(i1);
+    data.putShort((short) srcPort);
+    data.putShort((short) dstPort);
+    data.putShort((short) (packetLength + 8));
+    data.putShort((short) 0); // Checksum, we do not check it.
   }
 }
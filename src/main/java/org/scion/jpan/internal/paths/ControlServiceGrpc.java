@@ -16,13 +16,21 @@ package org.scion.jpan.internal.paths;
 
 import io.grpc.*;
 import io.grpc.okhttp.OkHttpChannelBuilder;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import org.scion.jpan.ScionRuntimeException;
 import org.scion.jpan.ScionUtil;
 import org.scion.jpan.internal.bootstrap.LocalAS;
 import org.scion.jpan.internal.util.Config;
+import org.scion.jpan.internal.util.Threads;
 import org.scion.jpan.proto.control_plane.Seg;
 import org.scion.jpan.proto.control_plane.SegmentLookupServiceGrpc;
 import org.slf4j.Logger;
@@ -32,8 +40,13 @@ public class ControlServiceGrpc {
 
   private static final Logger LOG = LoggerFactory.getLogger(ControlServiceGrpc.class.getName());
 
-  private final List<ControlService> services = new ArrayList<>();
+  private final ServiceSelector<ControlService> services;
   private final int deadLineMs;
+  private final SegmentCache<List<PathBuilder.PathSegment>> segmentCache =
+      new SegmentCache<>(PathBuilder::getExpiration);
+  // Runs concurrent segment requests, see PathBuilder. Idle threads terminate after 60 seconds.
+  private final ExecutorService executor =
+      Executors.newCachedThreadPool(Threads.factory("ControlServiceGrpc-segments"));
 
   public static ControlServiceGrpc create(LocalAS localAS) {
     return new ControlServiceGrpc(localAS);
@@ -41,22 +54,79 @@ public class ControlServiceGrpc {
 
   private ControlServiceGrpc(LocalAS localAS) {
     this.deadLineMs = Config.getControlPlaneTimeoutMs();
+    List<ControlService> list = new ArrayList<>();
     for (LocalAS.ServiceNode node : localAS.getControlServices()) {
-      services.add(new ControlService(node.getIpString()));
+      list.add(new ControlService(node.getIpString()));
     }
+    this.services =
+        new ServiceSelector<>(list, Config.useControlPlaneHedging(), "ControlServiceGrpc");
   }
 
   public void close() {
-    services.forEach(ControlService::close);
+    executor.shutdown();
+    try {
+      // Speculative requests may still be running in the background, see PathBuilder. We let them
+      // complete rather than failing them by closing the connections.
+      if (!executor.awaitTermination(deadLineMs, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Segment requests did not complete in time.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    services.close();
+    services.getServices().forEach(ControlService::close);
+    segmentCache.clear();
   }
 
-  public synchronized Seg.SegmentsResponse segments(Seg.SegmentsRequest request) {
-    String error = "No control services found in topology";
-    for (int i = 0; i < services.size(); i++) {
-      ControlService cs = services.get(0); // Always get the first one!
-      cs.init();
+  SegmentCache<List<PathBuilder.PathSegment>> getSegmentCache() {
+    return segmentCache;
+  }
+
+  /**
+   * @param supplier A segment request
+   * @return A future that completes when the request has been executed in a separate thread.
+   */
+  <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    } catch (RejectedExecutionException e) {
+      // We have been closed. Like segments(), we still execute the request.
+      return CompletableFuture.supplyAsync(supplier, Runnable::run);
+    }
+  }
+
+  /**
+   * Request segments from a control service. This method is thread-safe and does not block other
+   * requests. gRPC multiplexes concurrent requests over the channel to a service. See {@link
+   * ServiceSelector} for how the control service is selected.
+   *
+   * @param request The request
+   * @return The response
+   */
+  public Seg.SegmentsResponse segments(Seg.SegmentsRequest request) {
+    try {
+      return services.execute(cs -> cs.segments(request));
+    } catch (IOException e) {
+      throw new ScionRuntimeException(
+          "Error while connecting to SCION network, no control service available: "
+              + e.getMessage());
+    }
+  }
+
+  private class ControlService {
+    private final String ipString;
+    // Guards `channel`. We use a ReentrantLock instead of `synchronized` to avoid pinning virtual
+    // threads. The lock is not held during requests.
+    private final ReentrantLock lock = new ReentrantLock();
+    private ManagedChannel channel;
+
+    public ControlService(String ipString) {
+      this.ipString = ipString;
+    }
+
+    Seg.SegmentsResponse segments(Seg.SegmentsRequest request) throws IOException {
       try {
-        return cs.getStub().segments(request);
+        return getStub().segments(request);
       } catch (StatusRuntimeException e) {
         if (e.getStatus().getCode().equals(Status.Code.UNKNOWN)) {
           String srcIsdAs = ScionUtil.toStringIA(request.getSrcIsdAs());
@@ -73,55 +143,49 @@ public class ControlServiceGrpc {
             throw new ScionRuntimeException(msg, e);
           }
         }
-        error = e.getStatus().getCode().toString();
-        LOG.warn("Error connecting control service {}: {}", cs.ipString, e.getStatus().getCode());
-        cs.close();
-        // Move CS to end of list
-        services.add(services.remove(0));
+        LOG.warn("Error connecting control service {}: {}", ipString, e.getStatus().getCode());
+        // We keep the channel, gRPC reconnects by itself.
+        throw new IOException(e.getStatus().getCode().toString(), e);
       }
     }
-    throw new ScionRuntimeException(
-        "Error while connecting to SCION network, no control service available: " + error);
-  }
 
-  private class ControlService {
-    private final String ipString;
-    private ManagedChannel channel;
-    private SegmentLookupServiceGrpc.SegmentLookupServiceBlockingStub grpcStub;
-
-    public ControlService(String ipString) {
-      this.ipString = ipString;
-    }
-
-    void init() {
-      if (channel != null) {
-        return;
+    private SegmentLookupServiceGrpc.SegmentLookupServiceBlockingStub getStub() {
+      ManagedChannel c;
+      lock.lock();
+      try {
+        if (channel == null) {
+          LOG.info("Bootstrapping with control service: {}", ipString);
+          // TODO InsecureChannelCredentials: Implement authentication!
+          // We are using OkHttp instead of Netty for Android compatibility
+          channel =
+              OkHttpChannelBuilder.forTarget(ipString, InsecureChannelCredentials.create()).build();
+        }
+        c = channel;
+      } finally {
+        lock.unlock();
       }
-      LOG.info("Bootstrapping with control service: {}", ipString);
-      // TODO InsecureChannelCredentials: Implement authentication!
-      // We are using OkHttp instead of Netty for Android compatibility
-      channel =
-          OkHttpChannelBuilder.forTarget(ipString, InsecureChannelCredentials.create()).build();
-      grpcStub = SegmentLookupServiceGrpc.newBlockingStub(channel);
-    }
-
-    SegmentLookupServiceGrpc.SegmentLookupServiceBlockingStub getStub() {
       // This is a deadline, not a timeout. It counts from the time the "with..." is called.
       // See also https://github.com/grpc/grpc-java/issues/1495
       // and https://github.com/grpc/grpc-java/issues/4305#issuecomment-378770067
-      return grpcStub.withDeadlineAfter(deadLineMs, TimeUnit.MILLISECONDS);
+      return SegmentLookupServiceGrpc.newBlockingStub(c)
+          .withDeadlineAfter(deadLineMs, TimeUnit.MILLISECONDS);
     }
 
     void close() {
+      ManagedChannel old;
+      lock.lock();
+      try {
+        old = channel;
+        channel = null;
+      } finally {
+        lock.unlock();
+      }
       try {
-        if (channel != null
-            && !channel.shutdown().awaitTermination(1, TimeUnit.SECONDS)
-            && !channel.shutdownNow().awaitTermination(1, TimeUnit.SECONDS)) {
+        if (old != null
+            && !old.shutdown().awaitTermination(1, TimeUnit.SECONDS)
+            && !old.shutdownNow().awaitTermination(1, TimeUnit.SECONDS)) {
           LOG.error("Failed to shut down ScionService gRPC ManagedChannel");
         }
-        if (channel != null) {
-          channel = null;
-        }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         throw new ScionRuntimeException(e);
@@ -18,6 +18,9 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.scion.jpan.PathMetadata;
 import org.scion.jpan.ScionRuntimeException;
@@ -64,7 +67,10 @@ public class PathBuilder {
    * determine which segments to request.
    *
    * <p>Here, we do things a bit differently because we may not have prior knowledge whether the
-   * destination is CORE or not.
+   * destination is CORE or not. To avoid waiting for three consecutive round trips, we request CORE
+   * and DOWN segments concurrently and ignore the DOWN segments if the destination turns out to be
+   * CORE. UP segments are requested first. They are usually cached because they do not depend on
+   * the destination, and we don't need to request anything else if there are none.
    *
    * @param service Segment lookup service
    * @param localAS local AS info
@@ -74,13 +80,28 @@ public class PathBuilder {
    */
   public static List<PathMetadata> getPathsCS(
       ControlServiceGrpc service, LocalAS localAS, long srcIsdAs, long dstIsdAs) {
-    List<PathMetadata> path = getPathsInternal(service, localAS, srcIsdAs, dstIsdAs);
+    return getPathsCS(service, localAS, srcIsdAs, dstIsdAs, false);
+  }
+
+  /**
+   * Same as {@link #getPathsCS(ControlServiceGrpc, LocalAS, long, long)}.
+   *
+   * @param service Segment lookup service
+   * @param localAS local AS info
+   * @param srcIsdAs source ISD/AS
+   * @param dstIsdAs destination ISD/AS
+   * @param refresh Whether cached segments should be replaced by new segments
+   * @return list of available paths (unordered)
+   */
+  public static List<PathMetadata> getPathsCS(
+      ControlServiceGrpc service, LocalAS localAS, long srcIsdAs, long dstIsdAs, boolean refresh) {
+    List<PathMetadata> path = getPathsInternal(service, localAS, srcIsdAs, dstIsdAs, refresh);
     path.sort(Comparator.comparingInt(pm -> pm.getInterfaces().size()));
     return path;
   }
 
   private static List<PathMetadata> getPathsInternal(
-      ControlServiceGrpc service, LocalAS localAS, long srcIsdAs, long dstIsdAs) {
+      ControlServiceGrpc service, LocalAS localAS, long srcIsdAs, long dstIsdAs, boolean refresh) {
     long srcWildcard = ScionUtil.toWildcard(srcIsdAs);
     long dstWildcard = ScionUtil.toWildcard(dstIsdAs);
 
@@ -98,16 +119,21 @@ public class PathBuilder {
     List<PathSegment> segmentsUp = Collections.emptyList();
     if (!localAS.isCoreAs()) {
       // get UP segments
-      segmentsUp = getSegments(service, srcIsdAs, srcWildcard);
+      segmentsUp = getSegments(service, srcIsdAs, srcWildcard, refresh);
       if (segmentsUp.isEmpty()) {
         return Collections.emptyList();
       }
     }
 
-    // Next, we look for core segments.
+    // Next, we look for core segments. DOWN segments are requested concurrently and
+    // speculatively, they are not needed if it turns out that the destination is a CORE AS.
     // Even if the DST is reachable without a CORE segment (e.g. it is directly a reachable leaf)
     // we still should look at core segments because they may offer additional paths.
-    List<PathSegment> segmentsCore = getSegments(service, srcWildcard, dstWildcard);
+    // The DOWN request is not awaited if it is not needed. It then completes in the background
+    // and its result goes into the segment cache.
+    CompletableFuture<List<PathSegment>> futureDown =
+        service.supplyAsync(() -> getSegments(service, dstWildcard, dstIsdAs, refresh));
+    List<PathSegment> segmentsCore = getSegments(service, srcWildcard, dstWildcard, refresh);
     if (ScionUtil.extractIsd(srcIsdAs) != ScionUtil.extractIsd(dstIsdAs)
         && segmentsCore.isEmpty()) {
       return Collections.emptyList();
@@ -118,16 +144,39 @@ public class PathBuilder {
     }
     // For CORE we ensure that dstIsdAs is at the END of a segment, not somewhere in the middle
     if (endsWithIsdAs(segmentsCore, dstIsdAs)) {
-      // dst is CORE
+      // dst is CORE, we ignore the DOWN segments (and any error that occurred requesting them).
       return combineSegments(
           segmentsUp, segmentsCore, Collections.emptyList(), srcIsdAs, dstIsdAs, localAS);
     }
 
-    List<PathSegment> segmentsDown = getSegments(service, dstWildcard, dstIsdAs);
+    List<PathSegment> segmentsDown = await(futureDown);
     return combineSegments(segmentsUp, segmentsCore, segmentsDown, srcIsdAs, dstIsdAs, localAS);
   }
 
+  private static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ScionRuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ScionRuntimeException(e);
+    }
+  }
+
   private static List<PathSegment> getSegments(
+      ControlServiceGrpc segmentStub, long srcIsdAs, long dstIsdAs, boolean refresh) {
+    SegmentCache<List<PathSegment>> cache = segmentStub.getSegmentCache();
+    Supplier<List<PathSegment>> loader = () -> requestSegments(segmentStub, srcIsdAs, dstIsdAs);
+    return refresh
+        ? cache.refresh(srcIsdAs, dstIsdAs, loader)
+        : cache.get(srcIsdAs, dstIsdAs, loader);
+  }
+
+  private static List<PathSegment> requestSegments(
       ControlServiceGrpc segmentStub, long srcIsdAs, long dstIsdAs) {
     if (LOG.isInfoEnabled()) {
       LOG.info(
@@ -144,7 +193,7 @@ public class PathBuilder {
     if (response.getSegmentsMap().size() > 1) {
       throw new UnsupportedOperationException();
     }
-    return getPathSegments(response);
+    return Collections.unmodifiableList(getPathSegments(response));
   }
 
   private static List<PathSegment> getPathSegments(Seg.SegmentsResponse response) {
@@ -172,6 +221,21 @@ public class PathBuilder {
    */
   public static List<PathMetadata> getPathsPS(
       PathServiceRpc service, LocalAS localAS, long srcIsdAs, long dstIsdAs) {
+    return getPathsPS(service, localAS, srcIsdAs, dstIsdAs, false);
+  }
+
+  /**
+   * Same as {@link #getPathsPS(PathServiceRpc, LocalAS, long, long)}.
+   *
+   * @param service PathService
+   * @param localAS This provides the local interface address
+   * @param srcIsdAs source ISD/AS
+   * @param dstIsdAs destination ISD/AS
+   * @param refresh Whether cached segments should be replaced by new segments
+   * @return list of paths
+   */
+  public static List<PathMetadata> getPathsPS(
+      PathServiceRpc service, LocalAS localAS, long srcIsdAs, long dstIsdAs, boolean refresh) {
     if (srcIsdAs == dstIsdAs) {
       // same AS, return empty path
       PathMetadata.Builder path = PathMetadata.newBuilder();
@@ -183,12 +247,21 @@ public class PathBuilder {
       return Collections.singletonList(path.build());
     }
 
-    List<PathSegment>[] segments = getSegments(service, srcIsdAs, dstIsdAs);
+    List<PathSegment>[] segments = getSegments(service, srcIsdAs, dstIsdAs, refresh);
     return combineSegments(segments[0], segments[1], segments[2], srcIsdAs, dstIsdAs, localAS);
   }
 
-  @SuppressWarnings("unchecked")
   private static List<PathSegment>[] getSegments(
+      PathServiceRpc segmentStub, long srcIsdAs, long dstIsdAs, boolean refresh) {
+    SegmentCache<List<PathSegment>[]> cache = segmentStub.getSegmentCache();
+    Supplier<List<PathSegment>[]> loader = () -> requestSegments(segmentStub, srcIsdAs, dstIsdAs);
+    return refresh
+        ? cache.refresh(srcIsdAs, dstIsdAs, loader)
+        : cache.get(srcIsdAs, dstIsdAs, loader);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<PathSegment>[] requestSegments(
       PathServiceRpc segmentStub, long srcIsdAs, long dstIsdAs) {
     if (LOG.isInfoEnabled()) {
       LOG.info(
@@ -212,9 +285,49 @@ public class PathBuilder {
     response
         .getDownSegmentsList()
         .forEach(path -> segments[2].add(new PathSegment(path, SegmentType.DOWN)));
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = Collections.unmodifiableList(segments[i]);
+    }
     return segments;
   }
 
+  /**
+   * @param segments UP, CORE and DOWN segments
+   * @return The time (in seconds since epoch) at which the first segment expires, or 0 if there are
+   *     no segments.
+   */
+  static long getExpiration(List<PathSegment>[] segments) {
+    long expiration = 0;
+    for (List<PathSegment> list : segments) {
+      long time = getExpiration(list);
+      if (time > 0) {
+        expiration = expiration == 0 ? time : Math.min(expiration, time);
+      }
+    }
+    return expiration;
+  }
+
+  /**
+   * @param segments Segments
+   * @return The time (in seconds since epoch) at which the first segment expires, or 0 if there are
+   *     no segments.
+   */
+  static long getExpiration(List<PathSegment> segments) {
+    if (segments.isEmpty()) {
+      return 0;
+    }
+    long expiration = Long.MAX_VALUE;
+    for (PathSegment segment : segments) {
+      // Same calculation as for the expiration of paths, see writeHopFields().
+      int minExpiry = Integer.MAX_VALUE;
+      for (Seg.ASEntrySignedBody body : segment.getAsEntriesList()) {
+        minExpiry = Math.min(minExpiry, body.getHopEntry().getHopField().getExpTime());
+      }
+      expiration = Math.min(expiration, calcExpTime(segment.info.getTimestamp(), minExpiry));
+    }
+    return expiration;
+  }
+
   private static List<PathMetadata> combineSegments(
       List<PathSegment> segmentsUp,
       List<PathSegment> segmentsCore,
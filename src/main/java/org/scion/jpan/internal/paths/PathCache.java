@@ -0,0 +1,78 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.paths;
+
+import java.util.List;
+import java.util.function.Supplier;
+import org.scion.jpan.PathMetadata;
+import org.scion.jpan.internal.util.Config;
+
+/**
+ * Cache for path lookups of a ScionService, keyed by the (src, dst) ISD/AS pair. Paths do not
+ * depend on the destination host, so all path selectors and channels that connect to the same
+ * destination AS share the same lookup.
+ *
+ * <p>An entry expires when the first of its paths expires, minus the path expiry margin, see
+ * {@link Config#getPathExpiryMarginSeconds()}. In addition, entries are kept at most for {@link
+ * Config#getPathCacheMaxAgeSeconds()} so that path polling eventually discovers new paths. Empty
+ * results and failed lookups are not cached. Concurrent lookups for the same pair are coalesced.
+ *
+ * <p>The cached lists are shared and must not be modified. This class is thread-safe.
+ */
+public class PathCache {
+
+  private final SegmentCache<List<PathMetadata>> cache;
+
+  public PathCache() {
+    this.cache = new SegmentCache<>(PathCache::getExpiration, Config.getPathCacheMaxAgeSeconds());
+  }
+
+  /**
+   * @param srcIsdAs Source ISD/AS
+   * @param dstIsdAs Destination ISD/AS
+   * @param loader Performs the lookup if there is no valid entry.
+   * @return The cached or loaded paths.
+   */
+  public List<PathMetadata> get(
+      long srcIsdAs, long dstIsdAs, Supplier<List<PathMetadata>> loader) {
+    return cache.get(srcIsdAs, dstIsdAs, loader);
+  }
+
+  /**
+   * Same as {@link #get(long, long, Supplier)}, but the cached paths are not used. The loaded paths
+   * replace the cached paths.
+   *
+   * @param srcIsdAs Source ISD/AS
+   * @param dstIsdAs Destination ISD/AS
+   * @param loader Performs the lookup.
+   * @return The loaded paths.
+   */
+  public List<PathMetadata> refresh(
+      long srcIsdAs, long dstIsdAs, Supplier<List<PathMetadata>> loader) {
+    return cache.refresh(srcIsdAs, dstIsdAs, loader);
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  private static long getExpiration(List<PathMetadata> paths) {
+    long expiration = Long.MAX_VALUE;
+    for (PathMetadata path : paths) {
+      expiration = Math.min(expiration, path.getExpiration());
+    }
+    return paths.isEmpty() ? 0 : expiration;
+  }
+}
@@ -17,6 +17,7 @@ package org.scion.jpan.internal.paths;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -34,41 +35,77 @@ public class PathServiceRpc {
 
   private static final Logger LOG = LoggerFactory.getLogger(PathServiceRpc.class.getName());
 
-  private final List<PathService> services = new ArrayList<>();
+  private final ServiceSelector<PathService> services;
+  private final SegmentCache<List<PathBuilder.PathSegment>[]> segmentCache =
+      new SegmentCache<>(PathBuilder::getExpiration);
 
   public static PathServiceRpc create(LocalAS localAS) {
     return new PathServiceRpc(localAS);
   }
 
   private PathServiceRpc(LocalAS localAS) {
+    List<PathService> list = new ArrayList<>();
     for (LocalAS.ServiceNode node : localAS.getControlServices()) {
-      services.add(new PathService(node.getIpString()));
+      list.add(new PathService(node.getIpString()));
     }
+    this.services = new ServiceSelector<>(list, Config.useControlPlaneHedging(), "PathServiceRpc");
   }
 
   public void close() {
-    services.forEach(PathService::close);
+    services.close();
+    services.getServices().forEach(PathService::close);
+    segmentCache.clear();
   }
 
-  public synchronized Segments.ListSegmentsResponse segments(long srcIA, long dstIA) {
+  SegmentCache<List<PathBuilder.PathSegment>[]> getSegmentCache() {
+    return segmentCache;
+  }
+
+  /**
+   * Request segments from a path service. This method is thread-safe and does not block other
+   * requests. OkHttp executes concurrent requests over its connection pool. See {@link
+   * ServiceSelector} for how the path service is selected.
+   *
+   * @param srcIA Source ISD/AS
+   * @param dstIA Destination ISD/AS
+   * @return The response
+   */
+  public Segments.ListSegmentsResponse segments(long srcIA, long dstIA) {
     Segments.ListSegmentsRequest protoRequest =
         Segments.ListSegmentsRequest.newBuilder().setSrcIsdAs(srcIA).setDstIsdAs(dstIA).build();
     RequestBody requestBody = RequestBody.create(protoRequest.toByteArray());
+    try {
+      return services.execute(ps -> ps.segments(srcIA, dstIA, requestBody));
+    } catch (IOException e) {
+      throw new ScionRuntimeException(
+          "Error while connecting to SCION network, no path service available: " + e.getMessage());
+    }
+  }
+
+  private static class PathService {
+    private final String address;
+    // Guards `httpClient`. We use a ReentrantLock instead of `synchronized` to avoid pinning
+    // virtual threads. The lock is not held during requests.
+    private final ReentrantLock lock = new ReentrantLock();
+    private OkHttpClient httpClient;
+
+    public PathService(String address) {
+      this.address = address;
+    }
 
-    String error = "No control services found in topology";
-    for (int i = 0; i < services.size(); i++) {
-      PathService ps = services.get(0); // Always get the first one!
-      ps.init();
+    Segments.ListSegmentsResponse segments(long srcIA, long dstIA, RequestBody requestBody)
+        throws IOException {
+      OkHttpClient client = getClient();
       Request request =
           new Request.Builder()
-              // .url("http://" + ps.address + "/scion.endhost.v1.PathService/ListPaths")
-              .url("http://" + ps.address + "/" + Config.getNApiSegmentServiceName())
+              // .url("http://" + address + "/scion.endhost.v1.PathService/ListPaths")
+              .url("http://" + address + "/" + Config.getNApiSegmentServiceName())
               .addHeader("Content-type", "application/proto")
               //            .addHeader("User-Agent", "OkHttp Bot")
               .post(requestBody)
               .build();
 
-      try (Response response = ps.httpClient.newCall(request).execute()) {
+      try (Response response = client.newCall(request).execute()) {
         ResponseBody body = response.body();
         if (!response.isSuccessful() || body == null) {
           String srcIsdAs = ScionUtil.toStringIA(srcIA);
@@ -88,44 +125,43 @@ public class PathServiceRpc {
           }
 
           LOG.warn(
-              "While connecting path service {}: code={} msg={}", ps.address, response.code(), str);
+              "While connecting path service {}: code={} msg={}", address, response.code(), str);
           throw new IOException("Unexpected code " + response.code() + ": " + str);
         }
         return Segments.ListSegmentsResponse.newBuilder().mergeFrom(body.bytes()).build();
       } catch (IOException e) {
-        error = e.getMessage();
-        LOG.warn("Error connecting path service {}: {}", ps.address, error);
-        ps.close();
-        // Move CS to end of list
-        services.add(services.remove(0));
+        LOG.warn("Error connecting path service {}: {}", address, e.getMessage());
+        // We keep the client, but we don't reuse idle connections.
+        client.connectionPool().evictAll();
+        throw e;
       }
     }
 
-    throw new ScionRuntimeException(
-        "Error while connecting to SCION network, no path service available: " + error);
-  }
-
-  private static class PathService {
-    private final String address;
-    private OkHttpClient httpClient;
-
-    public PathService(String address) {
-      this.address = address;
-    }
-
-    void init() {
-      if (httpClient != null) {
-        return;
+    private OkHttpClient getClient() {
+      lock.lock();
+      try {
+        if (httpClient == null) {
+          LOG.info("Bootstrapping with path service: {}", address);
+          httpClient = new OkHttpClient();
+        }
+        return httpClient;
+      } finally {
+        lock.unlock();
       }
-      LOG.info("Bootstrapping with path service: {}", address);
-      httpClient = new OkHttpClient();
     }
 
     void close() {
-      if (httpClient != null) {
-        httpClient.dispatcher().cancelAll();
-        httpClient.connectionPool().evictAll();
+      OkHttpClient old;
+      lock.lock();
+      try {
+        old = httpClient;
         httpClient = null;
+      } finally {
+        lock.unlock();
+      }
+      if (old != null) {
+        old.dispatcher().cancelAll();
+        old.connectionPool().evictAll();
       }
     }
   }
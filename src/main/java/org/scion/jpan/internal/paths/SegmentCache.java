@@ -0,0 +1,207 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.paths;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import org.scion.jpan.ScionRuntimeException;
+import org.scion.jpan.internal.util.Config;
+
+/**
+ * Cache for segment lookups, keyed by the (src, dst) ISD/AS pair of the request. Either ISD/AS may
+ * be a wildcard. For example, the UP segments of the local AS are requested with the same key for
+ * every destination. The cache is also used for paths, see {@link PathCache}.
+ *
+ * <p>An entry expires when the first of its segments expires, minus the path expiry margin, see
+ * {@link Config#getPathExpiryMarginSeconds()}. In addition, entries are kept at most for {@link
+ * Config#getSegmentCacheMaxAgeSeconds()} so that new segments are eventually discovered. Empty
+ * results are not cached.
+ *
+ * <p>Concurrent lookups for the same key are coalesced: only the first caller sends a request, the
+ * other callers wait for its result. This class is thread-safe.
+ *
+ * @param <V> The cached segments
+ */
+class SegmentCache<V> {
+
+  private static final int MAX_ENTRIES = 1000;
+
+  private final ConcurrentHashMap<Key, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final ToLongFunction<V> expiration;
+  private final long maxAgeMillis;
+  private final long marginMillis;
+
+  /**
+   * @param expiration Returns the expiration time (in seconds since epoch) of a lookup result or
+   *     '0' if the result should not be cached.
+   */
+  SegmentCache(ToLongFunction<V> expiration) {
+    this(expiration, Config.getSegmentCacheMaxAgeSeconds());
+  }
+
+  /**
+   * @param expiration Returns the expiration time (in seconds since epoch) of a lookup result or
+   *     '0' if the result should not be cached.
+   * @param maxAgeSeconds Maximum age of an entry. '0' disables the cache.
+   */
+  SegmentCache(ToLongFunction<V> expiration, int maxAgeSeconds) {
+    this.expiration = expiration;
+    this.maxAgeMillis = maxAgeSeconds * 1000L;
+    this.marginMillis = Config.getPathExpiryMarginSeconds() * 1000L;
+  }
+
+  /**
+   * @param srcIsdAs Source ISD/AS, may be a wildcard
+   * @param dstIsdAs Destination ISD/AS, may be a wildcard
+   * @param loader Performs the lookup if there is no valid entry.
+   * @return The cached or loaded segments.
+   */
+  V get(long srcIsdAs, long dstIsdAs, Supplier<V> loader) {
+    if (maxAgeMillis <= 0) {
+      return loader.get();
+    }
+    Key key = new Key(srcIsdAs, dstIsdAs);
+    long now = System.currentTimeMillis();
+    Entry<V> entry = entries.get(key);
+    if (entry != null && entry.isExpired(now)) {
+      entries.remove(key, entry);
+      entry = null;
+    }
+    if (entry == null) {
+      purge(now);
+      Entry<V> newEntry = new Entry<>();
+      entry = entries.putIfAbsent(key, newEntry);
+      if (entry == null) {
+        // Single flight: only the first caller performs the lookup.
+        return load(key, newEntry, loader);
+      }
+    }
+    return await(entry);
+  }
+
+  /**
+   * Same as {@link #get(long, long, Supplier)}, but a completed entry is not used. The loaded
+   * result replaces the entry. A lookup that is already in progress is shared.
+   *
+   * @param srcIsdAs Source ISD/AS, may be a wildcard
+   * @param dstIsdAs Destination ISD/AS, may be a wildcard
+   * @param loader Performs the lookup.
+   * @return The loaded segments.
+   */
+  V refresh(long srcIsdAs, long dstIsdAs, Supplier<V> loader) {
+    if (maxAgeMillis <= 0) {
+      return loader.get();
+    }
+    Key key = new Key(srcIsdAs, dstIsdAs);
+    purge(System.currentTimeMillis());
+    Entry<V> newEntry = new Entry<>();
+    while (true) {
+      Entry<V> entry = entries.get(key);
+      if (entry != null && !entry.future.isDone()) {
+        return await(entry);
+      }
+      if (entry == null
+          ? entries.putIfAbsent(key, newEntry) == null
+          : entries.replace(key, entry, newEntry)) {
+        return load(key, newEntry, loader);
+      }
+    }
+  }
+
+  private V load(Key key, Entry<V> entry, Supplier<V> loader) {
+    V value;
+    try {
+      value = loader.get();
+    } catch (Throwable t) {
+      // Also for Errors, otherwise waiting callers would never return.
+      entries.remove(key, entry);
+      entry.future.completeExceptionally(t);
+      throw t;
+    }
+    long now = System.currentTimeMillis();
+    long expiry = expiration.applyAsLong(value) * 1000L - marginMillis;
+    entry.expiryMillis = Math.min(expiry, now + maxAgeMillis);
+    if (entry.expiryMillis <= now) {
+      entries.remove(key, entry);
+    }
+    entry.future.complete(value);
+    return value;
+  }
+
+  private V await(Entry<V> entry) {
+    try {
+      return entry.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ScionRuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  private void purge(long now) {
+    if (entries.size() >= MAX_ENTRIES) {
+      entries.values().removeIf(e -> e.isExpired(now));
+      if (entries.size() >= MAX_ENTRIES) {
+        entries.values().removeIf(e -> e.future.isDone());
+      }
+    }
+  }
+
+  void clear() {
+    entries.clear();
+  }
+
+  private static class Entry<V> {
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+    // Written before the future is completed.
+    private volatile long expiryMillis = Long.MAX_VALUE;
+
+    private boolean isExpired(long nowMillis) {
+      return future.isDone() && nowMillis >= expiryMillis;
+    }
+  }
+
+  private static class Key {
+    private final long srcIsdAs;
+    private final long dstIsdAs;
+
+    private Key(long srcIsdAs, long dstIsdAs) {
+      this.srcIsdAs = srcIsdAs;
+      this.dstIsdAs = dstIsdAs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return srcIsdAs == key.srcIsdAs && dstIsdAs == key.dstIsdAs;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(srcIsdAs) * 31 + Long.hashCode(dstIsdAs);
+    }
+  }
+}
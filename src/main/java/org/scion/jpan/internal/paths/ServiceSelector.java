@@ -0,0 +1,348 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.paths;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.scion.jpan.ScionRuntimeException;
+import org.scion.jpan.internal.util.Threads;
+
+/**
+ * Selects the control service or path service for a request.
+ *
+ * <p>For every service, we track the latency (EWMA) of successful requests and recent failures.
+ * Requests go to the fastest available service. If a request fails, the other services are tried.
+ * Services that have not been measured yet keep their order from the topology, but come after
+ * measured services.
+ *
+ * <p>Circuit breaking: After a failure, a service is unavailable for one second. This doubles with
+ * every consecutive failure, up to one minute. Unavailable services are only tried if all available
+ * services fail. A successful request makes the service available again, unless the request was
+ * sent before the failure occurred.
+ *
+ * <p>Probing: Services that have not been measured or whose last measurement is older than one
+ * minute would otherwise only receive requests when the better services fail. Every 10 seconds, at
+ * most one request is therefore sent to such a service first, provided that it is available. If the
+ * probe fails, the request is sent to the other services as usual.
+ *
+ * <p>Hedging (optional): If the first service does not answer within the 95th percentile of its
+ * recent latencies (but at least 10 ms), the request is also sent to the second service and the
+ * first answer is used. The other request is not cancelled, but its latency is still recorded.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @param <S> The service type
+ */
+class ServiceSelector<S> {
+
+  private static final long BACKOFF_MIN_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long BACKOFF_MAX_NANOS = TimeUnit.SECONDS.toNanos(60);
+  private static final double EWMA_WEIGHT = 0.2;
+  private static final int LATENCY_SAMPLES = 32;
+  private static final int MIN_HEDGING_SAMPLES = 8;
+  private static final long MIN_HEDGING_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long PROBE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  interface Request<S, T> {
+    /**
+     * @param service The service
+     * @return The response
+     * @throws IOException If the service failed. The request is then sent to another service. Other
+     *     exceptions are passed on to the caller.
+     */
+    T execute(S service) throws IOException;
+  }
+
+  private final List<Entry<S>> entries = new ArrayList<>();
+  // Only used for hedging.
+  private final ExecutorService executor;
+  private final long probeIntervalNanos;
+  private final AtomicLong nextProbe;
+
+  /**
+   * @param services Services in the order of the topology
+   * @param hedging Whether requests should be hedged
+   * @param name Name for hedging threads
+   */
+  ServiceSelector(List<S> services, boolean hedging, String name) {
+    this(services, hedging, name, PROBE_INTERVAL_NANOS);
+  }
+
+  /**
+   * @param services Services in the order of the topology
+   * @param hedging Whether requests should be hedged
+   * @param name Name for hedging threads
+   * @param probeIntervalNanos Minimum interval between requests that probe unmeasured or stale
+   *     services
+   */
+  ServiceSelector(List<S> services, boolean hedging, String name, long probeIntervalNanos) {
+    for (S service : services) {
+      entries.add(new Entry<>(service));
+    }
+    this.executor =
+        hedging ? Executors.newCachedThreadPool(Threads.factory(name + "-hedging")) : null;
+    this.probeIntervalNanos = probeIntervalNanos;
+    this.nextProbe = new AtomicLong(System.nanoTime() + probeIntervalNanos);
+  }
+
+  List<S> getServices() {
+    List<S> list = new ArrayList<>();
+    entries.forEach(e -> list.add(e.service));
+    return list;
+  }
+
+  /**
+   * @return Services in the order in which they are tried.
+   */
+  List<S> getOrder() {
+    List<S> list = new ArrayList<>();
+    order().forEach(e -> list.add(e.service));
+    return list;
+  }
+
+  private List<Entry<S>> order() {
+    long now = System.nanoTime();
+    // We take snapshots of the statistics because they may change during sorting.
+    List<Rank<S>> ranks = new ArrayList<>();
+    entries.forEach(e -> ranks.add(e.rank(now)));
+    // This is a stable sort, services with equal rank keep their order.
+    ranks.sort(
+        Comparator.<Rank<S>>comparingInt(r -> r.unavailable).thenComparingLong(r -> r.score));
+    List<Entry<S>> list = new ArrayList<>();
+    ranks.forEach(r -> list.add(r.entry));
+    return list;
+  }
+
+  /**
+   * Send a request to the best service. Failed requests are sent to the next service.
+   *
+   * @param request The request
+   * @return The first response
+   * @throws IOException The error of the last service if all services failed.
+   */
+  <T> T execute(Request<S, T> request) throws IOException {
+    List<Entry<S>> order = order();
+    probe(order, System.nanoTime());
+    if (executor != null && order.size() >= 2) {
+      long delay = order.get(0).getHedgingDelayNanos();
+      if (delay >= 0 && order.get(1).isAvailable(System.nanoTime())) {
+        try {
+          return executeHedged(order, request, delay);
+        } catch (RejectedExecutionException e) {
+          // We have been closed. We still execute the request.
+        }
+      }
+    }
+    IOException error = new IOException("No control services found in topology");
+    for (Entry<S> entry : order) {
+      try {
+        return attempt(entry, request);
+      } catch (IOException e) {
+        error = e;
+      }
+    }
+    throw error;
+  }
+
+  /**
+   * If a probe is due, move the first available service that is unmeasured or stale to the front.
+   *
+   * @param order The services in the order in which they are tried
+   * @param now Current time
+   */
+  private void probe(List<Entry<S>> order, long now) {
+    long next = nextProbe.get();
+    if (order.size() < 2 || now - next < 0) {
+      return;
+    }
+    if (!nextProbe.compareAndSet(next, now + probeIntervalNanos)) {
+      return; // Another request is probing.
+    }
+    for (int i = 1; i < order.size(); i++) {
+      Entry<S> entry = order.get(i);
+      if (entry.isAvailable(now) && entry.isStale(now)) {
+        order.add(0, order.remove(i));
+        return;
+      }
+    }
+  }
+
+  private <T> T executeHedged(List<Entry<S>> order, Request<S, T> request, long delayNanos)
+      throws IOException {
+    BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+    int next = 0;
+    submit(order.get(next++), request, outcomes);
+    int running = 1;
+    try {
+      while (true) {
+        Outcome<T> outcome =
+            next == 1 ? outcomes.poll(delayNanos, TimeUnit.NANOSECONDS) : outcomes.take();
+        if (outcome == null) {
+          // The first service is slow, we hedge with the second service.
+          submit(order.get(next++), request, outcomes);
+          running++;
+          continue;
+        }
+        running--;
+        if (outcome.error == null) {
+          return outcome.value;
+        }
+        if (outcome.error instanceof RuntimeException) {
+          throw (RuntimeException) outcome.error;
+        }
+        if (next < order.size()) {
+          submit(order.get(next++), request, outcomes);
+          running++;
+        } else if (running == 0) {
+          throw (IOException) outcome.error;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ScionRuntimeException(e);
+    }
+  }
+
+  private <T> void submit(Entry<S> entry, Request<S, T> request, BlockingQueue<Outcome<T>> queue) {
+    executor.execute(
+        () -> {
+          try {
+            queue.add(new Outcome<>(attempt(entry, request), null));
+          } catch (IOException | RuntimeException e) {
+            queue.add(new Outcome<>(null, e));
+          }
+        });
+  }
+
+  private static <S, T> T attempt(Entry<S> entry, Request<S, T> request) throws IOException {
+    long start = System.nanoTime();
+    T result;
+    try {
+      result = request.execute(entry.service);
+    } catch (IOException e) {
+      entry.recordFailure(System.nanoTime());
+      throw e;
+    }
+    entry.recordSuccess(start, System.nanoTime());
+    return result;
+  }
+
+  void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  private static class Outcome<T> {
+    private final T value;
+    private final Exception error;
+
+    private Outcome(T value, Exception error) {
+      this.value = value;
+      this.error = error;
+    }
+  }
+
+  private static class Rank<S> {
+    private final Entry<S> entry;
+    private final int unavailable;
+    private final long score;
+
+    private Rank(Entry<S> entry, int unavailable, long score) {
+      this.entry = entry;
+      this.unavailable = unavailable;
+      this.score = score;
+    }
+  }
+
+  private static class Entry<S> {
+    private final S service;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount = 0;
+    private int latencyPos = 0;
+    private double ewmaNanos = 0;
+    private long measuredAt;
+    private int failures = 0;
+    private long failedAt;
+    private long unavailableUntil;
+
+    private Entry(S service) {
+      this.service = service;
+    }
+
+    synchronized boolean isAvailable(long now) {
+      return failures == 0 || now - unavailableUntil >= 0;
+    }
+
+    /**
+     * @return 'true' if the service has not been measured recently.
+     */
+    synchronized boolean isStale(long now) {
+      return latencyCount == 0 || now - measuredAt > STALE_NANOS;
+    }
+
+    synchronized Rank<S> rank(long now) {
+      if (!isAvailable(now)) {
+        // Services that become available first are tried first.
+        return new Rank<>(this, 1, unavailableUntil - now);
+      }
+      return new Rank<>(this, 0, latencyCount == 0 ? Long.MAX_VALUE : (long) ewmaNanos);
+    }
+
+    synchronized void recordSuccess(long start, long end) {
+      long latency = end - start;
+      ewmaNanos = latencyCount == 0 ? latency : ewmaNanos + EWMA_WEIGHT * (latency - ewmaNanos);
+      latencies[latencyPos] = latency;
+      latencyPos = (latencyPos + 1) % LATENCY_SAMPLES;
+      latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+      measuredAt = end;
+      // A request that was sent before the service failed does not close the circuit.
+      if (failures > 0 && start - failedAt >= 0) {
+        failures = 0;
+      }
+    }
+
+    synchronized void recordFailure(long now) {
+      failures++;
+      failedAt = now;
+      long backoff = BACKOFF_MIN_NANOS << Math.min(failures - 1, 16);
+      unavailableUntil = now + Math.min(backoff, BACKOFF_MAX_NANOS);
+    }
+
+    /**
+     * @return The 95th percentile of recent latencies or -1 if there are not enough measurements.
+     */
+    synchronized long getHedgingDelayNanos() {
+      if (latencyCount < MIN_HEDGING_SAMPLES) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(latencies, latencyCount);
+      Arrays.sort(sorted);
+      long p95 = sorted[(int) Math.ceil(0.95 * latencyCount) - 1];
+      return Math.max(p95, MIN_HEDGING_DELAY_NANOS);
+    }
+  }
+}
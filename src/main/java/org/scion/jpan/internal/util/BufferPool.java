@@ -0,0 +1,175 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct ByteBuffers. Buffers are organized in size classes, every size class is a power
+ * of two between {@link #MIN_BUFFER_SIZE} and {@link #MAX_BUFFER_SIZE}. Larger buffers are
+ * allocated on demand and are not pooled.
+ *
+ * <p>Every platform thread has a small cache of buffers per size class. Buffers that do not fit
+ * into the thread's cache are returned to a shared, bounded pool. Virtual threads use the shared
+ * pool only, because they are usually short-lived.
+ *
+ * <p>Direct buffers are expensive to allocate and they are only freed by the garbage collector.
+ * Pooling them avoids fragmentation of direct memory when many channels are opened and closed.
+ *
+ * <p>This class is thread-safe. A buffer must not be used after it has been released.
+ */
+public class BufferPool {
+
+  public static final int MIN_BUFFER_SIZE = 1 << 7;
+  public static final int MAX_BUFFER_SIZE = 1 << 16;
+  private static final int MIN_SHIFT = 7;
+  private static final int N_CLASSES = 16 - MIN_SHIFT + 1;
+
+  private static final BufferPool DEFAULT = new BufferPool(64, 4);
+
+  private final ArrayBlockingQueue<ByteBuffer>[] shared;
+  private final int localCacheSize;
+  private final ThreadLocal<LocalCache> localCache;
+  private final AtomicLong allocations = new AtomicLong();
+
+  /**
+   * @param sharedPoolSize Maximum number of buffers per size class in the shared pool.
+   * @param localCacheSize Maximum number of buffers per size class in each thread-local cache.
+   */
+  @SuppressWarnings("unchecked")
+  public BufferPool(int sharedPoolSize, int localCacheSize) {
+    if (sharedPoolSize < 1 || localCacheSize < 0) {
+      throw new IllegalArgumentException();
+    }
+    this.shared = new ArrayBlockingQueue[N_CLASSES];
+    for (int i = 0; i < N_CLASSES; i++) {
+      shared[i] = new ArrayBlockingQueue<>(sharedPoolSize);
+    }
+    this.localCacheSize = localCacheSize;
+    this.localCache = ThreadLocal.withInitial(this::createLocalCache);
+  }
+
+  /**
+   * @return The pool that is shared by all channels.
+   */
+  public static BufferPool getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Borrow a buffer from the pool. The buffer should be returned with {@link #release(ByteBuffer)}
+   * when it is not needed anymore.
+   *
+   * @param minSize Minimum capacity of the buffer
+   * @return A cleared direct buffer with a capacity of at least minSize.
+   */
+  public ByteBuffer acquire(int minSize) {
+    int index = classIndex(minSize);
+    if (index < 0) {
+      allocations.incrementAndGet();
+      return ByteBuffer.allocateDirect(minSize);
+    }
+    ByteBuffer buffer = null;
+    LocalCache local = localCache.get();
+    if (local != null) {
+      buffer = local.poll(index);
+    }
+    if (buffer == null) {
+      buffer = shared[index].poll();
+    }
+    if (buffer == null) {
+      allocations.incrementAndGet();
+      return ByteBuffer.allocateDirect(MIN_BUFFER_SIZE << index);
+    }
+    return buffer;
+  }
+
+  /**
+   * Return a buffer to the pool. Buffers that have not been acquired from a pool are ignored.
+   *
+   * @param buffer The buffer, may be 'null'.
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || buffer.isReadOnly()) {
+      return;
+    }
+    int capacity = buffer.capacity();
+    int index = classIndex(capacity);
+    if (index < 0 || (MIN_BUFFER_SIZE << index) != capacity) {
+      return;
+    }
+    buffer.clear();
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    LocalCache local = localCache.get();
+    if (local == null || !local.offer(index, buffer)) {
+      // If the shared pool is full, the buffer is left to the garbage collector.
+      shared[index].offer(buffer);
+    }
+  }
+
+  /**
+   * @return The number of buffers that were allocated by this pool.
+   */
+  public long getAllocationCount() {
+    return allocations.get();
+  }
+
+  private static int classIndex(int size) {
+    if (size > MAX_BUFFER_SIZE) {
+      return -1;
+    }
+    if (size <= MIN_BUFFER_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+  }
+
+  private LocalCache createLocalCache() {
+    if (localCacheSize == 0 || Threads.isVirtual(Thread.currentThread())) {
+      return null;
+    }
+    return new LocalCache(localCacheSize);
+  }
+
+  private static class LocalCache {
+    private final ByteBuffer[][] buffers;
+    private final int[] counts = new int[N_CLASSES];
+
+    LocalCache(int size) {
+      this.buffers = new ByteBuffer[N_CLASSES][size];
+    }
+
+    ByteBuffer poll(int index) {
+      if (counts[index] == 0) {
+        return null;
+      }
+      int n = --counts[index];
+      ByteBuffer buffer = buffers[index][n];
+      buffers[index][n] = null;
+      return buffer;
+    }
+
+    boolean offer(int index, ByteBuffer buffer) {
+      if (counts[index] == buffers[index].length) {
+        return false;
+      }
+      buffers[index][counts[index]++] = buffer;
+      return true;
+    }
+  }
+}
@@ -32,6 +32,11 @@ public class Config {
     return (int) (milliSeconds);
   }
 
+  public static boolean useControlPlaneHedging() {
+    return ScionUtil.getPropertyOrEnv(
+        PROPERTY_CONTROL_PLANE_HEDGING, ENV_CONTROL_PLANE_HEDGING, DEFAULT_CONTROL_PLANE_HEDGING);
+  }
+
   public static String getPathService() {
     return ScionUtil.getPropertyOrEnv(PROPERTY_BOOTSTRAP_PATH_SERVICE, ENV_BOOTSTRAP_PATH_SERVICE);
   }
@@ -75,6 +80,23 @@ public class Config {
         DEFAULT_PATH_POLLING_INTERVAL);
   }
 
+  public static int getSegmentCacheMaxAgeSeconds() {
+    return ScionUtil.getPropertyOrEnv(
+        PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC,
+        ENV_SEGMENT_CACHE_MAX_AGE_SEC,
+        DEFAULT_SEGMENT_CACHE_MAX_AGE);
+  }
+
+  public static int getPathCacheMaxAgeSeconds() {
+    return ScionUtil.getPropertyOrEnv(
+        PROPERTY_PATH_CACHE_MAX_AGE_SEC, ENV_PATH_CACHE_MAX_AGE_SEC, DEFAULT_PATH_CACHE_MAX_AGE);
+  }
+
+  public static boolean useVirtualThreads() {
+    return ScionUtil.getPropertyOrEnv(
+        PROPERTY_VIRTUAL_THREADS, ENV_VIRTUAL_THREADS, DEFAULT_VIRTUAL_THREADS);
+  }
+
   public static String getNApiSegmentServiceName() {
     return ScionUtil.getPropertyOrEnv(
         PROPERTY_NAPI_SEGMENT_SERVICE_NAME,
@@ -0,0 +1,107 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * A sliding window filter for sequence numbers, similar to the anti-replay window of IPsec. The
+ * filter remembers the sequence numbers in a window below the highest sequence number seen so far.
+ * Sequence numbers below the window are rejected.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class DuplicateFilter {
+
+  public enum Result {
+    /** The sequence number has not been seen before. */
+    NEW,
+    /** The sequence number has been seen before. */
+    DUPLICATE,
+    /** The sequence number is below the window, it is unknown whether it has been seen before. */
+    TOO_OLD
+  }
+
+  private final long[] bits;
+  private final int windowSize;
+  private long highest = -1;
+
+  /**
+   * @param windowSize Size of the window. This is rounded up to a multiple of 64.
+   */
+  public DuplicateFilter(int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("Illegal window size: " + windowSize);
+    }
+    this.bits = new long[(windowSize + 63) / 64];
+    this.windowSize = bits.length * 64;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  /**
+   * Checks a sequence number and marks it as seen.
+   *
+   * @param seq A non-negative sequence number
+   * @return The result of the check
+   */
+  public Result check(long seq) {
+    if (seq < 0) {
+      throw new IllegalArgumentException("Illegal sequence number: " + seq);
+    }
+    if (seq > highest) {
+      // Advance the window and clear all slots that are now reused.
+      if (highest < 0 || seq - highest >= windowSize) {
+        Arrays.fill(bits, 0);
+      } else {
+        for (long s = highest + 1; s < seq; s++) {
+          clear(s);
+        }
+      }
+      highest = seq;
+      set(seq);
+      return Result.NEW;
+    }
+    if (highest - seq >= windowSize) {
+      return Result.TOO_OLD;
+    }
+    if (isSet(seq)) {
+      return Result.DUPLICATE;
+    }
+    set(seq);
+    return Result.NEW;
+  }
+
+  private int index(long seq) {
+    return (int) (seq % windowSize);
+  }
+
+  private boolean isSet(long seq) {
+    int i = index(seq);
+    return (bits[i >>> 6] & (1L << i)) != 0;
+  }
+
+  private void set(long seq) {
+    int i = index(seq);
+    bits[i >>> 6] |= 1L << i;
+  }
+
+  private void clear(long seq) {
+    int i = index(seq);
+    bits[i >>> 6] &= ~(1L << i);
+  }
+}
@@ -86,6 +86,21 @@ public class SimpleCache<K, V> {
     return e.value;
   }
 
+  /**
+   * Remove an entry. The value is not closed, even if closeOnRemove is set.
+   *
+   * @param key The key
+   * @return The removed value or 'null'.
+   */
+  public V remove(K key) {
+    Entry e = lookupMap.remove(key);
+    if (e == null) {
+      return null;
+    }
+    ageMap.remove(e.age);
+    return e.value;
+  }
+
   public void clear() {
     lookupMap.clear();
     ageMap.clear();
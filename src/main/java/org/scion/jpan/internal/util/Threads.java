@@ -0,0 +1,109 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the internal threads of JPAN, e.g. receiver threads and timers. If configured, see {@link
+ * org.scion.jpan.Constants#PROPERTY_VIRTUAL_THREADS}, and if supported by the JVM (Java 21 or
+ * later), virtual threads are used. Otherwise, platform daemon threads are used.
+ */
+public class Threads {
+
+  private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+  private static final Method IS_VIRTUAL = getIsVirtualMethod();
+
+  private Threads() {}
+
+  /**
+   * @return 'true' if the JVM supports virtual threads.
+   */
+  public static boolean isVirtualThreadsSupported() {
+    return VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /**
+   * @param thread A thread
+   * @return 'true' if the thread is a virtual thread.
+   */
+  public static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (Boolean) IS_VIRTUAL.invoke(thread);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @param runnable The runnable
+   * @param name Thread name
+   * @return A new, unstarted daemon thread. This is a virtual thread if virtual threads are enabled
+   *     and supported.
+   */
+  public static Thread newThread(Runnable runnable, String name) {
+    Thread thread;
+    if (VIRTUAL_THREAD_FACTORY != null && Config.useVirtualThreads()) {
+      thread = VIRTUAL_THREAD_FACTORY.newThread(runnable);
+      thread.setName(name);
+    } else {
+      thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+    }
+    return thread;
+  }
+
+  /**
+   * @param name Thread name. If the factory creates more than one thread, a sequence number is
+   *     appended.
+   * @return A factory for threads created with {@link #newThread(Runnable, String)}.
+   */
+  public static ThreadFactory factory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      int n = count.getAndIncrement();
+      return newThread(runnable, n == 0 ? name : name + "-" + n);
+    };
+  }
+
+  private static ThreadFactory createVirtualThreadFactory() {
+    // Thread.ofVirtual() is only available with Java 21 or later.
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (NoSuchMethodException
+        | ClassNotFoundException
+        | IllegalAccessException
+        | InvocationTargetException e) {
+      return null;
+    }
+  }
+
+  private static Method getIsVirtualMethod() {
+    // Thread.isVirtual() is only available with Java 21 or later.
+    try {
+      return Thread.class.getMethod("isVirtual");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
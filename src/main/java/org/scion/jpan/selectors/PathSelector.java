@@ -74,5 +74,16 @@ public interface PathSelector extends Closeable {
 
   Path getPath();
 
+  /**
+   * Returns the path for the next packet. Path selectors that spread packets over several paths
+   * advance their schedule here, whereas {@link #getPath()} has no side effects. Channels use this
+   * method for sending.
+   *
+   * @return The path for the next packet or 'null' if no path is available.
+   */
+  default Path nextPath() {
+    return getPath();
+  }
+
   ScionSocketAddress getRemoteSocketAddress();
 }
@@ -0,0 +1,501 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.selectors;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.scion.jpan.*;
+import org.scion.jpan.internal.util.Config;
+import org.scion.jpan.internal.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A PathSelector that spreads packets to one destination over multiple paths (striping). Every call
+ * to {@link #nextPath()} returns the next path of the stripe set, {@link #getPath()} has no side
+ * effects. The stripe set consists of the first N paths that are returned by the {@link
+ * PathPolicy}.
+ *
+ * <p>Paths are scheduled either round-robin or weighted by their bottleneck bandwidth, see {@link
+ * PathMetadata#getBandwidths()}. Weighted scheduling uses smooth weighted round-robin, i.e. packets
+ * of different paths are interleaved.
+ *
+ * <p>If a path is reported faulty via SCMP error 5 or 6, it is removed from the stripe set. When
+ * the stripe set is empty, or when a path is about to expire, new paths are requested by a
+ * background timer. Path requests are never performed while sending.
+ *
+ * <p>Usage: for connected channels, use {@link
+ * ScionDatagramChannel.Builder#pathSelectorForConnect(PathSelector)}, for send() use {@link
+ * ScionDatagramChannel.Builder#pathSelectorsForSend(PathSelectorFactory)} with {@link Factory}.
+ * SCMP errors that are received by the channel are reported to its path selectors.
+ *
+ * @see PathSelector
+ */
+public class PathSelectorMultipath implements PathSelector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PathSelectorMultipath.class.getName());
+  // Interval for checking whether paths are about to expire or whether the stripe set is empty.
+  private static final long REFRESH_CHECK_INTERVAL_MS = 1000;
+  // Reported interfaces are considered working again after this time.
+  private static final long FAULTY_EXPIRY_MS = 5 * 60 * 1000L;
+  private static final ScheduledThreadPoolExecutor timer;
+
+  static {
+    timer = new ScheduledThreadPoolExecutor(1, Threads.factory("PathSelectorMultipath-timer"));
+    timer.setRemoveOnCancelPolicy(true);
+  }
+
+  /** Scheduling strategy for the paths of the stripe set. */
+  public enum Scheduling {
+    /** Every path gets the same share of packets. */
+    ROUND_ROBIN,
+    /**
+     * Paths get a share of packets proportional to their bottleneck bandwidth. Paths without
+     * bandwidth information get the weight of the slowest known path.
+     */
+    WEIGHTED
+  }
+
+  // The lock is never held while requesting paths.
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ScionService service;
+  private final int maxPaths;
+  private final Scheduling scheduling;
+  private PathPolicy pathPolicy;
+  private int configExpirationMarginMs;
+  private ScionSocketAddress dstAddress = null;
+
+  // Guarded by lock
+  private final List<Entry> stripe = new ArrayList<>();
+  // Guarded by lock. Interfaces reported by SCMP errors, without duplicates.
+  private final List<Faulty> faultyInterfaces = new ArrayList<>();
+  private int next = 0;
+  private Future<?> timerFuture;
+
+  private static class Entry {
+    private final Path path;
+    private final long weight;
+    private long currentWeight = 0;
+
+    Entry(Path path, long weight) {
+      this.path = path;
+      this.weight = weight;
+    }
+  }
+
+  private static class Faulty {
+    private final long[] ids;
+    private long reportedAtMs;
+
+    Faulty(long[] ids, long reportedAtMs) {
+      this.ids = ids;
+      this.reportedAtMs = reportedAtMs;
+    }
+  }
+
+  public static PathSelectorMultipath create(
+      ScionService service, PathPolicy policy, int maxPaths, Scheduling scheduling) {
+    return new PathSelectorMultipath(service, policy, maxPaths, scheduling);
+  }
+
+  private PathSelectorMultipath(
+      ScionService service, PathPolicy policy, int maxPaths, Scheduling scheduling) {
+    if (service == null) {
+      throw new IllegalArgumentException();
+    }
+    if (maxPaths < 1) {
+      throw new IllegalArgumentException("maxPaths must be at least 1: " + maxPaths);
+    }
+    this.service = service;
+    this.pathPolicy = policy;
+    this.maxPaths = maxPaths;
+    this.scheduling = scheduling;
+    this.configExpirationMarginMs = Config.getPathExpiryMarginSeconds() * 1000;
+  }
+
+  /**
+   * Report paths as faulty. This removes all paths from the stripe set that use the ISD/AS and at
+   * least one of the interfaces that are reported in the error. Reported interfaces are avoided
+   * for new stripe sets for some minutes.
+   *
+   * @param error The SCMP error.
+   */
+  @Override
+  public void reportError(Scmp.ErrorMessage error) {
+    long[] faulty;
+    // Only errors 5 and 6 give us useful information
+    if (error instanceof Scmp.Error5Message) {
+      Scmp.Error5Message error5 = (Scmp.Error5Message) error;
+      faulty = new long[] {error5.getIsdAs(), error5.getInterfaceId()};
+    } else if (error instanceof Scmp.Error6Message) {
+      Scmp.Error6Message error6 = (Scmp.Error6Message) error;
+      faulty = new long[] {error6.getIsdAs(), error6.getIngressId(), error6.getEgressId()};
+    } else {
+      return;
+    }
+
+    lock.lock();
+    try {
+      addFaulty(faulty);
+      boolean wasEmpty = stripe.isEmpty();
+      stripe.removeIf(e -> isUsingInterface(e.path, faulty));
+      next = stripe.isEmpty() ? 0 : next % stripe.size();
+      if (!wasEmpty && stripe.isEmpty() && dstAddress != null) {
+        // Request new paths right away, but not in the caller's thread. All known paths are
+        // faulty, so the cached paths would not help.
+        timer.execute(this::refreshAfterError);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Must be called with `lock` held.
+  private void addFaulty(long[] ids) {
+    long now = System.currentTimeMillis();
+    expireFaulty(now);
+    for (Faulty f : faultyInterfaces) {
+      if (Arrays.equals(f.ids, ids)) {
+        f.reportedAtMs = now;
+        return;
+      }
+    }
+    faultyInterfaces.add(new Faulty(ids, now));
+  }
+
+  // Must be called with `lock` held.
+  private void expireFaulty(long now) {
+    faultyInterfaces.removeIf(f -> now - f.reportedAtMs > FAULTY_EXPIRY_MS);
+  }
+
+  // Must be called with `lock` held.
+  private boolean isUsingFaultyInterface(Path path) {
+    return faultyInterfaces.stream().anyMatch(f -> isUsingInterface(path, f.ids));
+  }
+
+  private static boolean isUsingInterface(Path path, long[] faulty) {
+    PathMetadata meta = path.getMetadata();
+    return ScionUtil.isPathUsingInterface(meta, faulty[0], faulty[1])
+        && (faulty.length < 3 || ScionUtil.isPathUsingInterface(meta, faulty[0], faulty[2]));
+  }
+
+  /**
+   * @param bypassCache Whether new paths should be requested even if the service has cached paths
+   */
+  // Must be called without holding `lock`.
+  private void refreshPaths(boolean bypassCache) {
+    ScionSocketAddress dst;
+    PathPolicy policy;
+    lock.lock();
+    try {
+      dst = dstAddress;
+      policy = pathPolicy;
+    } finally {
+      lock.unlock();
+    }
+    if (dst == null) {
+      return;
+    }
+    List<Path> paths =
+        policy.filter(bypassCache ? service.refreshPaths(dst) : service.getPaths(dst));
+    lock.lock();
+    try {
+      if (dstAddress == dst) {
+        updateStripe(paths);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Must be called with `lock` held.
+  private void updateStripe(List<Path> paths) {
+    expireFaulty(System.currentTimeMillis());
+    List<Path> candidates = new ArrayList<>();
+    for (Path p : paths) {
+      if (!isExpiring(p) && !isUsingFaultyInterface(p)) {
+        candidates.add(p);
+      }
+    }
+    if (candidates.isEmpty()) {
+      // All paths are faulty -> try them again
+      faultyInterfaces.clear();
+      for (Path p : paths) {
+        if (!isExpiring(p)) {
+          candidates.add(p);
+        }
+      }
+    }
+
+    stripe.clear();
+    next = 0;
+    List<Path> selected = candidates.subList(0, Math.min(maxPaths, candidates.size()));
+    long[] bandwidths = new long[selected.size()];
+    long minKnown = Long.MAX_VALUE;
+    for (int i = 0; i < selected.size(); i++) {
+      bandwidths[i] = getBottleneckBandwidth(selected.get(i));
+      if (bandwidths[i] > 0) {
+        minKnown = Math.min(minKnown, bandwidths[i]);
+      }
+    }
+    for (int i = 0; i < selected.size(); i++) {
+      long weight = 1;
+      if (scheduling == Scheduling.WEIGHTED && minKnown != Long.MAX_VALUE) {
+        weight = bandwidths[i] > 0 ? bandwidths[i] : minKnown;
+      }
+      stripe.add(new Entry(selected.get(i), weight));
+    }
+  }
+
+  private static long getBottleneckBandwidth(Path path) {
+    long min = 0;
+    for (Long bw : path.getMetadata().getBandwidths()) {
+      if (bw != null && bw > 0 && (min == 0 || bw < min)) {
+        min = bw;
+      }
+    }
+    return min;
+  }
+
+  private boolean isExpiring(Path path) {
+    long epochSeconds = path.getMetadata().getExpiration();
+    return epochSeconds < Instant.now().getEpochSecond() + configExpirationMarginMs / 1000;
+  }
+
+  @Override
+  public void refresh() {
+    refreshPaths(true);
+  }
+
+  @Override
+  public PathPolicy getPathPolicy() {
+    lock.lock();
+    try {
+      return pathPolicy;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void setPathPolicy(PathPolicy pathPolicy) {
+    lock.lock();
+    try {
+      this.pathPolicy = pathPolicy;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method has no side effects, use {@link #nextPath()} for sending.
+   *
+   * @return The first path of the stripe set or 'null' if no path is available.
+   */
+  @Override
+  public Path getPath() {
+    lock.lock();
+    try {
+      return stripe.isEmpty() ? null : stripe.get(0).path;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The next path of the stripe set or 'null' if no path is available.
+   */
+  @Override
+  public Path nextPath() {
+    lock.lock();
+    try {
+      if (stripe.isEmpty()) {
+        return null;
+      }
+      if (scheduling == Scheduling.ROUND_ROBIN) {
+        Entry e = stripe.get(next);
+        next = (next + 1) % stripe.size();
+        return e.path;
+      }
+      return nextWeighted();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Called by the timer.
+  private void refreshIfRequired() {
+    try {
+      boolean isRequired;
+      lock.lock();
+      try {
+        isRequired =
+            dstAddress != null
+                && (stripe.isEmpty() || stripe.stream().anyMatch(e -> isExpiring(e.path)));
+      } finally {
+        lock.unlock();
+      }
+      if (isRequired) {
+        refreshPaths(false);
+      }
+    } catch (Exception e) {
+      LOG.error("Exception in PathSelector timer task, trying again later", e);
+    }
+  }
+
+  // Called by the timer after all paths of the stripe set were reported faulty.
+  private void refreshAfterError() {
+    try {
+      refreshPaths(true);
+    } catch (Exception e) {
+      LOG.error("Exception in PathSelector timer task, trying again later", e);
+    }
+  }
+
+  // Smooth weighted round-robin.
+  private Path nextWeighted() {
+    long total = 0;
+    Entry best = null;
+    for (Entry e : stripe) {
+      e.currentWeight += e.weight;
+      total += e.weight;
+      if (best == null || e.currentWeight > best.currentWeight) {
+        best = e;
+      }
+    }
+    best.currentWeight -= total;
+    return best.path;
+  }
+
+  /**
+   * @return The paths of the current stripe set.
+   */
+  public List<Path> getPaths() {
+    lock.lock();
+    try {
+      List<Path> paths = new ArrayList<>(stripe.size());
+      stripe.forEach(e -> paths.add(e.path));
+      return Collections.unmodifiableList(paths);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ScionSocketAddress getRemoteSocketAddress() {
+    lock.lock();
+    try {
+      return dstAddress;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Initialize the PathSelector and request the paths for the stripe set.
+   *
+   * @throws IllegalStateException if the PathSelector is already running
+   * @see PathSelector#open(ScionSocketAddress)
+   */
+  @Override
+  public void open(ScionSocketAddress remote) {
+    lock.lock();
+    try {
+      if (dstAddress != null) {
+        throw new IllegalStateException("Path selector is already running");
+      }
+      this.dstAddress = remote;
+    } finally {
+      lock.unlock();
+    }
+    refreshPaths(false);
+    lock.lock();
+    try {
+      if (dstAddress == remote) {
+        timerFuture =
+            timer.scheduleWithFixedDelay(
+                this::refreshIfRequired,
+                REFRESH_CHECK_INTERVAL_MS,
+                REFRESH_CHECK_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (timerFuture != null) {
+        timerFuture.cancel(false);
+        timerFuture = null;
+      }
+      dstAddress = null;
+      stripe.clear();
+      faultyInterfaces.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void setExpirationSafetyMargin(int cfgExpirationSafetyMargin) {
+    configExpirationMarginMs = cfgExpirationSafetyMargin * 1000;
+  }
+
+  @Override
+  public boolean isOpen() {
+    lock.lock();
+    try {
+      return dstAddress != null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public static class Factory extends PathSelectorFactory.AbstractPathSelectorFactory {
+
+    private final int maxPaths;
+    private final Scheduling scheduling;
+
+    protected Factory(PathPolicy defaultPolicy, int maxPaths, Scheduling scheduling) {
+      super(defaultPolicy);
+      if (maxPaths < 1) {
+        throw new IllegalArgumentException("maxPaths must be at least 1: " + maxPaths);
+      }
+      this.maxPaths = maxPaths;
+      this.scheduling = scheduling;
+    }
+
+    public static PathSelectorFactory create(
+        PathPolicy defaultPolicy, int maxPaths, Scheduling scheduling) {
+      return new Factory(defaultPolicy, maxPaths, scheduling);
+    }
+
+    @Override
+    public PathSelector createPathSelector(ScionService service) {
+      return PathSelectorMultipath.create(service, getDefaultPolicy(), maxPaths, scheduling);
+    }
+  }
+}
@@ -19,8 +19,10 @@ import java.util.*;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import org.scion.jpan.*;
 import org.scion.jpan.internal.util.Config;
+import org.scion.jpan.internal.util.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,17 +45,13 @@ public class PathSelectorWithRefresh implements PathSelector {
   private static final ScheduledThreadPoolExecutor timer;
 
   static {
-    timer =
-        new ScheduledThreadPoolExecutor(
-            1,
-            runnable -> {
-              Thread thread = new Thread(runnable);
-              thread.setDaemon(true);
-              return thread;
-            });
+    timer = new ScheduledThreadPoolExecutor(1, Threads.factory("PathSelectorWithRefresh-timer"));
     timer.setRemoveOnCancelPolicy(true);
   }
 
+  // We use a ReentrantLock instead of `synchronized` to avoid pinning virtual threads during I/O,
+  // e.g. while requesting paths.
+  private final ReentrantLock lock = new ReentrantLock();
   private final Runnable timerTask;
   private Future<?> timerFuture;
   private final ScionService service;
@@ -167,10 +165,13 @@ public class PathSelectorWithRefresh implements PathSelector {
           @Override
           public void run() {
             try {
-              synchronized (PathSelectorWithRefresh.this) {
+              lock.lock();
+              try {
                 if (isOpen()) {
-                  refreshPaths();
+                  refreshPaths(false);
                 }
+              } finally {
+                lock.unlock();
               }
             } catch (Exception e) {
               String time = configPathPollIntervalMs + "ms";
@@ -180,16 +181,22 @@ public class PathSelectorWithRefresh implements PathSelector {
         };
   }
 
-  /** Refresh paths from path server. */
-  // Synchronized because it is called by timer
-  private synchronized void refreshPaths() {
+  /**
+   * Refresh paths from path server.
+   *
+   * @param bypassCache Whether new paths should be requested even if the service has cached paths
+   */
+  // Must be called with `lock` held, it is also called by the timer.
+  private void refreshPaths(boolean bypassCache) {
     // Purpose:
     // 1) Get new paths from the service
     // 2) Discard paths that are about to expire
     // 3) Consider retrying path that were broken TODO
 
     // 1) Get new paths from the service
-    List<Path> newPaths2 = pathPolicy.filter(service.getPaths(dstAddress));
+    List<Path> newPaths2 =
+        pathPolicy.filter(
+            bypassCache ? service.refreshPaths(dstAddress) : service.getPaths(dstAddress));
     unusedPaths.clear();
     int n = 0;
     for (Path p : newPaths2) {
@@ -244,8 +251,13 @@ public class PathSelectorWithRefresh implements PathSelector {
   }
 
   @Override
-  public synchronized void refresh() {
-    refreshPaths();
+  public void refresh() {
+    lock.lock();
+    try {
+      refreshPaths(true);
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -259,62 +271,78 @@ public class PathSelectorWithRefresh implements PathSelector {
    * @param error The SCMP error.
    */
   @Override
-  public synchronized void reportError(Scmp.ErrorMessage error) {
-    long faultyIsdAs;
-    long ifId1;
-    Long ifId2 = null;
-    // Only errors 5 and 6 give us useful information
-    if (error instanceof Scmp.Error5Message) {
-      Scmp.Error5Message error5 = (Scmp.Error5Message) error;
-      faultyIsdAs = error5.getIsdAs();
-      ifId1 = error5.getInterfaceId();
-    } else if (error instanceof Scmp.Error6Message) {
-      Scmp.Error6Message error6 = (Scmp.Error6Message) error;
-      faultyIsdAs = error6.getIsdAs();
-      ifId1 = error6.getIngressId();
-      ifId2 = error6.getEgressId();
-    } else {
-      return;
-    }
+  public void reportError(Scmp.ErrorMessage error) {
+    lock.lock();
+    try {
+      long faultyIsdAs;
+      long ifId1;
+      Long ifId2 = null;
+      // Only errors 5 and 6 give us useful information
+      if (error instanceof Scmp.Error5Message) {
+        Scmp.Error5Message error5 = (Scmp.Error5Message) error;
+        faultyIsdAs = error5.getIsdAs();
+        ifId1 = error5.getInterfaceId();
+      } else if (error instanceof Scmp.Error6Message) {
+        Scmp.Error6Message error6 = (Scmp.Error6Message) error;
+        faultyIsdAs = error6.getIsdAs();
+        ifId1 = error6.getIngressId();
+        ifId2 = error6.getEgressId();
+      } else {
+        return;
+      }
 
-    // Mark unused paths with faulty interfaces as faulty
-    Iterator<Entry> unusedIter = unusedPaths.iterator();
-    while (unusedIter.hasNext()) {
-      Entry e = unusedIter.next();
-      PathMetadata meta = e.path.getMetadata();
-      if (ScionUtil.isPathUsingInterface(meta, faultyIsdAs, ifId1)
-          && (ifId2 == null || ScionUtil.isPathUsingInterface(meta, faultyIsdAs, ifId2))) {
-        unusedIter.remove();
-        e.setFaulty(Instant.now());
-        faultyPaths.put(e, e);
+      // Mark unused paths with faulty interfaces as faulty
+      Iterator<Entry> unusedIter = unusedPaths.iterator();
+      while (unusedIter.hasNext()) {
+        Entry e = unusedIter.next();
+        PathMetadata meta = e.path.getMetadata();
+        if (ScionUtil.isPathUsingInterface(meta, faultyIsdAs, ifId1)
+            && (ifId2 == null || ScionUtil.isPathUsingInterface(meta, faultyIsdAs, ifId2))) {
+          unusedIter.remove();
+          e.setFaulty(Instant.now());
+          faultyPaths.put(e, e);
+        }
       }
-    }
 
-    // Mark used paths with faulty interfaces as faulty
-    PathMetadata usedMeta = usedPath.path.getMetadata();
-    if (ScionUtil.isPathUsingInterface(usedMeta, faultyIsdAs, ifId1)
-        && (ifId2 == null || ScionUtil.isPathUsingInterface(usedMeta, faultyIsdAs, ifId2))) {
-      Entry e = usedPath;
-      usedPath = null;
-      e.setFaulty(Instant.now());
-      faultyPaths.put(e, e);
-      // Find new path
-      if (unusedPaths.isEmpty()) {
-        refreshPaths();
-        return;
+      // Mark used paths with faulty interfaces as faulty
+      PathMetadata usedMeta = usedPath.path.getMetadata();
+      if (ScionUtil.isPathUsingInterface(usedMeta, faultyIsdAs, ifId1)
+          && (ifId2 == null || ScionUtil.isPathUsingInterface(usedMeta, faultyIsdAs, ifId2))) {
+        Entry e = usedPath;
+        usedPath = null;
+        e.setFaulty(Instant.now());
+        faultyPaths.put(e, e);
+        // Find new path
+        if (unusedPaths.isEmpty()) {
+          // All known paths are faulty, the cached paths would not help.
+          refreshPaths(true);
+          return;
+        }
+        findFreePath();
       }
-      findFreePath();
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
-  public synchronized PathPolicy getPathPolicy() {
-    return pathPolicy;
+  public PathPolicy getPathPolicy() {
+    lock.lock();
+    try {
+      return pathPolicy;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized void setPathPolicy(PathPolicy pathPolicy) {
-    this.pathPolicy = pathPolicy;
+  public void setPathPolicy(PathPolicy pathPolicy) {
+    lock.lock();
+    try {
+      this.pathPolicy = pathPolicy;
+    } finally {
+      lock.unlock();
+    }
   }
 
   private boolean isExpiringInNextPeriod(Path path) {
@@ -324,8 +352,13 @@ public class PathSelectorWithRefresh implements PathSelector {
   }
 
   @Override
-  public synchronized Path getPath() {
-    return usedPath == null ? null : usedPath.path;
+  public Path getPath() {
+    lock.lock();
+    try {
+      return usedPath == null ? null : usedPath.path;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -342,36 +375,46 @@ public class PathSelectorWithRefresh implements PathSelector {
    * @see PathSelector#open(ScionSocketAddress)
    */
   @Override
-  public synchronized void open(ScionSocketAddress remote) {
-    if (isOpen()) {
-      throw new IllegalStateException("Path selector is already running");
-    }
-    this.dstAddress = remote;
+  public void open(ScionSocketAddress remote) {
+    lock.lock();
+    try {
+      if (isOpen()) {
+        throw new IllegalStateException("Path selector is already running");
+      }
+      this.dstAddress = remote;
 
-    // fetch new paths
-    refreshPaths();
+      // fetch new paths
+      refreshPaths(false);
 
-    timerFuture =
-        timer.scheduleAtFixedRate(
-            timerTask, configPathPollIntervalMs, configPathPollIntervalMs, TimeUnit.MILLISECONDS);
+      timerFuture =
+          timer.scheduleAtFixedRate(
+              timerTask, configPathPollIntervalMs, configPathPollIntervalMs, TimeUnit.MILLISECONDS);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized void close() {
-    Entry e = usedPath;
-    if (e != null) {
-      unusedPaths.add(e);
-      usedPath = null;
-    }
+  public void close() {
+    lock.lock();
+    try {
+      Entry e = usedPath;
+      if (e != null) {
+        unusedPaths.add(e);
+        usedPath = null;
+      }
 
-    if (timerFuture != null) {
-      timerFuture.cancel(true);
-      timerFuture = null;
+      if (timerFuture != null) {
+        timerFuture.cancel(true);
+        timerFuture = null;
+      }
+      this.dstAddress = null;
+      this.unusedPaths.clear();
+      this.usedPath = null;
+      this.faultyPaths.clear();
+    } finally {
+      lock.unlock();
     }
-    this.dstAddress = null;
-    this.unusedPaths.clear();
-    this.usedPath = null;
-    this.faultyPaths.clear();
   }
 
   @Override
@@ -380,8 +423,13 @@ public class PathSelectorWithRefresh implements PathSelector {
   }
 
   @Override
-  public synchronized boolean isOpen() {
-    return this.dstAddress != null;
+  public boolean isOpen() {
+    lock.lock();
+    try {
+      return this.dstAddress != null;
+    } finally {
+      lock.unlock();
+    }
   }
 
   static int getQueueSize() {
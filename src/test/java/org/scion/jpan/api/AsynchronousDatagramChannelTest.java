@@ -0,0 +1,155 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class AsynchronousDatagramChannelTest {
+
+  private static final byte[] packetBytes = ExamplePacket.PACKET_BYTES_SERVER_E2E_PING;
+
+  @AfterAll
+  public static void afterAll() {
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void testReceiveAndRespond() throws Exception {
+    try (AsynchronousScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      client.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      ByteBuffer buffer = ByteBuffer.allocate(100);
+      CompletableFuture<ScionPathAddress> future = server.receive(buffer);
+      assertFalse(future.isDone());
+
+      client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      ScionPathAddress address = future.get(1, TimeUnit.SECONDS);
+      assertEquals(ExamplePacket.SRC_IA, address.getIsdAs());
+      buffer.flip();
+      assertEquals(ExamplePacket.MSG, new String(buffer.array(), 0, buffer.limit()));
+
+      // Respond along the reversed path, the first hop is the client
+      int sent = server.send(buffer, address).get(1, TimeUnit.SECONDS);
+      assertTrue(sent > ExamplePacket.MSG.length());
+      ByteBuffer response = ByteBuffer.allocate(200);
+      assertNotNull(client.receive(response));
+      assertEquals(sent, response.position());
+    }
+  }
+
+  @Test
+  void testSendOrder() throws Exception {
+    try (AsynchronousScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      client.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      CompletableFuture<ScionPathAddress> future = server.receive(ByteBuffer.allocate(100));
+      client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      ScionPathAddress address = future.get(1, TimeUnit.SECONDS);
+
+      CompletableFuture<?>[] sent = new CompletableFuture<?>[10];
+      for (int i = 0; i < sent.length; i++) {
+        sent[i] = server.send(ByteBuffer.wrap(new byte[] {(byte) i}), address);
+      }
+      CompletableFuture.allOf(sent).get(1, TimeUnit.SECONDS);
+      // Datagrams are sent in the order of the calls to send()
+      ByteBuffer response = ByteBuffer.allocate(200);
+      for (int i = 0; i < sent.length; i++) {
+        response.clear();
+        assertNotNull(client.receive(response));
+        assertEquals(i, response.get(response.position() - 1));
+      }
+    }
+  }
+
+  @Test
+  void testCompletionHandler() throws Exception {
+    try (AsynchronousScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      CompletableFuture<String> result = new CompletableFuture<>();
+      ByteBuffer buffer = ByteBuffer.allocate(100);
+      server.receive(
+          buffer,
+          "attachment",
+          new CompletionHandler<ScionPathAddress, String>() {
+            @Override
+            public void completed(ScionPathAddress address, String attachment) {
+              result.complete(attachment);
+            }
+
+            @Override
+            public void failed(Throwable t, String attachment) {
+              result.completeExceptionally(t);
+            }
+          });
+      client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      assertEquals("attachment", result.get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testSend_noService() throws IOException, InterruptedException, TimeoutException {
+    try (AsynchronousScionDatagramChannel channel = openServer()) {
+      InetSocketAddress dst = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+      CompletableFuture<Integer> future = channel.send(ByteBuffer.allocate(10), dst);
+      ExecutionException e =
+          assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+      assertInstanceOf(ScionRuntimeException.class, e.getCause());
+    }
+  }
+
+  @Test
+  void testClose() throws Exception {
+    AsynchronousScionDatagramChannel channel = openServer();
+    CompletableFuture<ScionPathAddress> pending = channel.receive(ByteBuffer.allocate(100));
+    CompletableFuture<ScionPathAddress> queued = channel.receive(ByteBuffer.allocate(100));
+    channel.close();
+    assertFalse(channel.isOpen());
+
+    ExecutionException e1 =
+        assertThrows(ExecutionException.class, () -> pending.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(AsynchronousCloseException.class, e1.getCause());
+    ExecutionException e2 =
+        assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(AsynchronousCloseException.class, e2.getCause());
+
+    CompletableFuture<ScionPathAddress> closed = channel.receive(ByteBuffer.allocate(100));
+    ExecutionException e3 = assertThrows(ExecutionException.class, closed::get);
+    assertInstanceOf(ClosedChannelException.class, e3.getCause());
+  }
+
+  private static AsynchronousScionDatagramChannel openServer() throws IOException {
+    AsynchronousScionDatagramChannel channel = AsynchronousScionDatagramChannel.open(null);
+    channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    return channel;
+  }
+}
@@ -20,12 +20,20 @@ import java.io.IOException;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.charset.Charset;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -233,6 +241,45 @@ class DatagramChannelApiTest {
     testBlocking(false, channel -> channel.receive(ByteBuffer.allocate(100)));
   }
 
+  @Test
+  void configureBlocking_withScmpBackgroundReader() throws IOException, InterruptedException {
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open()) {
+      channel.setOption(ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER, true);
+      channel.bind(null);
+      // Give the background reader time to wait on its selector
+      Thread.sleep(50);
+      // Switching modes must neither hang nor fail while the background reader is active.
+      assertTimeoutPreemptively(Duration.ofSeconds(1), () -> channel.configureBlocking(false));
+      assertFalse(channel.isBlocking());
+      assertTimeoutPreemptively(Duration.ofSeconds(1), () -> channel.configureBlocking(true));
+      assertTrue(channel.isBlocking());
+    }
+  }
+
+  @Test
+  void receive_withScmpBackgroundReader() throws IOException, InterruptedException {
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open(null);
+        DatagramChannel client = DatagramChannel.open()) {
+      channel.setOption(ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER, true);
+      channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      byte[] packetBytes = ExamplePacket.PACKET_BYTES_SERVER_E2E_PING;
+      client.send(ByteBuffer.wrap(packetBytes), channel.getLocalAddress());
+      client.send(ByteBuffer.wrap(packetBytes), channel.getLocalAddress());
+      // Give the background reader time to receive the first datagram
+      Thread.sleep(100);
+
+      // Datagrams that arrive before the first receive() are not dropped.
+      for (int i = 0; i < 2; i++) {
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        ScionPathAddress src =
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> channel.receive(buffer));
+        assertNotNull(src);
+        buffer.flip();
+        assertEquals(ExamplePacket.MSG, new String(buffer.array(), 0, buffer.remaining()));
+      }
+    }
+  }
+
   interface ChannelConsumer {
     void accept(ScionDatagramChannel channel) throws InterruptedException, IOException;
   }
@@ -475,6 +522,33 @@ class DatagramChannelApiTest {
     }
   }
 
+  @Test
+  void send_gathering() throws IOException {
+    Path path = PackageVisibilityHelper.createMockRequestPath(null);
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open()) {
+      ByteBuffer[] buffers = {
+        ByteBuffer.wrap(new byte[10]), ByteBuffer.allocate(0), ByteBuffer.wrap(new byte[90])
+      };
+      assertEquals(100, channel.send(buffers, path));
+      for (ByteBuffer buffer : buffers) {
+        assertFalse(buffer.hasRemaining());
+      }
+    }
+  }
+
+  @Test
+  void write_gathering() throws IOException {
+    Path path = PackageVisibilityHelper.createMockRequestPath(null);
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open()) {
+      ByteBuffer[] buffers = {ByteBuffer.wrap(new byte[10]), ByteBuffer.wrap(new byte[90])};
+      assertThrows(NotYetConnectedException.class, () -> channel.write(buffers));
+      channel.connect(path.getRemoteSocketAddress());
+      assertThrows(IndexOutOfBoundsException.class, () -> channel.write(buffers, 1, 2));
+      assertEquals(90, channel.write(buffers, 1, 1));
+      assertEquals(10, channel.write(buffers));
+    }
+  }
+
   @Test
   void send_bufferTooLarge() {
     Path path = PackageVisibilityHelper.createMockRequestPath(null);
@@ -678,6 +752,215 @@ class DatagramChannelApiTest {
     }
   }
 
+  @Test
+  void sendReceive_afterClose() throws IOException {
+    ScionDatagramChannel channel = ScionDatagramChannel.open(null);
+    channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    channel.close();
+    // Buffers have been released, they must not be acquired again.
+    ByteBuffer buffer = ByteBuffer.allocate(100);
+    Path path = PackageVisibilityHelper.createDummyPath();
+    assertThrows(ClosedChannelException.class, () -> channel.send(buffer, path));
+    assertThrows(ClosedChannelException.class, () -> channel.receive(buffer));
+    ByteBuffer[] buffers = {buffer};
+    ScionPathAddress[] addresses = new ScionPathAddress[1];
+    assertThrows(ClosedChannelException.class, () -> channel.receiveBatch(buffers, addresses));
+  }
+
+  @Test
+  void setOption_ReplyPathCache() throws IOException {
+    byte[] packet = ExamplePacket.PACKET_BYTES_SERVER_E2E_PING;
+    try (ScionDatagramChannel server = ScionDatagramChannel.open(null);
+        java.nio.channels.DatagramChannel client = java.nio.channels.DatagramChannel.open()) {
+      assertEquals(0, server.getOption(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE));
+      server.setOption(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE, 10);
+      assertEquals(16, server.getOption(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> server.setOption(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE, -1));
+
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      ByteBuffer buffer = ByteBuffer.allocate(100);
+      client.send(ByteBuffer.wrap(packet), server.getLocalAddress());
+      Path path1 = server.receive(buffer).getPath();
+      buffer.clear();
+      client.send(ByteBuffer.wrap(packet), server.getLocalAddress());
+      Path path2 = server.receive(buffer).getPath();
+      assertSame(path1, path2);
+
+      // Disable
+      server.setOption(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE, 0);
+      assertEquals(0, server.getOption(ScionSocketOptions.SCION_REPLY_PATH_CACHE_SIZE));
+      buffer.clear();
+      client.send(ByteBuffer.wrap(packet), server.getLocalAddress());
+      Path path3 = server.receive(buffer).getPath();
+      assertNotSame(path1, path3);
+      assertEquals(path1.getRemoteAddress(), path3.getRemoteAddress());
+    }
+  }
+
+  @Test
+  void setOption_ConnectedUnderlay() throws IOException {
+    InetSocketAddress local = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open(null);
+        java.nio.channels.DatagramChannel br1 = java.nio.channels.DatagramChannel.open();
+        java.nio.channels.DatagramChannel br2 = java.nio.channels.DatagramChannel.open()) {
+      br1.bind(local);
+      br2.bind(local);
+      assertEquals(0, channel.getOption(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> channel.setOption(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS, -1));
+      channel.setOption(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS, 1);
+      assertEquals(1, channel.getOption(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS));
+      channel.bind(local);
+      int channelPort = channel.getLocalAddress().getPort();
+
+      Path path1 = PackageVisibilityHelper.createMockRequestPath(toAddress(br1));
+      Path path2 = PackageVisibilityHelper.createMockRequestPath(toAddress(br2));
+      ByteBuffer buffer = ByteBuffer.allocate(1000);
+
+      // Sent from a connected socket with a different port
+      channel.send(ByteBuffer.wrap("Hello".getBytes()), path1);
+      InetSocketAddress src1 = (InetSocketAddress) br1.receive(buffer);
+      assertNotEquals(channelPort, src1.getPort());
+      // The SCION header still contains the channel's address
+      buffer.flip();
+      ScionPacketInspector spi = ScionPacketInspector.readPacket(buffer);
+      assertEquals(channelPort, spi.getOverlayHeaderUdp().getSrcPort());
+
+      // The connected socket is reused
+      buffer.clear();
+      channel.send(ByteBuffer.wrap("Hello".getBytes()), path1);
+      assertEquals(src1, br1.receive(buffer));
+
+      // Capacity is 1: the socket for br1 is replaced
+      buffer.clear();
+      channel.send(ByteBuffer.wrap("Hello".getBytes()), path2);
+      InetSocketAddress src2 = (InetSocketAddress) br2.receive(buffer);
+      assertNotEquals(channelPort, src2.getPort());
+      buffer.clear();
+      channel.send(ByteBuffer.wrap("Hello".getBytes()), path1);
+      assertNotEquals(src1, br1.receive(buffer));
+
+      // Gathering write
+      buffer.clear();
+      ByteBuffer[] srcs = {ByteBuffer.wrap("Hel".getBytes()), ByteBuffer.wrap("lo".getBytes())};
+      assertEquals(5, channel.send(srcs, path1));
+      assertFalse(srcs[0].hasRemaining() || srcs[1].hasRemaining());
+      assertNotEquals(channelPort, ((InetSocketAddress) br1.receive(buffer)).getPort());
+      buffer.flip();
+      spi = ScionPacketInspector.readPacket(buffer);
+      assertEquals("Hello", new String(spi.getPayLoad()));
+
+      // Disable
+      channel.setOption(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS, 0);
+      assertEquals(0, channel.getOption(ScionSocketOptions.SCION_CONNECTED_UNDERLAY_SOCKETS));
+      buffer.clear();
+      channel.send(ByteBuffer.wrap("Hello".getBytes()), path1);
+      assertEquals(channelPort, ((InetSocketAddress) br1.receive(buffer)).getPort());
+    }
+  }
+
+  @Test
+  void setOption_UnresolvedQueue() throws Exception {
+    CountDownLatch lookupStarted = new CountDownLatch(1);
+    CountDownLatch lookupBarrier = new CountDownLatch(1);
+    AtomicInteger lookupCount = new AtomicInteger();
+    PathSelectorFactory factory = createSlowFactory(lookupCount, lookupStarted, lookupBarrier);
+    AtomicInteger sendCount = new AtomicInteger();
+    try (MockDatagramChannel mock = MockDatagramChannel.open();
+        ScionDatagramChannel channel =
+            ScionDatagramChannel.newBuilder().channel(mock).pathSelectorsForSend(factory).open()) {
+      mock.setSendCallback((buffer, address) -> sendCount.incrementAndGet());
+      assertEquals(-1, channel.getOption(ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> channel.setOption(ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE, -2));
+      channel.setOption(ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE, 1);
+      assertEquals(1, channel.getOption(ScionSocketOptions.SCION_UNRESOLVED_QUEUE_SIZE));
+
+      // Queued
+      ByteBuffer buf = ByteBuffer.wrap("Hello".getBytes());
+      assertEquals(5, channel.send(buf, dummyAddress));
+      assertFalse(buf.hasRemaining());
+      // Dropped
+      buf.rewind();
+      assertEquals(0, channel.send(buf, dummyAddress));
+      assertEquals(5, buf.remaining());
+      assertTrue(lookupStarted.await(1, TimeUnit.SECONDS));
+      assertEquals(0, sendCount.get());
+
+      // The queued packet is sent once the lookup completes
+      lookupBarrier.countDown();
+      long deadline = System.currentTimeMillis() + 1000;
+      while (sendCount.get() < 1 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(1, sendCount.get());
+      assertEquals(5, channel.send(buf, dummyAddress));
+      assertEquals(2, sendCount.get());
+      assertEquals(1, lookupCount.get());
+    }
+  }
+
+  @Test
+  void send_concurrentLookup() throws Exception {
+    CountDownLatch lookupStarted = new CountDownLatch(1);
+    CountDownLatch lookupBarrier = new CountDownLatch(1);
+    AtomicInteger lookupCount = new AtomicInteger();
+    PathSelectorFactory factory = createSlowFactory(lookupCount, lookupStarted, lookupBarrier);
+    InetSocketAddress dummyAddress2 = new InetSocketAddress(dummyAddress.getAddress(), 44445);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (MockDatagramChannel mock = MockDatagramChannel.open();
+        ScionDatagramChannel channel =
+            ScionDatagramChannel.newBuilder().channel(mock).pathSelectorsForSend(factory).open()) {
+      mock.setSendCallback((buffer, address) -> 0);
+      // The first lookup blocks
+      Future<Integer> f1 =
+          executor.submit(() -> channel.send(ByteBuffer.wrap("Hello".getBytes()), dummyAddress));
+      assertTrue(lookupStarted.await(1, TimeUnit.SECONDS));
+      Future<Integer> f2 =
+          executor.submit(() -> channel.send(ByteBuffer.wrap("Hello".getBytes()), dummyAddress));
+
+      // Other destinations are not blocked
+      channel.send(ByteBuffer.wrap("Hello".getBytes()), dummyAddress2);
+      assertFalse(f1.isDone());
+      assertFalse(f2.isDone());
+
+      // Both senders share one lookup
+      lookupBarrier.countDown();
+      f1.get(1, TimeUnit.SECONDS);
+      f2.get(1, TimeUnit.SECONDS);
+      assertEquals(2, lookupCount.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Creates a factory that blocks the first path lookup until the barrier is released. */
+  private static PathSelectorFactory createSlowFactory(
+      AtomicInteger lookupCount, CountDownLatch lookupStarted, CountDownLatch lookupBarrier) {
+    PathSelectorFactory base = PathSelectorWithRefresh.Factory.instance();
+    return service -> {
+      if (lookupCount.incrementAndGet() == 1) {
+        lookupStarted.countDown();
+        try {
+          assertTrue(lookupBarrier.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+      return base.createPathSelector(service);
+    };
+  }
+
+  private static InetSocketAddress toAddress(java.nio.channels.DatagramChannel channel)
+      throws IOException {
+    return (InetSocketAddress) channel.getLocalAddress();
+  }
+
   @Test
   void setOption_TrafficClass() throws IOException {
     ByteBuffer buf = ByteBuffer.wrap("Hello".getBytes());
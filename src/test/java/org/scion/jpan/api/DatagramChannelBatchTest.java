@@ -0,0 +1,189 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.scion.jpan.testutil.PingPongHelperBase.MSG;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.MockNetwork;
+import org.scion.jpan.testutil.PingPongChannelHelper;
+
+class DatagramChannelBatchTest {
+
+  private static final int N_BATCH = 5;
+
+  @AfterAll
+  public static void afterAll() {
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void testBatch() {
+    PingPongChannelHelper.Server serverFn = this::server;
+    PingPongChannelHelper.Client clientFn = this::client;
+    PingPongChannelHelper pph = PingPongChannelHelper.newBuilder(1, 1, 10).build();
+    pph.runPingPong(serverFn, clientFn);
+    assertEquals(2 * N_BATCH * 10, MockNetwork.getAndResetForwardCount());
+  }
+
+  @Test
+  void testBatch_nonBlockingNothingAvailable() throws IOException {
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open(null)) {
+      channel.bind(null);
+      channel.configureBlocking(false);
+      ByteBuffer[] buffers = createBuffers();
+      ScionPathAddress[] addresses = new ScionPathAddress[N_BATCH];
+      assertEquals(0, channel.receiveBatch(buffers, addresses));
+      assertNull(addresses[0]);
+    }
+  }
+
+  @Test
+  void testBatch_blockingCloseWakesReceiver() throws Exception {
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open(null)) {
+      channel.bind(null);
+      ByteBuffer[] buffers = createBuffers();
+      ScionPathAddress[] addresses = new ScionPathAddress[N_BATCH];
+      CompletableFuture<Integer> result =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return channel.receiveBatch(buffers, addresses);
+                } catch (IOException e) {
+                  throw new CompletionException(e);
+                }
+              });
+      Thread.sleep(50);
+      assertFalse(result.isDone());
+      // The underlying channel is non-blocking now, but this is not visible to the user.
+      assertTrue(channel.isBlocking());
+      channel.close();
+      Exception e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+      assertInstanceOf(ClosedChannelException.class, e.getCause());
+    }
+  }
+
+  @Test
+  void testBatch_illegalArguments() throws IOException {
+    try (ScionDatagramChannel channel = ScionDatagramChannel.open(null)) {
+      ByteBuffer[] buffers = createBuffers();
+      ScionPathAddress[] addresses = new ScionPathAddress[N_BATCH - 1];
+      Path[] paths = new Path[N_BATCH - 1];
+      assertThrows(IllegalArgumentException.class, () -> channel.receiveBatch(buffers, addresses));
+      assertThrows(IllegalArgumentException.class, () -> channel.sendBatch(buffers, paths));
+      assertThrows(IllegalArgumentException.class, () -> channel.sendBatch(buffers, addresses));
+    }
+  }
+
+  @Test
+  void testBatch_blockingReturnsAvailable() {
+    PingPongChannelHelper.Server serverFn = this::serverSingle;
+    PingPongChannelHelper.Client clientFn = this::clientSingle;
+    PingPongChannelHelper pph = PingPongChannelHelper.newBuilder(1, 1, 2).build();
+    pph.runPingPong(serverFn, clientFn);
+    assertEquals(2 * 2, MockNetwork.getAndResetForwardCount());
+  }
+
+  /** Blocking receiveBatch() may return fewer datagrams than requested, so we may need a loop. */
+  private static void receiveAll(
+      ScionDatagramChannel channel, ByteBuffer[] buffers, ScionPathAddress[] addresses)
+      throws IOException {
+    int n = 0;
+    while (n < buffers.length) {
+      ByteBuffer[] remainingBuffers = Arrays.copyOfRange(buffers, n, buffers.length);
+      ScionPathAddress[] remainingAddresses = new ScionPathAddress[remainingBuffers.length];
+      int received = channel.receiveBatch(remainingBuffers, remainingAddresses);
+      assertTrue(received > 0);
+      System.arraycopy(remainingAddresses, 0, addresses, n, received);
+      n += received;
+    }
+  }
+
+  private static ByteBuffer[] createBuffers() {
+    ByteBuffer[] buffers = new ByteBuffer[N_BATCH];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = ByteBuffer.allocate(512);
+    }
+    return buffers;
+  }
+
+  private void client(ScionDatagramChannel channel, Path requestPath, int id) throws IOException {
+    ByteBuffer[] sendBuffers = new ByteBuffer[N_BATCH];
+    Path[] paths = new Path[N_BATCH];
+    for (int i = 0; i < N_BATCH; i++) {
+      sendBuffers[i] = ByteBuffer.wrap((MSG + "-" + i).getBytes());
+      paths[i] = requestPath;
+    }
+    assertEquals(N_BATCH, channel.sendBatch(sendBuffers, paths));
+    for (ByteBuffer buffer : sendBuffers) {
+      assertFalse(buffer.hasRemaining());
+    }
+
+    ByteBuffer[] responses = createBuffers();
+    ScionPathAddress[] addresses = new ScionPathAddress[N_BATCH];
+    receiveAll(channel, responses, addresses);
+    for (int i = 0; i < N_BATCH; i++) {
+      assertEquals(requestPath.getRemoteAddress(), addresses[i].getAddress());
+      assertEquals(requestPath.getRemotePort(), addresses[i].getPort());
+      responses[i].flip();
+      String pong = new String(responses[i].array(), 0, responses[i].limit());
+      assertEquals(MSG + "-" + i, pong);
+    }
+  }
+
+  private void server(ScionDatagramChannel channel) throws IOException {
+    ByteBuffer[] buffers = createBuffers();
+    ScionPathAddress[] addresses = new ScionPathAddress[N_BATCH];
+    receiveAll(channel, buffers, addresses);
+    for (int i = 0; i < N_BATCH; i++) {
+      buffers[i].flip();
+      String msg = new String(buffers[i].array(), 0, buffers[i].remaining());
+      assertEquals(MSG + "-" + i, msg);
+    }
+    assertEquals(N_BATCH, channel.sendBatch(buffers, addresses));
+  }
+
+  private void clientSingle(ScionDatagramChannel channel, Path requestPath, int id)
+      throws IOException {
+    channel.send(ByteBuffer.wrap(MSG.getBytes()), requestPath);
+    ByteBuffer response = ByteBuffer.allocate(512);
+    channel.receive(response);
+    response.flip();
+    assertEquals(MSG, new String(response.array(), 0, response.limit()));
+  }
+
+  private void serverSingle(ScionDatagramChannel channel) throws IOException {
+    ByteBuffer[] buffers = createBuffers();
+    ScionPathAddress[] addresses = new ScionPathAddress[N_BATCH];
+    // Returns after the first datagram although more buffers are available
+    assertEquals(1, channel.receiveBatch(buffers, addresses));
+    assertNull(addresses[1]);
+    assertTrue(channel.isBlocking());
+    buffers[0].flip();
+    channel.send(buffers[0], addresses[0]);
+  }
+}
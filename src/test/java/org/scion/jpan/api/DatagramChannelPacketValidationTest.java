@@ -170,6 +170,12 @@ class DatagramChannelPacketValidationTest {
       // make sure we receive exactly one message
       receiveCount.incrementAndGet();
 
+      // all bad packets are counted
+      Long dropped = channel.getValidationFailureCounts().get("INVALID_LENGTH");
+      if (dropped == null || dropped != 10) {
+        mtn.reportException(new IllegalStateException("Dropped: " + dropped));
+      }
+
       response.flip();
       String pong = Charset.defaultCharset().decode(response).toString();
       if (!MSG.equals(pong)) {
@@ -42,8 +42,8 @@ class DatagramChannelPingPongTest {
     PingPongChannelHelper pph = PingPongChannelHelper.newBuilder(1, 10, 10).build();
     pph.runPingPong(serverFn, clientFn);
     assertEquals(2 * 10 * 10, MockNetwork.getAndResetForwardCount());
-    // 10 path + base init for common ScionService
-    int nExpectedDaemonCalls = 10 + (MockNetwork.SERVICE_TO_DAEMON_INIT_CALLS + 1);
+    // 1 path (cached for all clients) + base init for common ScionService
+    int nExpectedDaemonCalls = 1 + (MockNetwork.SERVICE_TO_DAEMON_INIT_CALLS + 1);
     assertEquals(nExpectedDaemonCalls, MockDaemon.getAndResetCallCount());
   }
 
@@ -64,11 +64,20 @@ class DatagramChannelPingPongTest {
     // who sends it to directly to the client without going through the BR.
     // This is of course wrong, but it doesn't affect the test.
     assertEquals(1 * 10 * 10, MockNetwork.getAndResetForwardCount());
-    // 10 path + base init for common ScionService
-    int nExpectedDaemonCalls = 10 + (MockNetwork.SERVICE_TO_DAEMON_INIT_CALLS + 1);
+    // 1 path (cached for all clients) + base init for common ScionService
+    int nExpectedDaemonCalls = 1 + (MockNetwork.SERVICE_TO_DAEMON_INIT_CALLS + 1);
     assertEquals(nExpectedDaemonCalls, MockDaemon.getAndResetCallCount());
   }
 
+  @Test
+  void testWithServerWriteToUserBuffer() {
+    PingPongChannelHelper.Server serverFn = this::serverWriteToUserBuffer;
+    PingPongChannelHelper.Client clientFn = this::client;
+    PingPongChannelHelper pph = PingPongChannelHelper.newBuilder(1, 10, 10).build();
+    pph.runPingPong(serverFn, clientFn);
+    assertEquals(2 * 10 * 10, MockNetwork.getAndResetForwardCount());
+  }
+
   private void client(ScionDatagramChannel channel, Path requestPath, int id) throws IOException {
     ByteBuffer sendBuf = ByteBuffer.wrap(MSG.getBytes());
     channel.send(sendBuf, requestPath);
@@ -100,4 +109,29 @@ class DatagramChannelPingPongTest {
     //    "SERVER: --- USER - Sending packet -------- " + clientAddress + " : " + clientPort);
     channel.send(buffer, path);
   }
+
+  private void serverWriteToUserBuffer(ScionDatagramChannel channel) throws IOException {
+    channel.setOption(ScionSocketOptions.SCION_API_WRITE_TO_USER_BUFFER, true);
+    assertTrue(channel.getOption(ScionSocketOptions.SCION_API_WRITE_TO_USER_BUFFER));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(200);
+    ScionPacketDescriptor descriptor = new ScionPacketDescriptor();
+    assertSame(descriptor, channel.receive(buffer, descriptor));
+
+    // The SCION header is located in front of the payload
+    assertTrue(buffer.position() > 0);
+    int payloadStart = buffer.position();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    assertEquals(MSG, new String(bytes));
+
+    // The path is extracted lazily
+    Path path = descriptor.getPath();
+    assertSame(path, descriptor.getPath());
+    assertEquals(path.getRemoteIsdAs(), descriptor.getRemoteIsdAs());
+    assertEquals(path.getRemoteAddress(), descriptor.getRemoteAddress());
+    assertEquals(path.getRemotePort(), descriptor.getRemotePort());
+
+    buffer.position(payloadStart);
+    channel.send(buffer, path);
+  }
 }
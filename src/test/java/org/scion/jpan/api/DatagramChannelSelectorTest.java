@@ -0,0 +1,168 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class DatagramChannelSelectorTest {
+
+  private static final byte[] packetBytes = ExamplePacket.PACKET_BYTES_SERVER_E2E_PING;
+
+  @AfterAll
+  public static void afterAll() {
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void testSelect() throws IOException {
+    try (ScionSelector selector = ScionSelector.open();
+        ScionDatagramChannel server1 = openServer();
+        ScionDatagramChannel server2 = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      ScionSelectionKey key1 = server1.register(selector, SelectionKey.OP_READ, "server1");
+      ScionSelectionKey key2 = server2.register(selector, SelectionKey.OP_READ, "server2");
+      assertEquals(2, selector.keys().size());
+      assertEquals(0, selector.selectNow());
+
+      // Invalid packets are consumed silently
+      client.send(ByteBuffer.wrap(new byte[] {1, 2, 3}), server1.getLocalAddress());
+      assertEquals(0, selector.select(100));
+      assertTrue(selector.selectedKeys().isEmpty());
+      assertEquals(1L, server1.getValidationFailureCounts().get("INVALID_LENGTH"));
+
+      // Valid packet
+      client.send(ByteBuffer.wrap(packetBytes), server2.getLocalAddress());
+      assertEquals(1, selector.select(1000));
+      assertEquals(1, selector.selectedKeys().size());
+      ScionSelectionKey key = selector.selectedKeys().iterator().next();
+      assertSame(key2, key);
+      assertSame(server2, key.channel());
+      assertEquals("server2", key.attachment());
+      assertTrue(key.isReadable());
+      assertFalse(key.isWritable());
+      selector.selectedKeys().clear();
+
+      // Not consumed -> still ready
+      assertEquals(1, selector.selectNow());
+      selector.selectedKeys().clear();
+
+      ByteBuffer buffer = ByteBuffer.allocate(100);
+      ScionPathAddress address = server2.receive(buffer);
+      assertNotNull(address);
+      buffer.flip();
+      assertEquals(ExamplePacket.MSG, new String(buffer.array(), 0, buffer.limit()));
+
+      // Consumed -> not ready
+      assertEquals(0, selector.selectNow());
+      assertNull(server2.receive(buffer));
+      assertTrue(key1.isValid());
+    }
+  }
+
+  @Test
+  void testSelect_writeToUserBuffer() throws IOException {
+    try (ScionSelector selector = ScionSelector.open();
+        ScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      server.setOption(ScionSocketOptions.SCION_API_WRITE_TO_USER_BUFFER, true);
+      server.register(selector, SelectionKey.OP_READ, null);
+      client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      assertEquals(1, selector.select(1000));
+
+      ByteBuffer buffer = ByteBuffer.allocate(200);
+      ScionPacketDescriptor descriptor = new ScionPacketDescriptor();
+      assertSame(descriptor, server.receive(buffer, descriptor));
+      byte[] payload = new byte[buffer.remaining()];
+      buffer.get(payload);
+      assertEquals(ExamplePacket.MSG, new String(payload));
+      assertEquals(ExamplePacket.SRC_IA, descriptor.getRemoteIsdAs());
+    }
+  }
+
+  @Test
+  void testWakeup() throws IOException {
+    try (ScionSelector selector = ScionSelector.open();
+        ScionDatagramChannel server = openServer()) {
+      server.register(selector, SelectionKey.OP_READ, null);
+      selector.wakeup();
+      assertEquals(0, selector.select());
+    }
+  }
+
+  @Test
+  void testSelect_concurrent() throws Exception {
+    try (ScionSelector selector = ScionSelector.open();
+        ScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      ScionSelectionKey key = server.register(selector, SelectionKey.OP_READ, null);
+      AtomicInteger selected = new AtomicInteger();
+      Thread[] threads = new Thread[2];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] =
+            new Thread(
+                () -> {
+                  try {
+                    selected.addAndGet(selector.select(1000));
+                  } catch (IOException e) {
+                    throw new RuntimeException(e);
+                  }
+                });
+        threads[i].start();
+      }
+      client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      // Both threads may report the pending datagram, but the key is selected only once
+      assertTrue(selected.get() >= 1);
+      synchronized (selector.selectedKeys()) {
+        assertEquals(1, selector.selectedKeys().size());
+        assertTrue(selector.selectedKeys().contains(key));
+      }
+    }
+  }
+
+  @Test
+  void testRegister_blocking() throws IOException {
+    try (ScionSelector selector = ScionSelector.open();
+        ScionDatagramChannel server = ScionDatagramChannel.open(null)) {
+      server.bind(null);
+      assertThrows(
+          IllegalBlockingModeException.class,
+          () -> server.register(selector, SelectionKey.OP_READ, null));
+    }
+  }
+
+  private static ScionDatagramChannel openServer() throws IOException {
+    ScionDatagramChannel channel = ScionDatagramChannel.open(null);
+    channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    channel.configureBlocking(false);
+    return channel;
+  }
+}
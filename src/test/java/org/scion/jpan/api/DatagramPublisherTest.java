@@ -0,0 +1,155 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class DatagramPublisherTest {
+
+  private static final byte[] packetBytes = ExamplePacket.PACKET_BYTES_SERVER_E2E_PING;
+
+  @AfterAll
+  public static void afterAll() {
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void testBackpressure() throws Exception {
+    try (ScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      TestSubscriber subscriber = new TestSubscriber();
+      ScionDatagramPublisher.create(server).subscribe(subscriber);
+      ScionFlow.Subscription subscription = subscriber.subscription.get(1, TimeUnit.SECONDS);
+
+      for (int i = 0; i < 3; i++) {
+        client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      }
+      // No demand -> nothing is published
+      assertNull(subscriber.items.poll(100, TimeUnit.MILLISECONDS));
+
+      subscription.request(2);
+      for (int i = 0; i < 2; i++) {
+        ScionDatagram datagram = subscriber.items.poll(1, TimeUnit.SECONDS);
+        assertNotNull(datagram);
+        ByteBuffer payload = datagram.getPayload();
+        assertEquals(ExamplePacket.MSG, new String(payload.array(), 0, payload.remaining()));
+        assertEquals(ExamplePacket.SRC_IA, datagram.getRemoteIsdAs());
+        assertEquals(ExamplePacket.SRC_IA, datagram.getPath().getRemoteIsdAs());
+      }
+      assertNull(subscriber.items.poll(100, TimeUnit.MILLISECONDS));
+
+      // The third datagram is still in the socket buffer
+      subscription.request(1);
+      assertNotNull(subscriber.items.poll(1, TimeUnit.SECONDS));
+
+      // Closing the channel completes the stream
+      server.close();
+      assertTrue(subscriber.completed.get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testCancel() throws Exception {
+    try (ScionDatagramChannel server = openServer();
+        DatagramChannel client = DatagramChannel.open()) {
+      TestSubscriber subscriber = new TestSubscriber();
+      ScionDatagramPublisher.create(server).subscribe(subscriber);
+      ScionFlow.Subscription subscription = subscriber.subscription.get(1, TimeUnit.SECONDS);
+      subscription.request(Long.MAX_VALUE);
+      subscription.cancel();
+      client.send(ByteBuffer.wrap(packetBytes), server.getLocalAddress());
+      assertNull(subscriber.items.poll(200, TimeUnit.MILLISECONDS));
+      assertFalse(subscriber.completed.isDone());
+      // The channel is deregistered and blocking again
+      for (int i = 0; i < 100 && !server.isBlocking(); i++) {
+        Thread.sleep(10);
+      }
+      assertTrue(server.isBlocking());
+    }
+  }
+
+  @Test
+  void testIllegalRequest() throws Exception {
+    try (ScionDatagramChannel server = openServer()) {
+      TestSubscriber subscriber = new TestSubscriber();
+      ScionDatagramPublisher.create(server).subscribe(subscriber);
+      subscriber.subscription.get(1, TimeUnit.SECONDS).request(0);
+      CompletableFuture<Boolean> completed = subscriber.completed;
+      Exception e = assertThrows(Exception.class, () -> completed.get(1, TimeUnit.SECONDS));
+      assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+  }
+
+  @Test
+  void testSecondSubscriber() throws Exception {
+    try (ScionDatagramChannel server = openServer()) {
+      ScionDatagramPublisher publisher = ScionDatagramPublisher.create(server);
+      publisher.subscribe(new TestSubscriber());
+      TestSubscriber subscriber = new TestSubscriber();
+      publisher.subscribe(subscriber);
+      CompletableFuture<Boolean> completed = subscriber.completed;
+      Exception e = assertThrows(Exception.class, () -> completed.get(1, TimeUnit.SECONDS));
+      assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+  }
+
+  private static ScionDatagramChannel openServer() throws IOException {
+    ScionDatagramChannel channel = ScionDatagramChannel.open(null);
+    channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    return channel;
+  }
+
+  private static class TestSubscriber implements ScionFlow.Subscriber<ScionDatagram> {
+    private final CompletableFuture<ScionFlow.Subscription> subscription =
+        new CompletableFuture<>();
+    private final BlockingQueue<ScionDatagram> items = new LinkedBlockingQueue<>();
+    private final CompletableFuture<Boolean> completed = new CompletableFuture<>();
+
+    @Override
+    public void onSubscribe(ScionFlow.Subscription subscription) {
+      this.subscription.complete(subscription);
+    }
+
+    @Override
+    public void onNext(ScionDatagram item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completed.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      completed.complete(true);
+    }
+  }
+}
@@ -93,6 +93,19 @@ class PathPolicyTest {
     }
   }
 
+  @Test
+  void maxMtu() {
+    List<Path> paths = createLongMixedList();
+    List<Path> filtered = new PathPolicy.MaxMtu().filter(paths);
+    assertEquals(paths.size(), filtered.size());
+    int prevMtu = Integer.MAX_VALUE;
+    for (Path path : filtered) {
+      int mtu = path.getMetadata().getMtu();
+      assertTrue(mtu <= prevMtu);
+      prevMtu = mtu;
+    }
+  }
+
   @Test
   void isdAllow() {
     List<Path> pathsWithDifferentLengths = createLongMixedList();
@@ -113,6 +126,35 @@ class PathPolicyTest {
     assertEquals(4, filtered.size());
   }
 
+  @Test
+  void disjoint() {
+    PathProvider pp = new PathProvider();
+    List<Path> paths = pp.getPaths("1-ff00:0:122", "2-ff00:0:221");
+    PathPolicy.Disjoint disjoint = new PathPolicy.Disjoint(PathPolicy.MIN_HOPS);
+    List<Path> filtered = disjoint.filter(paths);
+    assertEquals(paths.size(), filtered.size());
+    assertTrue(filtered.containsAll(paths));
+    // The first path is the preferred path of the base policy
+    assertEquals(PathPolicy.MIN_HOPS.filter(paths).get(0), filtered.get(0));
+    // The second path shares the fewest links with the first path
+    int shared = countSharedLinks(filtered.get(1), filtered.get(0));
+    for (Path p : filtered.subList(2, filtered.size())) {
+      assertTrue(shared <= countSharedLinks(p, filtered.get(0)));
+    }
+  }
+
+  private static int countSharedLinks(Path path, Path reference) {
+    List<PathMetadata.PathInterface> ifs = path.getMetadata().getInterfaces();
+    int shared = 0;
+    for (int i = 0; i + 1 < ifs.size(); i += 2) {
+      PathMetadata.PathInterface pif = ifs.get(i);
+      if (ScionUtil.isPathUsingInterface(reference.getMetadata(), pif.getIsdAs(), pif.getId())) {
+        shared++;
+      }
+    }
+    return shared;
+  }
+
   private List<Path> createLongMixedList() {
     PathProvider pp = new PathProvider();
     List<Path> paths1x2 = pp.getPaths("2-ff00:0:210", "1-ff00:0:110");
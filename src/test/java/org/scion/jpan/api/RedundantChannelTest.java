@@ -0,0 +1,98 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+
+class RedundantChannelTest {
+
+  @AfterAll
+  public static void afterAll() {
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void testReceive_dropsDuplicates() throws IOException {
+    InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    try (ScionRedundantChannel receiver =
+            ScionRedundantChannel.newBuilder().service(null).open().bind(loopback);
+        ScionDatagramChannel sender = ScionDatagramChannel.open(null)) {
+      sender.bind(loopback);
+      InetSocketAddress dst = receiver.getLocalAddress();
+      byte[] ip = dst.getAddress().getAddress();
+      Path path =
+          PackageVisibilityHelper.createDummyResponsePath(
+              new byte[0], 1, ip, sender.getLocalAddress().getPort(), 1, ip, dst.getPort(), dst);
+
+      // The same datagram arrives twice, e.g. via two paths
+      sender.send(createDatagram(42, 0, "hello"), path);
+      sender.send(createDatagram(42, 0, "hello"), path);
+      // Too short for the header
+      sender.send(ByteBuffer.wrap(new byte[] {1, 2, 3}), path);
+      sender.send(createDatagram(42, 1, "world"), path);
+
+      assertEquals("hello", receive(receiver));
+      assertEquals("world", receive(receiver));
+
+      ScionRedundantChannel.Statistics stats = receiver.getStatistics();
+      assertEquals(4, stats.getReceivedPackets());
+      assertEquals(2, stats.getFirstArrivals());
+      assertEquals(1, stats.getDuplicates());
+      assertEquals(1, stats.getInvalidPackets());
+      assertEquals(0, stats.getLateArrivals());
+      assertEquals(0, stats.getSentDatagrams());
+    }
+  }
+
+  @Test
+  void testSend_noService() throws IOException {
+    try (ScionRedundantChannel channel = ScionRedundantChannel.newBuilder().service(null).open()) {
+      InetSocketAddress dst = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+      ByteBuffer buffer = ByteBuffer.allocate(10);
+      assertThrows(ScionRuntimeException.class, () -> channel.send(buffer, dst));
+      assertEquals(0, channel.getStatistics().getSentDatagrams());
+    }
+  }
+
+  @Test
+  void testIllegalArguments() {
+    ScionRedundantChannel.Builder builder = ScionRedundantChannel.newBuilder();
+    assertThrows(IllegalArgumentException.class, () -> builder.redundancy(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.windowSize(0));
+  }
+
+  private static ByteBuffer createDatagram(int senderId, long seq, String msg) {
+    ByteBuffer buffer = ByteBuffer.allocate(ScionRedundantChannel.HEADER_LENGTH + msg.length());
+    buffer.putInt(senderId).putLong(seq).put(msg.getBytes());
+    buffer.flip();
+    return buffer;
+  }
+
+  private static String receive(ScionRedundantChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(100);
+    assertNotNull(channel.receive(buffer));
+    buffer.flip();
+    return new String(buffer.array(), 0, buffer.limit());
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class ServerChannelGroupTest {
+
+  private static final byte[] packetBytes = ExamplePacket.PACKET_BYTES_SERVER_E2E_PING;
+  private static final int N_CLIENTS = 20;
+
+  @AfterAll
+  public static void afterAll() {
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void testReceive() throws IOException, InterruptedException {
+    assumeTrue(ScionServerChannelGroup.isReusePortSupported());
+    CountDownLatch latch = new CountDownLatch(N_CLIENTS);
+    ConcurrentHashMap<String, String> messages = new ConcurrentHashMap<>();
+    ScionServerChannelGroup.Handler handler =
+        (channel, payload, descriptor) -> {
+          byte[] bytes = new byte[payload.remaining()];
+          payload.get(bytes);
+          messages.put(Thread.currentThread().getName(), new String(bytes));
+          assertEquals(ExamplePacket.SRC_IA, descriptor.getRemoteIsdAs());
+          latch.countDown();
+        };
+    InetSocketAddress bindAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    try (ScionServerChannelGroup group =
+        ScionServerChannelGroup.newBuilder(handler)
+            .service(null)
+            .bind(bindAddress)
+            .channelCount(4)
+            .open()) {
+      assertEquals(4, group.getChannels().size());
+      InetSocketAddress local = group.getLocalAddress();
+      assertNotEquals(0, local.getPort());
+      for (ScionDatagramChannel channel : group.getChannels()) {
+        assertEquals(local, channel.getLocalAddress());
+      }
+
+      // Use different clients (source ports) so that the kernel can distribute the packets
+      for (int i = 0; i < N_CLIENTS; i++) {
+        try (DatagramChannel client = DatagramChannel.open()) {
+          client.send(ByteBuffer.wrap(packetBytes), local);
+        }
+      }
+      assertTrue(latch.await(1, TimeUnit.SECONDS));
+      assertFalse(messages.isEmpty());
+      for (String msg : messages.values()) {
+        assertEquals(ExamplePacket.MSG, msg);
+      }
+    }
+  }
+
+  @Test
+  void testSingleChannel() throws IOException {
+    InetSocketAddress bindAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    try (ScionServerChannelGroup group =
+        ScionServerChannelGroup.newBuilder((channel, payload, descriptor) -> {})
+            .service(null)
+            .bind(bindAddress)
+            .channelCount(1)
+            .open()) {
+      assertEquals(1, group.getChannels().size());
+    }
+  }
+
+  @Test
+  void testIllegalArguments() {
+    ScionServerChannelGroup.Builder builder =
+        ScionServerChannelGroup.newBuilder((channel, payload, descriptor) -> {}).service(null);
+    assertThrows(IllegalArgumentException.class, () -> builder.channelCount(0));
+    assertThrows(IllegalStateException.class, builder::open);
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.internal.util.BufferPool;
+
+class BufferPoolTest {
+
+  @Test
+  void testSizeClasses() {
+    BufferPool pool = new BufferPool(4, 2);
+    assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(1).capacity());
+    assertEquals(128, pool.acquire(100).capacity());
+    assertEquals(2048, pool.acquire(2000).capacity());
+    assertEquals(2048, pool.acquire(2048).capacity());
+    assertEquals(4096, pool.acquire(2049).capacity());
+    assertEquals(BufferPool.MAX_BUFFER_SIZE, pool.acquire(BufferPool.MAX_BUFFER_SIZE).capacity());
+    // Larger buffers are not pooled
+    assertEquals(100_000, pool.acquire(100_000).capacity());
+    assertTrue(pool.acquire(100).isDirect());
+  }
+
+  @Test
+  void testReuse_threadLocal() {
+    BufferPool pool = new BufferPool(4, 2);
+    ByteBuffer buffer = pool.acquire(2000);
+    buffer.put((byte) 1).order(ByteOrder.LITTLE_ENDIAN);
+    pool.release(buffer);
+    ByteBuffer buffer2 = pool.acquire(1500);
+    assertSame(buffer, buffer2);
+    assertEquals(0, buffer2.position());
+    assertEquals(buffer2.capacity(), buffer2.limit());
+    assertEquals(ByteOrder.BIG_ENDIAN, buffer2.order());
+    assertEquals(1, pool.getAllocationCount());
+  }
+
+  @Test
+  void testReuse_shared() throws InterruptedException {
+    BufferPool pool = new BufferPool(4, 2);
+    ByteBuffer buffer = pool.acquire(2000);
+    // A buffer that is released by another thread is not in the local cache of this thread
+    Thread thread = new Thread(() -> pool.release(buffer));
+    thread.start();
+    thread.join();
+    assertNotSame(buffer, pool.acquire(2000));
+
+    BufferPool sharedOnly = new BufferPool(4, 0);
+    ByteBuffer buffer2 = sharedOnly.acquire(2000);
+    Thread thread2 = new Thread(() -> sharedOnly.release(buffer2));
+    thread2.start();
+    thread2.join();
+    assertSame(buffer2, sharedOnly.acquire(2000));
+    assertEquals(1, sharedOnly.getAllocationCount());
+  }
+
+  @Test
+  void testSharedPoolIsBounded() {
+    BufferPool pool = new BufferPool(1, 0);
+    ByteBuffer b1 = pool.acquire(100);
+    ByteBuffer b2 = pool.acquire(100);
+    assertEquals(2, pool.getAllocationCount());
+    pool.release(b1);
+    pool.release(b2);
+    assertSame(b1, pool.acquire(100));
+    pool.acquire(100);
+    assertEquals(3, pool.getAllocationCount());
+  }
+
+  @Test
+  void testReleaseForeignBuffers() {
+    BufferPool pool = new BufferPool(4, 2);
+    pool.release(null);
+    pool.release(ByteBuffer.allocate(128));
+    pool.release(ByteBuffer.allocateDirect(2000));
+    pool.release(ByteBuffer.allocateDirect(100_000));
+    assertEquals(128, pool.acquire(128).capacity());
+    assertEquals(2048, pool.acquire(2000).capacity());
+    assertEquals(2, pool.getAllocationCount());
+  }
+}
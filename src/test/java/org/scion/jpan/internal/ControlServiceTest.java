@@ -21,6 +21,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import io.grpc.Status;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.scion.jpan.*;
@@ -32,6 +35,8 @@ class ControlServiceTest {
   @AfterEach
   void afterEach() {
     Scion.closeDefault();
+    System.clearProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC);
+    System.clearProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC);
   }
 
   @Test
@@ -75,6 +80,67 @@ class ControlServiceTest {
     assertNotNull(path);
   }
 
+  @Test
+  void testConcurrentLookups() throws Exception {
+    // The path and segment caches would coalesce the lookups, see PathCacheTest.
+    System.setProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC, "0");
+    System.setProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC, "0");
+    try (MockNetwork2 nw = MockNetwork2.start(MockNetwork2.Topology.TINY4B, "ASff00_0_112")) {
+      long dstIA = ScionUtil.parseIA("1-ff00:0:111");
+      InetSocketAddress dstAddress = new InetSocketAddress("::1", 12345);
+      ScionService client = Scion.defaultService();
+      MockControlServer cs = nw.getControlServers().get(0);
+      cs.getAndResetCallCount(); // reset
+
+      cs.block();
+      CompletableFuture<List<Path>> paths1;
+      CompletableFuture<List<Path>> paths2;
+      int calls = 0;
+      try {
+        paths1 = CompletableFuture.supplyAsync(() -> client.getPaths(dstIA, dstAddress));
+        paths2 = CompletableFuture.supplyAsync(() -> client.getPaths(dstIA, dstAddress));
+        // Lookups are not serialized, the first request of both lookups reaches the blocked CS.
+        for (int i = 0; i < 200 && calls < 2; i++) {
+          Thread.sleep(10);
+          calls += cs.getAndResetCallCount();
+        }
+      } finally {
+        cs.unblock();
+      }
+      assertEquals(2, calls);
+      assertFalse(paths1.get(5, TimeUnit.SECONDS).isEmpty());
+      assertFalse(paths2.get(5, TimeUnit.SECONDS).isEmpty());
+    }
+  }
+
+  @Test
+  void testConcurrentSegmentRequests() throws Exception {
+    // 1-ff00:0:110 is a CORE AS, it does not need UP segments.
+    try (MockNetwork2 nw = MockNetwork2.start(MockNetwork2.Topology.MINIMAL, "ASff00_0_110")) {
+      long dstIA = ScionUtil.parseIA("1-ff00:0:111");
+      InetSocketAddress dstAddress = new InetSocketAddress("::1", 12345);
+      ScionService client = Scion.defaultService();
+      MockControlServer cs = nw.getControlServer();
+      cs.getAndResetCallCount(); // reset
+
+      cs.block();
+      CompletableFuture<List<Path>> paths;
+      int calls = 0;
+      try {
+        paths = CompletableFuture.supplyAsync(() -> client.getPaths(dstIA, dstAddress));
+        // CORE and DOWN requests are not serialized, they both reach the blocked CS.
+        for (int i = 0; i < 200 && calls < 2; i++) {
+          Thread.sleep(10);
+          calls += cs.getAndResetCallCount();
+        }
+      } finally {
+        cs.unblock();
+      }
+      assertEquals(2, calls);
+      assertFalse(paths.get(5, TimeUnit.SECONDS).isEmpty());
+    }
+  }
+
   @Test
   void testControlServiceWorksThenFails_Backup() {
     // Test success if 1st CS reports errors during runtime
@@ -92,9 +158,9 @@ class ControlServiceTest {
         // Kill CS #1
         nw.getControlServers().get(0).reportError(error);
 
-        // try again
-        // Where does path with BR-2 come from ????
-        Path path2 = client.getPaths(dstIA, dstAddress).get(0);
+        // try again, bypassing the cached paths
+        ScionSocketAddress dst = PackageVisibilityHelper.toSSA(dstIA, dstAddress);
+        Path path2 = client.refreshPaths(dst).get(0);
         assertNotNull(path2);
         assertEquals(1, nw.getControlServers().get(0).getAndResetCallCount()); // error
         assertEquals(3, nw.getControlServers().get(1).getAndResetCallCount());
@@ -124,8 +190,9 @@ class ControlServiceTest {
       // Kill 2nd CS (have both report errors)
       nw.getControlServers().get(0).reportError(Status.UNAVAILABLE);
       nw.getControlServers().get(1).reportError(Status.UNAVAILABLE);
-      Exception ex =
-          assertThrows(ScionRuntimeException.class, () -> client.getPaths(dstIA111, dstAddress));
+      ScionSocketAddress dst111 = PackageVisibilityHelper.toSSA(dstIA111, dstAddress);
+      // Bypass the cached paths
+      Exception ex = assertThrows(ScionRuntimeException.class, () -> client.refreshPaths(dst111));
       String expected = "Error while connecting to SCION network, no control service available";
       assertTrue(ex.getMessage().startsWith(expected));
 
@@ -0,0 +1,71 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.scion.jpan.internal.util.DuplicateFilter.Result.*;
+
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.internal.util.DuplicateFilter;
+
+class DuplicateFilterTest {
+
+  @Test
+  void testInOrder() {
+    DuplicateFilter filter = new DuplicateFilter(64);
+    for (int i = 0; i < 200; i++) {
+      assertEquals(NEW, filter.check(i));
+      assertEquals(DUPLICATE, filter.check(i));
+    }
+  }
+
+  @Test
+  void testReordered() {
+    DuplicateFilter filter = new DuplicateFilter(64);
+    assertEquals(NEW, filter.check(10));
+    assertEquals(NEW, filter.check(5));
+    assertEquals(NEW, filter.check(7));
+    assertEquals(DUPLICATE, filter.check(5));
+    assertEquals(DUPLICATE, filter.check(10));
+    assertEquals(NEW, filter.check(0));
+    assertEquals(NEW, filter.check(11));
+    assertEquals(DUPLICATE, filter.check(7));
+  }
+
+  @Test
+  void testWindow() {
+    DuplicateFilter filter = new DuplicateFilter(100);
+    assertEquals(128, filter.getWindowSize());
+    assertEquals(NEW, filter.check(0));
+    assertEquals(NEW, filter.check(127));
+    assertEquals(DUPLICATE, filter.check(0));
+    assertEquals(NEW, filter.check(128));
+    assertEquals(TOO_OLD, filter.check(0));
+    // Slots that are reused must have been cleared
+    assertEquals(NEW, filter.check(200));
+    assertEquals(NEW, filter.check(150));
+    // Jump beyond the window
+    assertEquals(NEW, filter.check(10_000));
+    assertEquals(NEW, filter.check(9_999));
+    assertEquals(TOO_OLD, filter.check(200));
+  }
+
+  @Test
+  void testIllegalArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new DuplicateFilter(0));
+    DuplicateFilter filter = new DuplicateFilter(64);
+    assertThrows(IllegalArgumentException.class, () -> filter.check(-1));
+  }
+}
@@ -0,0 +1,169 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.PackageVisibilityHelper;
+import org.scion.jpan.Path;
+import org.scion.jpan.internal.header.HeaderConstants;
+import org.scion.jpan.internal.header.HeaderTemplateCache;
+import org.scion.jpan.internal.header.ScionHeaderParser;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class HeaderTemplateCacheTest {
+
+  private static final int UDP = HeaderConstants.HdrTypes.UDP.code();
+  private static final int SCMP = HeaderConstants.HdrTypes.SCMP.code();
+
+  @Test
+  void testWrite() {
+    HeaderTemplateCache cache = new HeaderTemplateCache(4);
+    Path path = createPath();
+    InetAddress src = InetAddress.getLoopbackAddress();
+
+    ByteBuffer buffer = ByteBuffer.allocate(1000);
+    assertFalse(cache.write(buffer, path, 100, UDP, 0, src));
+    assertEquals(0, buffer.position());
+    writeHeader(buffer, path, 100, UDP, 0, src);
+    cache.put(buffer, path, UDP, 0, src);
+
+    // Different payload length
+    ByteBuffer cached = ByteBuffer.allocate(1000);
+    assertTrue(cache.write(cached, path, 200, UDP, 0, src));
+    ByteBuffer expected = ByteBuffer.allocate(1000);
+    writeHeader(expected, path, 200, UDP, 0, src);
+    assertEquals(expected.position(), cached.position());
+    assertEquals(expected.flip(), cached.flip());
+  }
+
+  @Test
+  void testMismatch() throws UnknownHostException {
+    HeaderTemplateCache cache = new HeaderTemplateCache(4);
+    Path path = createPath();
+    InetAddress src = InetAddress.getLoopbackAddress();
+    ByteBuffer buffer = ByteBuffer.allocate(1000);
+    writeHeader(buffer, path, 100, UDP, 0, src);
+    cache.put(buffer, path, UDP, 0, src);
+
+    buffer.clear();
+    Path otherPath = createPath(ExamplePacket.PATH_RAW_UP_CORE_DOWN);
+    assertFalse(cache.write(buffer, otherPath, 100, UDP, 0, src));
+    assertFalse(cache.write(buffer, path, 100, SCMP, 0, src));
+    assertFalse(cache.write(buffer, path, 100, UDP, 42, src));
+    InetAddress src2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+    assertFalse(cache.write(buffer, path, 100, UDP, 0, src2));
+    assertEquals(0, buffer.position());
+    assertTrue(cache.write(buffer, path, 100, UDP, 0, src));
+
+    cache.clear();
+    buffer.clear();
+    assertFalse(cache.write(buffer, path, 100, UDP, 0, src));
+  }
+
+  @Test
+  void testEquivalentPath() {
+    HeaderTemplateCache cache = new HeaderTemplateCache(4);
+    Path path = createPath();
+    InetAddress src = InetAddress.getLoopbackAddress();
+    ByteBuffer buffer = ByteBuffer.allocate(1000);
+    writeHeader(buffer, path, 100, UDP, 0, src);
+    cache.put(buffer, path, UDP, 0, src);
+
+    // A different instance with the same content, e.g. a new ResponsePath, reuses the header
+    Path equivalent = createPath(ExamplePacket.PATH_RAW_TINY_110_112.clone());
+    ByteBuffer cached = ByteBuffer.allocate(1000);
+    assertTrue(cache.write(cached, equivalent, 100, UDP, 0, src));
+    assertEquals(buffer.flip(), cached.flip());
+  }
+
+  @Test
+  void testConcurrent() throws InterruptedException {
+    HeaderTemplateCache cache = new HeaderTemplateCache(2);
+    InetAddress src = InetAddress.getLoopbackAddress();
+    AtomicInteger errors = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] =
+          new Thread(
+              () -> {
+                Path path = createPath();
+                ByteBuffer expected = ByteBuffer.allocate(1000);
+                writeHeader(expected, path, 100, UDP, 0, src);
+                expected.flip();
+                ByteBuffer buffer = ByteBuffer.allocate(1000);
+                for (int i = 0; i < 10_000; i++) {
+                  buffer.clear();
+                  if (!cache.write(buffer, path, 100, UDP, 0, src)) {
+                    writeHeader(buffer, path, 100, UDP, 0, src);
+                    cache.put(buffer, path, UDP, 0, src);
+                  }
+                  buffer.flip();
+                  if (!expected.equals(buffer)) {
+                    errors.incrementAndGet();
+                  }
+                }
+              });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, errors.get());
+  }
+
+  @Test
+  void testIllegalSize() {
+    assertThrows(IllegalArgumentException.class, () -> new HeaderTemplateCache(0));
+    assertThrows(IllegalArgumentException.class, () -> new HeaderTemplateCache(3));
+  }
+
+  private static Path createPath() {
+    return createPath(ExamplePacket.PATH_RAW_TINY_110_112);
+  }
+
+  private static Path createPath(byte[] rawPath) {
+    InetSocketAddress firstHop = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+    return PackageVisibilityHelper.createDummyPath(
+        ExamplePacket.SRC_IA,
+        ExamplePacket.DST_IA,
+        ExamplePacket.DST_HOST,
+        12345,
+        rawPath,
+        firstHop);
+  }
+
+  private static void writeHeader(
+      ByteBuffer buffer, Path path, int payloadLength, int hdrType, int tc, InetAddress src) {
+    byte[] rawPath = path.getRawPath();
+    ScionHeaderParser.write(
+        buffer,
+        payloadLength,
+        rawPath.length,
+        ExamplePacket.SRC_IA,
+        src.getAddress(),
+        path.getRemoteIsdAs(),
+        path.getRemoteAddress().getAddress(),
+        hdrType,
+        tc);
+    ScionHeaderParser.writePath(buffer, rawPath);
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.internal.header.PacketValidator;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class PacketValidatorTest {
+
+  private static final byte[] packetBytes = ExamplePacket.PACKET_BYTES_CLIENT_E2E_PING;
+
+  @Test
+  void valid() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    assertEquals(PacketValidator.VALID, PacketValidator.validate(data));
+    assertNull(PacketValidator.describe(PacketValidator.VALID, data));
+    assertEquals(0, data.position());
+  }
+
+  @Test
+  void tooShort() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes, 0, 20).slice();
+    assertEquals(PacketValidator.INVALID_LENGTH, PacketValidator.validate(data));
+    String msg = PacketValidator.describe(PacketValidator.INVALID_LENGTH, data);
+    assertTrue(msg.contains("Invalid packet length: packet too short: 20"), msg);
+  }
+
+  @Test
+  void version() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    data.put(0, (byte) 0x10);
+    assertEquals(PacketValidator.INVALID_VERSION, PacketValidator.validate(data));
+    String msg = PacketValidator.describe(PacketValidator.INVALID_VERSION, data);
+    assertTrue(msg.endsWith("version: expected 0, got 1"), msg);
+  }
+
+  @Test
+  void nextHeader() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    data.put(4, (byte) 42);
+    assertEquals(PacketValidator.INVALID_NEXT_HEADER, PacketValidator.validate(data));
+    String msg = PacketValidator.describe(PacketValidator.INVALID_NEXT_HEADER, data);
+    assertTrue(msg.endsWith("got 42"), msg);
+  }
+
+  @Test
+  void reserved() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    data.put(11, (byte) 1);
+    assertEquals(PacketValidator.INVALID_RESERVED, PacketValidator.validate(data));
+    assertEquals("INVALID_RESERVED", PacketValidator.name(PacketValidator.INVALID_RESERVED));
+  }
+
+  @Test
+  void headerLengthTooShort() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    // Reduce the header length and increase the payload length accordingly
+    int hdrLen = data.get(5);
+    int payloadLen = data.getShort(6);
+    data.put(5, (byte) 8);
+    data.putShort(6, (short) (payloadLen + (hdrLen - 8) * 4));
+    assertEquals(PacketValidator.INVALID_HEADER_LENGTH, PacketValidator.validate(data));
+  }
+
+  @Test
+  void udpPort() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    int hdrLen = data.get(5) * 4;
+    data.putShort(hdrLen, (short) 0);
+    assertEquals(PacketValidator.INVALID_UDP_SRC_PORT, PacketValidator.validate(data));
+  }
+
+  @Test
+  void describeAll() {
+    ByteBuffer data = ByteBuffer.wrap(packetBytes.clone());
+    for (int i = 1; i < PacketValidator.REASON_COUNT; i++) {
+      assertNotNull(PacketValidator.describe(i, data));
+      assertNotNull(PacketValidator.name(i));
+    }
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> PacketValidator.describe(PacketValidator.REASON_COUNT, data));
+  }
+}
@@ -0,0 +1,152 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.DNSUtil;
+import org.scion.jpan.testutil.MockControlServer;
+import org.scion.jpan.testutil.MockNetwork2;
+
+class PathCacheTest extends AbstractSegmentsTest {
+
+  private static final InetSocketAddress DST_1 = new InetSocketAddress("10.0.0.1", 12345);
+  private static final InetSocketAddress DST_2 = new InetSocketAddress("10.0.0.2", 12346);
+
+  private static MockNetwork2 network;
+
+  @BeforeAll
+  static void beforeAll() {
+    network = MockNetwork2.start(MockNetwork2.Topology.MINIMAL, "ASff00_0_1111");
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    // The segment cache would hide repeated lookups.
+    System.setProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC, "0");
+  }
+
+  @AfterEach
+  void afterEach() {
+    network.getTopoServer().getAndResetCallCount();
+    network.getControlServer().getAndResetCallCount();
+    System.clearProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC);
+    System.clearProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    network.close();
+    DNSUtil.clear();
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void sharedByHosts() {
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      List<Path> paths1 = ss.getPaths(AS_1112, DST_1);
+      assertFalse(paths1.isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+
+      // Same destination AS, different host: no new lookup
+      List<Path> paths2 = ss.getPaths(AS_1112, DST_2);
+      assertEquals(paths1.size(), paths2.size());
+      assertEquals(0, network.getControlServer().getAndResetCallCount());
+      for (int i = 0; i < paths1.size(); i++) {
+        assertEquals(DST_1.getAddress(), paths1.get(i).getRemoteAddress());
+        assertEquals(DST_2.getAddress(), paths2.get(i).getRemoteAddress());
+        assertEquals(DST_2.getPort(), paths2.get(i).getRemotePort());
+        assertArrayEquals(paths1.get(i).getRawPath(), paths2.get(i).getRawPath());
+      }
+
+      // Different destination AS
+      assertFalse(ss.getPaths(AS_1121, DST_1).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+    }
+  }
+
+  @Test
+  void concurrentLookups() throws Exception {
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      MockControlServer cs = network.getControlServer();
+      cs.getAndResetCallCount();
+      List<CompletableFuture<List<Path>>> futures = new ArrayList<>();
+      int calls = 0;
+      cs.block();
+      try {
+        for (int i = 0; i < 10; i++) {
+          futures.add(CompletableFuture.supplyAsync(() -> ss.getPaths(AS_1112, DST_1)));
+        }
+        // Only one of the lookups reaches the control service, its first request is blocked.
+        for (int i = 0; i < 200 && calls < 1; i++) {
+          Thread.sleep(10);
+          calls += cs.getAndResetCallCount();
+        }
+        Thread.sleep(50);
+        calls += cs.getAndResetCallCount();
+        assertEquals(1, calls);
+      } finally {
+        cs.unblock();
+      }
+      for (CompletableFuture<List<Path>> future : futures) {
+        assertFalse(future.get(5, TimeUnit.SECONDS).isEmpty());
+      }
+      // The remaining requests of the same lookup
+      calls += cs.getAndResetCallCount();
+      assertEquals(3, calls);
+    }
+  }
+
+  @Test
+  void refresh() {
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      List<Path> paths1 = ss.getPaths(AS_1112, DST_1);
+      assertFalse(paths1.isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+
+      // The cached paths are bypassed and replaced
+      ScionSocketAddress dst = PackageVisibilityHelper.toSSA(AS_1112, DST_1);
+      List<Path> paths2 = ss.refreshPaths(dst);
+      assertEquals(paths1.size(), paths2.size());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+
+      assertEquals(paths1.size(), ss.getPaths(AS_1112, DST_1).size());
+      assertEquals(0, network.getControlServer().getAndResetCallCount());
+    }
+  }
+
+  @Test
+  void disabled() {
+    System.setProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC, "0");
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      assertFalse(ss.getPaths(AS_1112, DST_1).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+      assertFalse(ss.getPaths(AS_1112, DST_2).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.PackageVisibilityHelper;
+import org.scion.jpan.Path;
+import org.scion.jpan.Scmp;
+import org.scion.jpan.internal.header.HeaderConstants;
+import org.scion.jpan.internal.header.PathMtuTracker;
+import org.scion.jpan.internal.header.ScionHeaderParser;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class PathMtuTrackerTest {
+
+  @Test
+  void testReportFromScmpError() {
+    PathMtuTracker tracker = new PathMtuTracker();
+    Path path = createPath(ExamplePacket.PATH_RAW_TINY_110_112);
+    assertEquals(0, tracker.getReportedMtu(path));
+
+    assertTrue(tracker.report(createError(path, 1300, true)));
+    assertEquals(1300, tracker.getReportedMtu(path));
+    // A different path instance with the same hops
+    assertEquals(1300, tracker.getReportedMtu(createPath(ExamplePacket.PATH_RAW_TINY_110_112)));
+
+    // MTUs are only lowered
+    assertTrue(tracker.report(createError(path, 1400, false)));
+    assertEquals(1300, tracker.getReportedMtu(path));
+    assertTrue(tracker.report(createError(path, 1200, false)));
+    assertEquals(1200, tracker.getReportedMtu(path));
+
+    tracker.clear();
+    assertEquals(0, tracker.getReportedMtu(path));
+  }
+
+  @Test
+  void testDifferentPath() {
+    PathMtuTracker tracker = new PathMtuTracker();
+    Path path = createPath(ExamplePacket.PATH_RAW_TINY_110_112);
+    assertTrue(tracker.report(path, 1200));
+
+    byte[] raw = ExamplePacket.PATH_RAW_TINY_110_112.clone();
+    // Change the egress interface of the first hop field (one info field)
+    raw[4 + 8 + 5]++;
+    assertEquals(0, tracker.getReportedMtu(createPath(raw)));
+    assertEquals(1200, tracker.getReportedMtu(path));
+  }
+
+  @Test
+  void testTruncatedCause() {
+    PathMtuTracker tracker = new PathMtuTracker();
+    Path path = createPath(ExamplePacket.PATH_RAW_TINY_110_112);
+    Scmp.Error2Message error = createError(path, 1200, false);
+    error.setCause(Arrays.copyOf(error.getCause(), 40));
+    assertFalse(tracker.report(error));
+    error.setCause(null);
+    assertFalse(tracker.report(error));
+    assertEquals(0, tracker.getReportedMtu(path));
+  }
+
+  @Test
+  void testExpiry() throws InterruptedException {
+    PathMtuTracker tracker = new PathMtuTracker(0);
+    Path path = createPath(ExamplePacket.PATH_RAW_TINY_110_112);
+    assertTrue(tracker.report(path, 1200));
+    Thread.sleep(1);
+    assertEquals(0, tracker.getReportedMtu(path));
+  }
+
+  private static Scmp.Error2Message createError(Path path, int mtu, boolean modifySegId) {
+    byte[] rawPath = path.getRawPath().clone();
+    if (modifySegId) {
+      // Border routers update the SegID of info fields and the current hop pointer.
+      rawPath[0] = (byte) 0x40;
+      rawPath[4 + 2] ^= 0x5a;
+      rawPath[4 + 3] ^= 0x3c;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(1000);
+    ScionHeaderParser.write(
+        buffer,
+        100,
+        rawPath.length,
+        path.getLocalIsdAs(),
+        ExamplePacket.SRC_HOST,
+        path.getRemoteIsdAs(),
+        path.getRemoteAddress().getAddress(),
+        HeaderConstants.HdrTypes.UDP.code(),
+        0);
+    ScionHeaderParser.writePath(buffer, rawPath);
+    buffer.put(new byte[100]);
+    buffer.flip();
+    byte[] cause = new byte[buffer.remaining()];
+    buffer.get(cause);
+    Scmp.Error2Message error = Scmp.Error2Message.create(path, mtu);
+    error.setCause(cause);
+    return error;
+  }
+
+  private static Path createPath(byte[] raw) {
+    InetSocketAddress firstHop = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+    return PackageVisibilityHelper.createDummyPath(
+        ExamplePacket.SRC_IA, ExamplePacket.DST_IA, ExamplePacket.DST_HOST, 12345, raw, firstHop);
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.net.InetSocketAddress;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.scion.jpan.*;
@@ -28,9 +29,18 @@ import org.scion.jpan.testutil.*;
 
 class PathServiceTest {
 
+  @BeforeEach
+  void beforeEach() {
+    // These tests send requests to failing services, the path and segment caches would hide them.
+    System.setProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC, "0");
+    System.setProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC, "0");
+  }
+
   @AfterEach
   void afterEach() {
     Scion.closeDefault();
+    System.clearProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC);
+    System.clearProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC);
   }
 
   @Test
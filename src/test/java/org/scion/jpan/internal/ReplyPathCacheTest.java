@@ -0,0 +1,97 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.ResponsePath;
+import org.scion.jpan.internal.header.HeaderConstants;
+import org.scion.jpan.internal.header.ReplyPathCache;
+import org.scion.jpan.internal.header.ScionHeaderParser;
+import org.scion.jpan.testutil.ExamplePacket;
+
+class ReplyPathCacheTest {
+
+  private static final InetSocketAddress SRC =
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), 31000);
+
+  @Test
+  void testHit() {
+    ReplyPathCache cache = new ReplyPathCache(4);
+    ByteBuffer packet = createPacket();
+    assertNull(cache.get(packet, SRC));
+    ResponsePath path = ScionHeaderParser.extractResponsePath(packet, SRC);
+    cache.put(packet, SRC, path);
+    assertEquals(0, packet.position());
+
+    assertSame(path, cache.get(createPacket(), SRC));
+    assertEquals(0, packet.position());
+
+    cache.clear();
+    assertNull(cache.get(packet, SRC));
+  }
+
+  @Test
+  void testMiss() {
+    ReplyPathCache cache = new ReplyPathCache(4);
+    ByteBuffer packet = createPacket();
+    cache.put(packet, SRC, ScionHeaderParser.extractResponsePath(packet, SRC));
+
+    // Different underlay address
+    InetSocketAddress src2 = new InetSocketAddress(InetAddress.getLoopbackAddress(), 31001);
+    assertNull(cache.get(packet, src2));
+
+    // Different UDP source port
+    ByteBuffer packet2 = createPacket();
+    int udpPos = ScionHeaderParser.extractHeaderLength(packet2);
+    packet2.putShort(udpPos, (short) (packet2.getShort(udpPos) + 1));
+    assertNull(cache.get(packet2, SRC));
+
+    // Different path
+    ByteBuffer packet3 = createPacket();
+    int pathPos = ScionHeaderParser.extractPathHeaderPosition(packet3);
+    packet3.put(udpPos - 1, (byte) (packet3.get(udpPos - 1) + 1));
+    assertTrue(udpPos - 1 > pathPos);
+    assertNull(cache.get(packet3, SRC));
+
+    // The original entry is still there
+    assertNotNull(cache.get(createPacket(), SRC));
+  }
+
+  @Test
+  void testScmpIsNotCached() {
+    ReplyPathCache cache = new ReplyPathCache(4);
+    ByteBuffer packet = createPacket();
+    packet.put(4, (byte) HeaderConstants.HdrTypes.SCMP.code());
+    cache.put(packet, SRC, ScionHeaderParser.extractResponsePath(packet, SRC));
+    assertNull(cache.get(packet, SRC));
+  }
+
+  @Test
+  void testCapacity() {
+    assertEquals(1, new ReplyPathCache(1).capacity());
+    assertEquals(8, new ReplyPathCache(5).capacity());
+    assertEquals(16, new ReplyPathCache(16).capacity());
+    assertThrows(IllegalArgumentException.class, () -> new ReplyPathCache(0));
+  }
+
+  private static ByteBuffer createPacket() {
+    return ByteBuffer.wrap(ExamplePacket.PACKET_BYTES_SERVER_E2E_PING.clone());
+  }
+}
@@ -21,6 +21,10 @@ import java.io.IOException;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -332,6 +336,35 @@ class ScmpErrorHandlingTest {
     }
   }
 
+  @Test
+  void write_backgroundReaderUsesBackupPathOnError5() throws IOException, InterruptedException {
+    try (MockNetwork2 nw = MockNetwork2.start(MockNetwork2.Topology.TINY4, "ASff00_0_111")) {
+      Path path = getPathTo112();
+      try (ScionDatagramChannel channel = concurrentErrorSender(Scmp.TypeCode.TYPE_5, path, 2)) {
+        CountDownLatch listenerWasTriggered = new CountDownLatch(1);
+        channel.setScmpErrorListener(scmpMessage -> listenerWasTriggered.countDown());
+        channel.configureBlocking(false);
+        assertFalse(channel.getOption(ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER));
+        channel.setOption(ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER, true);
+        assertTrue(channel.getOption(ScionSocketOptions.SCION_API_SCMP_BACKGROUND_READER));
+
+        channel.connect(path.getRemoteSocketAddress());
+        assertEquals(path, channel.getConnectionPath());
+        channel.write(ByteBuffer.allocate(0));
+        // No read() -> the error is processed in the background
+        assertTrue(listenerWasTriggered.await(1, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 1000;
+        while (path.equals(channel.getConnectionPath()) && System.currentTimeMillis() < deadline) {
+          Thread.sleep(10);
+        }
+        assertNotEquals(path, channel.getConnectionPath());
+
+        // User read() takes over
+        assertEquals(0, channel.read(ByteBuffer.allocate(1000)));
+      }
+    }
+  }
+
   private Path getPathTo112() {
     long dstIA = ScionUtil.parseIA("1-ff00:0:112");
     InetSocketAddress dst = IPHelper.toInetSocketAddress("127.0.0.1:" + Constants.SCMP_PORT);
@@ -376,6 +409,32 @@ class ScmpErrorHandlingTest {
     return ScionDatagramChannel.newBuilder().channel(errorChannel).open();
   }
 
+  /** Same as errorSender(), but the mock channel can be used from concurrent threads. */
+  private ScionDatagramChannel concurrentErrorSender(
+      Scmp.TypeCode errorCode, Path errorPath, Integer ifId) throws IOException {
+    MockDatagramChannel errorChannel = MockDatagramChannel.open();
+    Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+    errorChannel.setSendCallback(
+        (request, socketAddress) -> {
+          ByteBuffer response = ByteBuffer.allocate(1000);
+          createError(errorCode, request, response, errorPath, ifId);
+          response.flip();
+          responses.add(response);
+          return request.limit(); // ignores offset for now
+        });
+    errorChannel.setReceiveCallback(
+        buffer -> {
+          ByteBuffer response = responses.poll();
+          if (response == null) {
+            return null;
+          }
+          buffer.put(response);
+          // This is simply to make it work with MockNetwork2
+          return errorPath.getFirstHopAddress();
+        });
+    return ScionDatagramChannel.newBuilder().channel(errorChannel).open();
+  }
+
   private void createError(
       Scmp.TypeCode errorCode, ByteBuffer orig, ByteBuffer response, Path errorPath, Integer ifId) {
     response.clear();
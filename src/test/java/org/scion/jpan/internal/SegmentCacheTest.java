@@ -0,0 +1,126 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.DNSUtil;
+import org.scion.jpan.testutil.MockNetwork2;
+
+class SegmentCacheTest extends AbstractSegmentsTest {
+
+  private static MockNetwork2 network;
+
+  @BeforeAll
+  static void beforeAll() {
+    network = MockNetwork2.start(MockNetwork2.Topology.MINIMAL, "ASff00_0_1111");
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    // The path cache would hide segment lookups.
+    System.setProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC, "0");
+  }
+
+  @AfterEach
+  void afterEach() {
+    network.getTopoServer().getAndResetCallCount();
+    network.getControlServer().getAndResetCallCount();
+    System.clearProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC);
+    System.clearProperty(Constants.PROPERTY_PATH_CACHE_MAX_AGE_SEC);
+    System.clearProperty(Constants.PROPERTY_PATH_EXPIRY_MARGIN);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    network.close();
+    DNSUtil.clear();
+    // Defensive clean up
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void repeatedLookup() {
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      List<PathMetadata> paths1 = PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112);
+      assertFalse(paths1.isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+
+      // UP and DOWN segments are cached. Only empty results (if any) are requested again.
+      List<PathMetadata> paths2 = PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112);
+      assertEquals(paths1.size(), paths2.size());
+      assertTrue(network.getControlServer().getAndResetCallCount() <= 1);
+    }
+  }
+
+  @Test
+  void sharedUpSegments() {
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+
+      // The UP segments of the local AS are cached, the DOWN segments are different.
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1121).isEmpty());
+      int calls = network.getControlServer().getAndResetCallCount();
+      assertTrue(calls >= 1 && calls < 3, "calls=" + calls);
+    }
+  }
+
+  @Test
+  void expired_maxAge() throws InterruptedException {
+    System.setProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC, "1");
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertTrue(network.getControlServer().getAndResetCallCount() <= 1);
+
+      // The segments are still valid, but the entries are too old.
+      Thread.sleep(1100);
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+    }
+  }
+
+  @Test
+  void expired_margin() {
+    // The segments expire within a day, so they are already within the expiry margin.
+    System.setProperty(Constants.PROPERTY_PATH_EXPIRY_MARGIN, "" + 2 * 24 * 60 * 60);
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+    }
+  }
+
+  @Test
+  void disabled() {
+    System.setProperty(Constants.PROPERTY_SEGMENT_CACHE_MAX_AGE_SEC, "0");
+    try (Scion.CloseableService ss = Scion.newServiceWithDNS(AS_HOST)) {
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+      assertFalse(PackageVisibilityHelper.getPaths(ss, AS_1111, AS_1112).isEmpty());
+      assertEquals(3, network.getControlServer().getAndResetCallCount());
+    }
+  }
+}
@@ -131,7 +131,7 @@ class SegmentsMinimal110Test extends AbstractSegmentsTest {
       checkRaw(raw, path.getRawPath());
     }
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(1, network.getControlServer().getAndResetCallCount());
+    assertEquals(2, network.getControlServer().getAndResetCallCount());
   }
 
   @Test
@@ -245,6 +245,6 @@ class SegmentsMinimal110Test extends AbstractSegmentsTest {
       checkRaw(raw, path.getRawPath());
     }
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(1, network.getControlServer().getAndResetCallCount());
+    assertEquals(2, network.getControlServer().getAndResetCallCount());
   }
 }
@@ -129,7 +129,7 @@ class SegmentsMinimal1111Test extends AbstractSegmentsTest {
     }
 
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(2, network.getControlServer().getAndResetCallCount());
+    assertEquals(3, network.getControlServer().getAndResetCallCount());
   }
 
   @Test
@@ -123,7 +123,7 @@ class SegmentsMinimal111Test extends AbstractSegmentsTest {
     }
 
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(2, network.getControlServer().getAndResetCallCount());
+    assertEquals(3, network.getControlServer().getAndResetCallCount());
   }
 
   @Test
@@ -292,7 +292,7 @@ class SegmentsMinimal111Test extends AbstractSegmentsTest {
       assertEquals(4, path.getInterfaces().size());
     }
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(2, network.getControlServer().getAndResetCallCount());
+    assertEquals(3, network.getControlServer().getAndResetCallCount());
   }
 
   @Test
@@ -351,7 +351,7 @@ class SegmentsMinimal111Test extends AbstractSegmentsTest {
       assertEquals(6, path.getInterfaces().size());
     }
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(2, network.getControlServer().getAndResetCallCount());
+    assertEquals(3, network.getControlServer().getAndResetCallCount());
   }
 
   @Test
@@ -162,6 +162,6 @@ class SegmentsMinimal120Test extends AbstractSegmentsTest {
       assertEquals(2, path.getInterfaces().size());
     }
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(1, network.getControlServer().getAndResetCallCount());
+    assertEquals(2, network.getControlServer().getAndResetCallCount());
   }
 }
@@ -119,7 +119,7 @@ class SegmentsMinimal121Test extends AbstractSegmentsTest {
       assertEquals(4, path.getInterfaces().size());
     }
     assertEquals(1, network.getTopoServer().getAndResetCallCount());
-    assertEquals(2, network.getControlServer().getAndResetCallCount());
+    assertEquals(3, network.getControlServer().getAndResetCallCount());
   }
 
   @Test
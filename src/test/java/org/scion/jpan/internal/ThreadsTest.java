@@ -0,0 +1,63 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ThreadFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.Constants;
+import org.scion.jpan.internal.util.Threads;
+
+class ThreadsTest {
+
+  @AfterEach
+  void afterEach() {
+    System.clearProperty(Constants.PROPERTY_VIRTUAL_THREADS);
+  }
+
+  @Test
+  void testNewThread() throws Exception {
+    Thread thread = Threads.newThread(() -> {}, "test-thread");
+    assertEquals("test-thread", thread.getName());
+    assertTrue(thread.isDaemon());
+    assertFalse(isVirtual(thread));
+  }
+
+  @Test
+  void testFactory() {
+    ThreadFactory factory = Threads.factory("test");
+    assertEquals("test", factory.newThread(() -> {}).getName());
+    assertEquals("test-1", factory.newThread(() -> {}).getName());
+  }
+
+  @Test
+  void testVirtualThreads() throws Exception {
+    System.setProperty(Constants.PROPERTY_VIRTUAL_THREADS, "true");
+    Thread thread = Threads.newThread(() -> {}, "test-thread");
+    assertEquals("test-thread", thread.getName());
+    assertTrue(thread.isDaemon());
+    assertEquals(Threads.isVirtualThreadsSupported(), isVirtual(thread));
+  }
+
+  private static boolean isVirtual(Thread thread) throws Exception {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+}
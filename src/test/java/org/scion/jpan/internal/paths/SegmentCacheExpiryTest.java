@@ -0,0 +1,230 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.internal.util.Config;
+import org.scion.jpan.proto.control_plane.Seg;
+import org.scion.jpan.proto.crypto.Signed;
+
+/** Expiration of {@link SegmentCache} entries. See also SegmentCacheTest. */
+class SegmentCacheExpiryTest {
+
+  @Test
+  void getExpiration_segment() {
+    // The hop field with the smallest expTime determines the expiry of a segment.
+    PathBuilder.PathSegment segment = createSegment(1000, 63, 255);
+    assertEquals(expiry(1000, 63), PathBuilder.getExpiration(Collections.singletonList(segment)));
+    assertEquals(1000 + 21600, expiry(1000, 63));
+    PathBuilder.PathSegment segment0 = createSegment(2000, 0);
+    assertEquals(2000 + 337, PathBuilder.getExpiration(Collections.singletonList(segment0)));
+  }
+
+  @Test
+  void getExpiration_firstSegmentExpires() {
+    List<PathBuilder.PathSegment> segments =
+        Arrays.asList(createSegment(1000, 255), createSegment(1000, 3), createSegment(2000, 1));
+    assertEquals(expiry(1000, 3), PathBuilder.getExpiration(segments));
+  }
+
+  @Test
+  void getExpiration_empty() {
+    assertEquals(0, PathBuilder.getExpiration(Collections.emptyList()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void getExpiration_segmentArray() {
+    List<PathBuilder.PathSegment>[] segments =
+        new List[] {
+          Collections.emptyList(),
+          Collections.singletonList(createSegment(1000, 63)),
+          Collections.singletonList(createSegment(1000, 7))
+        };
+    // Empty results are ignored
+    assertEquals(expiry(1000, 7), PathBuilder.getExpiration(segments));
+    assertEquals(0, PathBuilder.getExpiration(new List[] {Collections.emptyList()}));
+  }
+
+  @Test
+  void margin_validEntryIsCached() {
+    long margin = Config.getPathExpiryMarginSeconds();
+    SegmentCache<Long> cache = new SegmentCache<>(expiry -> expiry, 60);
+    AtomicInteger calls = new AtomicInteger();
+    long expiry = nowSeconds() + margin + 30;
+    assertEquals(expiry, cache.get(1, 2, () -> load(calls, expiry)));
+    assertEquals(expiry, cache.get(1, 2, () -> load(calls, expiry)));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void margin_entryWithinMarginIsNotCached() {
+    long margin = Config.getPathExpiryMarginSeconds();
+    SegmentCache<Long> cache = new SegmentCache<>(expiry -> expiry, 60);
+    AtomicInteger calls = new AtomicInteger();
+    // Not expired yet, but within the margin
+    long expiry = nowSeconds() + margin - 2;
+    assertEquals(expiry, cache.get(1, 2, () -> load(calls, expiry)));
+    assertEquals(expiry, cache.get(1, 2, () -> load(calls, expiry)));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void notCached() {
+    SegmentCache<Long> cache = new SegmentCache<>(expiry -> expiry, 60);
+    AtomicInteger calls = new AtomicInteger();
+    // '0' means "do not cache"
+    cache.get(1, 2, () -> load(calls, 0));
+    cache.get(1, 2, () -> load(calls, 0));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void maxAge() throws InterruptedException {
+    SegmentCache<Long> cache = new SegmentCache<>(expiry -> expiry, 1);
+    AtomicInteger calls = new AtomicInteger();
+    long expiry = nowSeconds() + 3600;
+    cache.get(1, 2, () -> load(calls, expiry));
+    cache.get(1, 2, () -> load(calls, expiry));
+    assertEquals(1, calls.get());
+    // Other keys are independent
+    cache.get(2, 1, () -> load(calls, expiry));
+    assertEquals(2, calls.get());
+
+    // The segments are still valid, but the entry is too old.
+    Thread.sleep(1100);
+    cache.get(1, 2, () -> load(calls, expiry));
+    assertEquals(3, calls.get());
+    cache.get(1, 2, () -> load(calls, expiry));
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void maxAge_disabled() {
+    SegmentCache<Long> cache = new SegmentCache<>(expiry -> expiry, 0);
+    AtomicInteger calls = new AtomicInteger();
+    long expiry = nowSeconds() + 3600;
+    cache.get(1, 2, () -> load(calls, expiry));
+    cache.get(1, 2, () -> load(calls, expiry));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void loaderError() throws Exception {
+    SegmentCache<Long> cache = new SegmentCache<>(expiry -> expiry, 60);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Long> first =
+        CompletableFuture.supplyAsync(
+            () ->
+                cache.get(
+                    1,
+                    2,
+                    () -> {
+                      loading.countDown();
+                      awaitQuietly(release);
+                      throw new StackOverflowError();
+                    }));
+    assertTrue(loading.await(1, TimeUnit.SECONDS));
+    CompletableFuture<Long> second = new CompletableFuture<>();
+    Thread waiter =
+        new Thread(
+            () -> {
+              try {
+                second.complete(cache.get(1, 2, () -> load(calls, 0)));
+              } catch (Throwable t) {
+                second.completeExceptionally(t);
+              }
+            });
+    waiter.start();
+    // Wait until the second caller waits for the first lookup
+    for (int i = 0; i < 100 && waiter.getState() != Thread.State.WAITING; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(Thread.State.WAITING, waiter.getState());
+    release.countDown();
+
+    // Waiting callers fail as well instead of waiting forever (get() unwraps the
+    // CompletionException of the second caller)
+    Exception e1 = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(StackOverflowError.class, e1.getCause());
+    Exception e2 = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(StackOverflowError.class, e2.getCause());
+    assertEquals(0, calls.get());
+
+    // The failed entry has been removed
+    long expiry = nowSeconds() + 3600;
+    assertEquals(expiry, cache.get(1, 2, () -> load(calls, expiry)));
+    assertEquals(1, calls.get());
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long load(AtomicInteger calls, long expiry) {
+    calls.incrementAndGet();
+    return expiry;
+  }
+
+  /** Expiry is timestamp + (1 + expTime) * 24h / 256, see the SCION hop field spec. */
+  private static long expiry(long timestamp, int expTime) {
+    return timestamp + (1 + expTime) * 24 * 60 * 60 / 256;
+  }
+
+  private static long nowSeconds() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+  private static PathBuilder.PathSegment createSegment(long timestamp, int... expTimes) {
+    Seg.PathSegment.Builder builder = Seg.PathSegment.newBuilder();
+    for (int expTime : expTimes) {
+      Seg.HopField hop =
+          Seg.HopField.newBuilder()
+              .setMac(ByteString.copyFrom(new byte[] {1, 2, 3, 4, 5, 6}))
+              .setExpTime(expTime)
+              .build();
+      Seg.ASEntrySignedBody body =
+          Seg.ASEntrySignedBody.newBuilder()
+              .setHopEntry(Seg.HopEntry.newBuilder().setHopField(hop).build())
+              .build();
+      Signed.HeaderAndBodyInternal habi =
+          Signed.HeaderAndBodyInternal.newBuilder().setBody(body.toByteString()).build();
+      Signed.SignedMessage sm =
+          Signed.SignedMessage.newBuilder().setHeaderAndBody(habi.toByteString()).build();
+      builder.addAsEntries(Seg.ASEntry.newBuilder().setSigned(sm).build());
+    }
+    Seg.SegmentInformation info =
+        Seg.SegmentInformation.newBuilder().setTimestamp(timestamp).build();
+    builder.setSegmentInfo(info.toByteString());
+    return new PathBuilder.PathSegment(builder.build(), null);
+  }
+}
@@ -0,0 +1,207 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.internal.paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.testutil.TestUtil;
+
+class ServiceSelectorTest {
+
+  @Test
+  void failover() throws IOException {
+    ServiceSelector<String> selector = new ServiceSelector<>(Arrays.asList("a", "b"), false, "x");
+    assertEquals(Arrays.asList("a", "b"), selector.getOrder());
+    AtomicInteger callsA = new AtomicInteger();
+    AtomicBoolean failA = new AtomicBoolean(true);
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          if (s.equals("a")) {
+            callsA.incrementAndGet();
+            if (failA.get()) {
+              throw new IOException("failed");
+            }
+          }
+          return s;
+        };
+
+    assertEquals("b", selector.execute(request));
+    assertEquals(1, callsA.getAndSet(0));
+    // "a" is unavailable for now
+    assertEquals(Arrays.asList("b", "a"), selector.getOrder());
+    failA.set(false);
+    assertEquals("b", selector.execute(request));
+    assertEquals(0, callsA.get());
+    selector.close();
+  }
+
+  @Test
+  void failover_allFail() throws IOException {
+    ServiceSelector<String> selector = new ServiceSelector<>(Arrays.asList("a", "b"), false, "x");
+    AtomicBoolean fail = new AtomicBoolean(true);
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          if (fail.get()) {
+            throw new IOException("failed " + s);
+          }
+          return s;
+        };
+    Exception e = assertThrows(IOException.class, () -> selector.execute(request));
+    assertEquals("failed b", e.getMessage());
+
+    // Unavailable services are still tried if all services are unavailable.
+    fail.set(false);
+    assertEquals("a", selector.execute(request));
+    assertEquals("a", selector.getOrder().get(0));
+    selector.close();
+  }
+
+  @Test
+  void fatalError() {
+    ServiceSelector<String> selector = new ServiceSelector<>(Arrays.asList("a", "b"), false, "x");
+    AtomicInteger calls = new AtomicInteger();
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          calls.incrementAndGet();
+          throw new IllegalStateException(s);
+        };
+    Exception e = assertThrows(IllegalStateException.class, () -> selector.execute(request));
+    assertEquals("a", e.getMessage());
+    assertEquals(1, calls.get());
+    // Not a failure of the service
+    assertEquals(Arrays.asList("a", "b"), selector.getOrder());
+    selector.close();
+  }
+
+  @Test
+  void noServices() {
+    ServiceSelector<String> selector = new ServiceSelector<>(Collections.emptyList(), true, "x");
+    Exception e = assertThrows(IOException.class, () -> selector.execute(s -> s));
+    assertEquals("No control services found in topology", e.getMessage());
+    selector.close();
+  }
+
+  @Test
+  void hedging() throws IOException {
+    ServiceSelector<String> selector = new ServiceSelector<>(Arrays.asList("a", "b"), true, "x");
+    AtomicBoolean slowA = new AtomicBoolean(false);
+    AtomicInteger callsB = new AtomicInteger();
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          if (s.equals("a") && slowA.get()) {
+            TestUtil.sleep(300);
+          }
+          if (s.equals("b")) {
+            callsB.incrementAndGet();
+          }
+          return s;
+        };
+
+    // Not enough measurements for hedging
+    for (int i = 0; i < 8; i++) {
+      assertEquals("a", selector.execute(request));
+    }
+    assertEquals(0, callsB.get());
+
+    // "a" is now slower than usual, we get the answer from "b"
+    slowA.set(true);
+    long t0 = System.nanoTime();
+    assertEquals("b", selector.execute(request));
+    assertTrue(System.nanoTime() - t0 < 250_000_000L);
+    assertEquals(1, callsB.get());
+
+    // Once the request to "a" has completed, "b" is the faster service.
+    TestUtil.sleep(400);
+    assertEquals(Arrays.asList("b", "a"), selector.getOrder());
+    selector.close();
+  }
+
+  @Test
+  void noHedging() throws IOException {
+    ServiceSelector<String> selector = new ServiceSelector<>(Arrays.asList("a", "b"), false, "x");
+    AtomicBoolean slowA = new AtomicBoolean(false);
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          if (s.equals("a") && slowA.get()) {
+            TestUtil.sleep(100);
+          }
+          return s;
+        };
+    for (int i = 0; i < 10; i++) {
+      assertEquals("a", selector.execute(request));
+    }
+    slowA.set(true);
+    assertEquals("a", selector.execute(request));
+    selector.close();
+  }
+
+  @Test
+  void probing() throws IOException {
+    ServiceSelector<String> selector =
+        new ServiceSelector<>(Arrays.asList("a", "b", "c"), false, "x", 0);
+    Set<String> called = new HashSet<>();
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          called.add(s);
+          return s;
+        };
+    // Every request probes an unmeasured service until all services are measured.
+    for (int i = 0; i < 3; i++) {
+      selector.execute(request);
+    }
+    assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), called);
+    selector.close();
+  }
+
+  @Test
+  void probing_failure() throws IOException {
+    ServiceSelector<String> selector =
+        new ServiceSelector<>(Arrays.asList("a", "b"), false, "x", 0);
+    AtomicInteger callsB = new AtomicInteger();
+    ServiceSelector.Request<String, String> request =
+        s -> {
+          if (s.equals("b")) {
+            callsB.incrementAndGet();
+            throw new IOException("failed");
+          }
+          return s;
+        };
+    // The probe of "b" fails, the request is sent to "a".
+    assertEquals("a", selector.execute(request));
+    assertEquals(1, callsB.get());
+    // "b" is unavailable and not probed again
+    assertEquals("a", selector.execute(request));
+    assertEquals(1, callsB.get());
+    assertEquals(Arrays.asList("a", "b"), selector.getOrder());
+    selector.close();
+  }
+
+  @Test
+  void probing_notDue() throws IOException {
+    ServiceSelector<String> selector = new ServiceSelector<>(Arrays.asList("a", "b"), false, "x");
+    for (int i = 0; i < 10; i++) {
+      assertEquals("a", selector.execute(s -> s));
+    }
+    selector.close();
+  }
+}
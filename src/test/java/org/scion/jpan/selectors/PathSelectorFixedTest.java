@@ -115,7 +115,7 @@ class PathSelectorFixedTest {
       List<Path> paths = service.getPaths(remote);
       pp = PathSelectorFixed.create(paths.get(0));
       // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
 
       // Use path directly here because this is how FixedSelector works.
       pp.open(paths.get(0).getRemoteSocketAddress());
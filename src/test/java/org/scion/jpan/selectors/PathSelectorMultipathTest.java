@@ -0,0 +1,128 @@
+// Copyright 2026 ETH Zurich
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.scion.jpan.selectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.scion.jpan.*;
+import org.scion.jpan.testutil.MockNetwork2;
+
+class PathSelectorMultipathTest {
+
+  private static final InetSocketAddress dummyAddr =
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+
+  private PathSelectorMultipath pp = null;
+
+  @AfterEach
+  void afterEach() {
+    if (pp != null) {
+      pp.close();
+      pp = null;
+    }
+    ScionService.closeDefault();
+  }
+
+  @Test
+  void roundRobin() {
+    try (MockNetwork2 nw = MockNetwork2.start(MockNetwork2.Topology.DEFAULT, "ASff00_0_112")) {
+      ScionService service = Scion.defaultService();
+      ScionSocketAddress remote = PackageVisibilityHelper.toSSA("1-ff00:0:110", dummyAddr);
+      List<Path> paths = service.getPaths(remote);
+      assertEquals(4, paths.size());
+
+      pp =
+          PathSelectorMultipath.create(
+              service, PathPolicy.DEFAULT, 3, PathSelectorMultipath.Scheduling.ROUND_ROBIN);
+      pp.open(remote);
+      assertEquals(3, pp.getPaths().size());
+      // getPath() does not advance the schedule
+      assertEquals(paths.get(0), pp.getPath());
+      assertEquals(paths.get(0), pp.getPath());
+      for (int round = 0; round < 3; round++) {
+        for (int i = 0; i < 3; i++) {
+          assertEquals(paths.get(i), pp.nextPath());
+        }
+      }
+    }
+  }
+
+  @Test
+  void weighted_noBandwidth() {
+    try (MockNetwork2 nw = MockNetwork2.start(MockNetwork2.Topology.DEFAULT, "ASff00_0_112")) {
+      ScionService service = Scion.defaultService();
+      ScionSocketAddress remote = PackageVisibilityHelper.toSSA("1-ff00:0:110", dummyAddr);
+
+      pp =
+          PathSelectorMultipath.create(
+              service, PathPolicy.DEFAULT, 4, PathSelectorMultipath.Scheduling.WEIGHTED);
+      pp.open(remote);
+      assertEquals(4, pp.getPaths().size());
+      // Without bandwidth information, all paths have the same weight.
+      Set<Path> used = new HashSet<>();
+      for (int i = 0; i < 4; i++) {
+        used.add(pp.nextPath());
+      }
+      assertEquals(4, used.size());
+    }
+  }
+
+  @Test
+  void reportError5() {
+    try (MockNetwork2 nw = MockNetwork2.start(MockNetwork2.Topology.DEFAULT, "ASff00_0_112")) {
+      ScionService service = Scion.defaultService();
+      ScionSocketAddress remote = PackageVisibilityHelper.toSSA("1-ff00:0:110", dummyAddr);
+      List<Path> paths = service.getPaths(remote);
+
+      pp =
+          PathSelectorMultipath.create(
+              service, PathPolicy.DEFAULT, 4, PathSelectorMultipath.Scheduling.ROUND_ROBIN);
+      pp.open(remote);
+      assertEquals(4, pp.getPaths().size());
+      // Move the round-robin index to the last path.
+      for (int i = 0; i < 3; i++) {
+        assertEquals(paths.get(i), pp.nextPath());
+      }
+
+      // Interface 5 is unique to the first path.
+      PathMetadata.PathInterface pif = paths.get(0).getMetadata().getInterfaces().get(5);
+      pp.reportError(Scmp.Error5Message.create(paths.get(0), pif.getIsdAs(), pif.getId()));
+      assertEquals(3, pp.getPaths().size());
+      assertFalse(pp.getPaths().contains(paths.get(0)));
+      // The index wraps around to the start of the smaller stripe set.
+      assertEquals(paths.get(1), pp.nextPath());
+      for (int i = 0; i < 6; i++) {
+        assertNotEquals(paths.get(0), pp.nextPath());
+      }
+    }
+  }
+
+  @Test
+  void illegalArguments() {
+    PathPolicy policy = PathPolicy.DEFAULT;
+    PathSelectorMultipath.Scheduling rr = PathSelectorMultipath.Scheduling.ROUND_ROBIN;
+    assertThrows(
+        IllegalArgumentException.class, () -> PathSelectorMultipath.Factory.create(policy, 0, rr));
+    assertThrows(
+        IllegalArgumentException.class, () -> PathSelectorMultipath.create(null, policy, 2, rr));
+  }
+}
@@ -54,6 +54,8 @@ class PathSelectorWithRefreshTest {
       pp = null;
     }
     MockNetwork.stopTiny();
+    // Paths are cached by the service, the next test should not see them.
+    Scion.closeDefault();
     System.clearProperty(Constants.PROPERTY_BOOTSTRAP_TOPO_FILE);
     System.clearProperty(Constants.ENV_PATH_POLLING_INTERVAL_SEC);
     assertEquals(0, PathSelectorWithRefresh.getQueueSize());
@@ -87,8 +89,8 @@ class PathSelectorWithRefreshTest {
       pp.setPathPolicy(ppExp);
       pp.refresh();
 
-      // No calls done in open() or setPathPolicy()
-      assertEquals(4, MockNetwork.getControlServer().getAndResetCallCount());
+      // open() uses the cached paths, refresh() requests new paths.
+      assertEquals(2, MockNetwork.getControlServer().getAndResetCallCount());
       // Path is now the expired path
       assertEquals(
           expiredPath.getMetadata().getExpiration(), pp.getPath().getMetadata().getExpiration());
@@ -96,9 +98,9 @@ class PathSelectorWithRefreshTest {
       // Allow policy to return proper paths, then wait for it to be called again.
       returnExpired.set(false);
 
-      // Wait for timer
+      // Wait for timer. Polling uses the cached paths.
       TestUtil.sleep(1500);
-      assertEquals(2, MockNetwork.getControlServer().getAndResetCallCount());
+      assertEquals(0, MockNetwork.getControlServer().getAndResetCallCount());
       assertEquals(
           newPath.getMetadata().getExpiration(), pp.getPath().getMetadata().getExpiration());
     } finally {
@@ -215,7 +217,7 @@ class PathSelectorWithRefreshTest {
       ScionSocketAddress remote = PackageVisibilityHelper.toSSA("1-ff00:0:110", dummyAddr);
       List<Path> paths = service.getPaths(remote);
       // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
 
       pp.open(remote);
       assertEquals(paths.get(0), pp.getPath());
@@ -225,8 +227,8 @@ class PathSelectorWithRefreshTest {
       // Assert that nothing changed and no error occurred
       assertEquals(paths.get(0), pp.getPath());
 
-      // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      // open() uses the cached paths
+      assertEquals(0, nw.getControlServer().getAndResetCallCount());
     }
   }
 
@@ -240,7 +242,7 @@ class PathSelectorWithRefreshTest {
       ScionSocketAddress remote = PackageVisibilityHelper.toSSA("1-ff00:0:110", dummyAddr);
       List<Path> paths = service.getPaths(remote);
       // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
 
       pp.open(remote);
       assertEquals(paths.get(0), pp.getPath());
@@ -250,8 +252,8 @@ class PathSelectorWithRefreshTest {
       assertNotEquals(paths.get(0), pp.getPath());
       assertEquals(paths.get(1), pp.getPath());
 
-      // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      // open() uses the cached paths
+      assertEquals(0, nw.getControlServer().getAndResetCallCount());
 
       // No change when reporting again
       pp.reportError(createError5(paths.get(0)));
@@ -271,15 +273,17 @@ class PathSelectorWithRefreshTest {
       assertNotEquals(paths.get(1), pp.getPath());
       assertEquals(paths.get(2), pp.getPath());
 
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      // refresh() bypasses the cached paths
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
 
       // Now report _all_ paths a faulty
-      // This should cause a refresh that will put all paths back into business.
+      // This should cause a refresh (bypassing the cached paths) that will put all paths back into
+      // business.
       for (Path p : paths) {
         pp.reportError(createError5(p));
       }
       assertEquals(paths.get(0), pp.getPath());
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
     }
   }
 
@@ -305,7 +309,7 @@ class PathSelectorWithRefreshTest {
       ScionSocketAddress remote = PackageVisibilityHelper.toSSA("1-ff00:0:110", dummyAddr);
       List<Path> paths = mostHops.filter(service.getPaths(remote));
       // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
 
       pp.open(remote);
       assertEquals(paths.get(0), pp.getPath());
@@ -315,8 +319,8 @@ class PathSelectorWithRefreshTest {
       assertNotEquals(paths.get(0), pp.getPath());
       assertEquals(paths.get(2), pp.getPath());
 
-      // reset counter
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      // open() uses the cached paths
+      assertEquals(0, nw.getControlServer().getAndResetCallCount());
 
       // No change when reporting again
       pp.reportError(createError6_7_8(paths.get(0)));
@@ -331,7 +335,7 @@ class PathSelectorWithRefreshTest {
         pp.reportError(createError5(p));
       }
       assertNotNull(pp.getPath());
-      assertEquals(2, nw.getControlServer().getAndResetCallCount());
+      assertEquals(3, nw.getControlServer().awaitAndResetCallCount(3));
     }
   }
 
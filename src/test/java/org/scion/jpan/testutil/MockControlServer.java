@@ -61,6 +61,26 @@ public class MockControlServer {
     return callCount.getAndSet(0);
   }
 
+  /**
+   * Waits until at least the expected number of calls has been received, then resets the counter.
+   * This is useful if requests may still be running in the background, e.g. speculative DOWN
+   * segment requests for CORE destinations.
+   *
+   * @param expected The expected number of calls
+   * @return The number of calls
+   */
+  public int awaitAndResetCallCount(int expected) {
+    try {
+      for (int i = 0; i < 100 && callCount.get() < expected; i++) {
+        Thread.sleep(10);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    return callCount.getAndSet(0);
+  }
+
   private MockControlServer startInternal() throws IOException {
     int port = address.getPort();
     controlServer = new MockControlServer.ControlServiceImpl();
@@ -164,8 +184,11 @@ public class MockControlServer {
         // MockNetwork
         responseObserver.onNext(defaultResponse(req.getSrcIsdAs(), req.getDstIsdAs()));
       } else {
-        // MockNetwork2
-        responseObserver.onNext(responses.get(key(req.getSrcIsdAs(), req.getDstIsdAs())));
+        // MockNetwork2. Like a real control service, we return an empty response if there are no
+        // segments, e.g. for speculative DOWN requests to CORE ASes.
+        String key = key(req.getSrcIsdAs(), req.getDstIsdAs());
+        responseObserver.onNext(
+            responses.getOrDefault(key, Seg.SegmentsResponse.getDefaultInstance()));
       }
       if (errorToReport.get() != null) {
         responseObserver.onError(new StatusException(errorToReport.getAndSet(null)));